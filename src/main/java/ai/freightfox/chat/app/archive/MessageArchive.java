@@ -0,0 +1,119 @@
+package ai.freightfox.chat.app.archive;
+
+import ai.freightfox.chat.app.model.StoredMessage;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// On-disk cold history for messages spilled out of the capped Redis lists, one segment log per room.
+// Pods share the archive directory (for example a mounted volume); only pods with spill-enabled write to it.
+@Slf4j
+@Component
+public class MessageArchive {
+
+    @Value("${chat.message-store.archive.dir:data/archive}")
+    private String archiveDir;
+
+    @Value("${chat.message-store.archive.segment-bytes:67108864}")
+    private long segmentBytes;
+
+    @Value("${chat.message-store.archive.index-interval:64}")
+    private int indexInterval;
+
+    @Value("${chat.message-store.archive.spill-enabled:true}")
+    private boolean spillEnabled;
+
+    private final ConcurrentHashMap<String, SegmentLog> logs = new ConcurrentHashMap<>();
+
+    public boolean isWritable() {
+        return spillEnabled;
+    }
+
+    // Durably appends consecutive messages starting at firstPosition; returns how many were newly archived
+    public int append(String chatRoomKey, long firstPosition, List<byte[]> payloads) {
+        try {
+            return openLog(chatRoomKey).append(firstPosition, payloads);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to archive messages for " + chatRoomKey, e);
+        }
+    }
+
+    // Archived messages with positions in [from, to], oldest first
+    public List<StoredMessage> read(String chatRoomKey, long from, long to) {
+        if (to < from || (!logs.containsKey(chatRoomKey) && !Files.isDirectory(directoryFor(chatRoomKey)))) {
+            return new ArrayList<>();
+        }
+        try {
+            return openLog(chatRoomKey).read(from, to);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archived messages for " + chatRoomKey, e);
+        }
+    }
+
+    public void delete(String chatRoomKey) {
+        try {
+            SegmentLog segmentLog = logs.remove(chatRoomKey);
+            if (segmentLog == null && Files.isDirectory(directoryFor(chatRoomKey))) {
+                segmentLog = new SegmentLog(directoryFor(chatRoomKey), maxSegmentBytes(), indexInterval, true);
+            }
+            if (segmentLog != null) {
+                segmentLog.delete();
+            }
+        } catch (IOException e) {
+            log.error("Failed to delete archived messages for {}: {}", chatRoomKey, e.getMessage());
+        }
+    }
+
+    // Closes this pod's handle on a room's archive without touching the files, e.g. after another pod deleted the room
+    public void evict(String chatRoomKey) {
+        SegmentLog segmentLog = logs.remove(chatRoomKey);
+        if (segmentLog != null) {
+            try {
+                segmentLog.close();
+            } catch (IOException e) {
+                log.warn("Failed to close archive for {}: {}", chatRoomKey, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        logs.forEach((chatRoomKey, segmentLog) -> {
+            try {
+                segmentLog.close();
+            } catch (IOException e) {
+                log.warn("Failed to close archive for {}: {}", chatRoomKey, e.getMessage());
+            }
+        });
+        logs.clear();
+    }
+
+    private SegmentLog openLog(String chatRoomKey) {
+        return logs.computeIfAbsent(chatRoomKey, key -> {
+            try {
+                return new SegmentLog(directoryFor(key), maxSegmentBytes(), indexInterval, !spillEnabled);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open archive for " + key, e);
+            }
+        });
+    }
+
+    // Segments are read through int indexed mappings, so a segment must stay below 2 GB
+    private long maxSegmentBytes() {
+        return Math.min(segmentBytes, Integer.MAX_VALUE);
+    }
+
+    private Path directoryFor(String chatRoomKey) {
+        return Paths.get(archiveDir, chatRoomKey.replace(':', '_'));
+    }
+}
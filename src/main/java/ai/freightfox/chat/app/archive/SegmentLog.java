@@ -0,0 +1,328 @@
+package ai.freightfox.chat.app.archive;
+
+import ai.freightfox.chat.app.model.StoredMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+// Append-only archive of one room's history, split into segment files named after their first position.
+// A record is [position:long][length:int][payload]; each segment has a sparse .idx of (position, offset) pairs.
+// A read-only log never writes or repairs files. Every log picks up segments appended by other pods on each read,
+// and a writable log re-reads the tail before each append, so pods sharing the directory can take turns writing.
+@Slf4j
+class SegmentLog implements Closeable {
+
+    private static final int RECORD_HEADER_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int INDEX_ENTRY_BYTES = Long.BYTES + Long.BYTES;
+    private static final String LOG_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final int indexInterval;
+    private final boolean readOnly;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private long nextPosition;
+
+    SegmentLog(Path directory, long maxSegmentBytes, int indexInterval, boolean readOnly) throws IOException {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.indexInterval = indexInterval;
+        this.readOnly = readOnly;
+        if (!readOnly) {
+            Files.createDirectories(directory);
+        }
+        recover();
+    }
+
+    // Appends payloads holding consecutive positions from firstPosition and fsyncs before returning.
+    // Positions already archived are skipped, so a spill retried after a crash does not duplicate entries.
+    synchronized int append(long firstPosition, List<byte[]> payloads) throws IOException {
+        if (readOnly) {
+            throw new IllegalStateException("Archive " + directory + " is read-only on this pod");
+        }
+
+        // Another pod may have appended since this log last looked; callers serialize writers, so the tail is stable here
+        refresh();
+        if (!segments.isEmpty()) {
+            nextPosition = segments.lastEntry().getValue().scanTail(true);
+        }
+
+        int skip = (int) Math.max(0, Math.min(payloads.size(), nextPosition - firstPosition));
+        if (skip == payloads.size()) {
+            return 0;
+        }
+
+        Segment active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        for (int i = skip; i < payloads.size(); i++) {
+            long position = firstPosition + i;
+            byte[] payload = payloads.get(i);
+            long recordBytes = RECORD_HEADER_BYTES + payload.length;
+
+            if (active == null || (active.size > 0 && active.size + recordBytes > maxSegmentBytes)) {
+                if (active != null) {
+                    active.seal();
+                }
+                active = new Segment(directory, position, false);
+                segments.put(position, active);
+            }
+            active.append(position, payload, indexInterval);
+        }
+        active.force();
+        nextPosition = firstPosition + payloads.size();
+        return payloads.size() - skip;
+    }
+
+    // Returns archived messages with positions in [from, to], oldest first
+    synchronized List<StoredMessage> read(long from, long to) throws IOException {
+        refresh();
+
+        List<StoredMessage> messages = new ArrayList<>();
+        if (segments.isEmpty() || to < from) {
+            return messages;
+        }
+
+        Long startKey = segments.floorKey(from);
+        for (Segment segment : segments.tailMap(startKey != null ? startKey : segments.firstKey(), true).values()) {
+            if (segment.basePosition > to) {
+                break;
+            }
+
+            ByteBuffer buffer = segment.map();
+            buffer.position((int) segment.offsetFor(from));
+            while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                long position = buffer.getLong();
+                int length = buffer.getInt();
+                if (position > to || length < 0 || buffer.remaining() < length) {
+                    return messages;
+                }
+                if (position < from) {
+                    buffer.position(buffer.position() + length);
+                    continue;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                messages.add(new StoredMessage(Long.toString(position), payload));
+            }
+        }
+        return messages;
+    }
+
+    synchronized void delete() throws IOException {
+        close();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+        nextPosition = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    // Loads segment indexes; the writer also truncates a torn record left at the tail by a crash
+    private void recover() throws IOException {
+        loadNewSegments(!readOnly);
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        for (Segment segment : segments.headMap(segments.lastKey(), false).values()) {
+            segment.seal();
+        }
+        nextPosition = segments.lastEntry().getValue().scanTail(!readOnly);
+    }
+
+    private void refresh() throws IOException {
+        Long previousLast = segments.isEmpty() ? null : segments.lastKey();
+        loadNewSegments(false);
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        if (previousLast != null && previousLast < segments.lastKey()) {
+            for (Segment segment : segments.subMap(previousLast, true, segments.lastKey(), false).values()) {
+                segment.reload();
+                segment.seal();
+            }
+        }
+        segments.lastEntry().getValue().reload();
+    }
+
+    // Index files are only repaired at recovery; a later pass may see an entry whose record another pod is still writing
+    private void loadNewSegments(boolean repair) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(LOG_SUFFIX)).toList()) {
+                String name = file.getFileName().toString();
+                long basePosition = Long.parseLong(name.substring(0, name.length() - LOG_SUFFIX.length()));
+                if (!segments.containsKey(basePosition)) {
+                    Segment segment = new Segment(directory, basePosition, readOnly);
+                    segment.loadIndex(repair);
+                    segments.put(basePosition, segment);
+                }
+            }
+        }
+    }
+
+    private static final class Segment {
+
+        private final long basePosition;
+        private final Path logPath;
+        private final boolean readOnly;
+        private final FileChannel logChannel;
+        private final FileChannel indexChannel;
+        private final TreeMap<Long, Long> index = new TreeMap<>();
+        private MappedByteBuffer sealedMapping;
+        private long size;
+        private int recordsSinceIndex;
+
+        private Segment(Path directory, long basePosition, boolean readOnly) throws IOException {
+            this.basePosition = basePosition;
+            this.readOnly = readOnly;
+            String name = String.format("%020d", basePosition);
+            this.logPath = directory.resolve(name + LOG_SUFFIX);
+            OpenOption[] options = readOnly
+                    ? new OpenOption[]{StandardOpenOption.READ}
+                    : new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+            this.logChannel = FileChannel.open(logPath, options);
+            this.indexChannel = FileChannel.open(directory.resolve(name + INDEX_SUFFIX), options);
+            this.size = logChannel.size();
+        }
+
+        void append(long position, byte[] payload, int indexInterval) throws IOException {
+            if (recordsSinceIndex == 0 || recordsSinceIndex >= indexInterval) {
+                ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES).putLong(position).putLong(size).flip();
+                indexChannel.write(entry, (long) index.size() * INDEX_ENTRY_BYTES);
+                index.put(position, size);
+                recordsSinceIndex = 0;
+            }
+
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length)
+                    .putLong(position).putInt(payload.length).put(payload).flip();
+            while (record.hasRemaining()) {
+                size += logChannel.write(record, size);
+            }
+            recordsSinceIndex++;
+        }
+
+        void force() throws IOException {
+            logChannel.force(false);
+            indexChannel.force(false);
+        }
+
+        // Sealed segments never change again, so one read-only mapping serves every later read
+        void seal() throws IOException {
+            if (sealedMapping != null) {
+                return;
+            }
+            if (!readOnly) {
+                force();
+            }
+            sealedMapping = logChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            indexChannel.close();
+        }
+
+        ByteBuffer map() throws IOException {
+            if (sealedMapping != null) {
+                return sealedMapping.duplicate();
+            }
+            return logChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        long offsetFor(long position) {
+            Map.Entry<Long, Long> entry = index.floorEntry(position);
+            return entry != null ? entry.getValue() : 0;
+        }
+
+        // Picks up records and index entries the writing pod appended since the last read
+        void reload() throws IOException {
+            if (sealedMapping != null) {
+                return;
+            }
+            size = logChannel.size();
+            loadIndex(false);
+        }
+
+        // Finds the position after the last complete record; the writer cuts off anything after it
+        long scanTail(boolean repair) throws IOException {
+            long offset = index.isEmpty() ? 0 : index.lastEntry().getValue();
+            long lastPosition = basePosition - 1;
+            ByteBuffer buffer = logChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.position((int) offset);
+            recordsSinceIndex = 0;
+            while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                long position = buffer.getLong();
+                int length = buffer.getInt();
+                if (length < 0 || buffer.remaining() < length) {
+                    break;
+                }
+                buffer.position(buffer.position() + length);
+                offset = buffer.position();
+                lastPosition = position;
+                recordsSinceIndex++;
+            }
+
+            if (repair && offset < size) {
+                log.warn("Truncating {} torn bytes at the end of archive segment {}", size - offset, logPath);
+                logChannel.truncate(offset);
+                size = offset;
+                long validSize = size;
+                index.values().removeIf(indexedOffset -> indexedOffset >= validSize);
+                indexChannel.truncate((long) index.size() * INDEX_ENTRY_BYTES);
+            }
+            return lastPosition + 1;
+        }
+
+        void loadIndex(boolean repair) throws IOException {
+            long entries = indexChannel.size() / INDEX_ENTRY_BYTES;
+            ByteBuffer buffer = ByteBuffer.allocate((int) (entries * INDEX_ENTRY_BYTES));
+            indexChannel.read(buffer, 0);
+            buffer.flip();
+            index.clear();
+            while (buffer.remaining() >= INDEX_ENTRY_BYTES) {
+                long position = buffer.getLong();
+                long offset = buffer.getLong();
+                // An entry written just before a crash may point at a record that never made it to disk
+                if (offset >= size) {
+                    break;
+                }
+                index.put(position, offset);
+            }
+            if (repair) {
+                indexChannel.truncate((long) index.size() * INDEX_ENTRY_BYTES);
+            }
+        }
+
+        void close() throws IOException {
+            if (indexChannel.isOpen()) {
+                indexChannel.close();
+            }
+            logChannel.close();
+        }
+    }
+}
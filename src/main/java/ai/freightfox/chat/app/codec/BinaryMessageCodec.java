@@ -0,0 +1,179 @@
+package ai.freightfox.chat.app.codec;
+
+import ai.freightfox.chat.app.model.MessageModel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Compact encoding: [0xB1][flags][varint len][participant][varint len][message][zigzag varint epoch second][varint nano].
+// Timestamps are LocalDateTime values taken as UTC, so they round-trip exactly.
+public class BinaryMessageCodec implements MessageCodec {
+
+    public static final byte MAGIC = (byte) 0xB1;
+    // Published frames wrap the stored payload with its id: [0xB2][id length][id][payload], see send_message.lua
+    public static final byte PUBLISHED_MAGIC = (byte) 0xB2;
+
+    private static final int FLAG_TIMESTAMP = 1;
+    private static final int MAX_INTERNED_NAMES = 16_384;
+
+    // Decoded participant names are shared, so a history page does not hold one copy of a name per message
+    private final ConcurrentHashMap<String, String> internedNames = new ConcurrentHashMap<>();
+
+    @Override
+    public byte[] encode(MessageModel messageModel) {
+        byte[] participant = utf8(messageModel.getParticipant());
+        byte[] message = utf8(messageModel.getMessage());
+        LocalDateTime timestamp = messageModel.getTimestamp();
+
+        // magic + flags + two 5 byte length varints + 10 byte seconds + 5 byte nanos at most
+        Writer writer = new Writer(2 + 10 + length(participant) + length(message) + 15);
+        writer.writeByte(MAGIC);
+        writer.writeByte(timestamp != null ? FLAG_TIMESTAMP : 0);
+        writer.writeBytes(participant);
+        writer.writeBytes(message);
+        if (timestamp != null) {
+            long epochSecond = timestamp.toEpochSecond(ZoneOffset.UTC);
+            writer.writeVarLong((epochSecond << 1) ^ (epochSecond >> 63));
+            writer.writeVarLong(timestamp.getNano());
+        }
+        return writer.toByteArray();
+    }
+
+    @Override
+    public MessageModel decode(byte[] payload) throws IOException {
+        if (!canDecode(payload)) {
+            throw new IOException("Not a binary encoded message");
+        }
+
+        try {
+            Reader reader = new Reader(payload, 1);
+            int flags = reader.readByte();
+            MessageModel messageModel = new MessageModel();
+            messageModel.setParticipant(intern(reader.readString()));
+            messageModel.setMessage(reader.readString());
+            if ((flags & FLAG_TIMESTAMP) != 0) {
+                long zigzag = reader.readVarLong();
+                long epochSecond = (zigzag >>> 1) ^ -(zigzag & 1);
+                messageModel.setTimestamp(LocalDateTime.ofEpochSecond(epochSecond, (int) reader.readVarLong(), ZoneOffset.UTC));
+            }
+            return messageModel;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Truncated binary message", e);
+        }
+    }
+
+    @Override
+    public boolean canDecode(byte[] payload) {
+        return payload.length > 0 && payload[0] == MAGIC;
+    }
+
+    private String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+        if (internedNames.size() >= MAX_INTERNED_NAMES) {
+            internedNames.clear();
+        }
+        String existing = internedNames.putIfAbsent(name, name);
+        return existing != null ? existing : name;
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        private Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        // Length 0 is reserved for null, so a present value is written as length + 1
+        void writeBytes(byte[] value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            writeVarLong(value.length + 1L);
+            ensure(value.length);
+            System.arraycopy(value, 0, buffer, position, value.length);
+            position += value.length;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        byte[] toByteArray() {
+            return position == buffer.length ? buffer : Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readByte() {
+            if (position >= buffer.length) {
+                throw new IndexOutOfBoundsException("End of message at " + position);
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IndexOutOfBoundsException("Malformed varint at " + position);
+        }
+
+        String readString() {
+            long length = readVarLong();
+            if (length == 0) {
+                return null;
+            }
+            int byteCount = (int) (length - 1);
+            if (byteCount < 0 || position + byteCount > buffer.length) {
+                throw new IndexOutOfBoundsException("String of " + byteCount + " bytes past end of message");
+            }
+            String value = new String(buffer, position, byteCount, StandardCharsets.UTF_8);
+            position += byteCount;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ai.freightfox.chat.app.codec;
+
+import ai.freightfox.chat.app.model.MessageModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Writes with the configured codec and reads every known format, so switching codecs needs no migration.
+// Encoded payloads of at least compressionThreshold bytes are stored deflated as [0xC1][length:int][zlib data].
+public class CompositeMessageCodec implements MessageCodec {
+
+    public static final byte COMPRESSED_MAGIC = (byte) 0xC1;
+
+    // Guards inflation against a corrupt or hostile length header
+    private static final int MAX_INFLATED_BYTES = 16 * 1024 * 1024;
+    private static final int COMPRESSED_HEADER_BYTES = 1 + Integer.BYTES;
+
+    private final MessageCodec writeCodec;
+    private final List<MessageCodec> readCodecs;
+    private final ObjectMapper objectMapper;
+    private final int compressionThreshold;
+
+    public CompositeMessageCodec(MessageCodec writeCodec, List<MessageCodec> readCodecs, ObjectMapper objectMapper) {
+        this(writeCodec, readCodecs, objectMapper, 0);
+    }
+
+    // A compressionThreshold of 0 stores every payload uncompressed
+    public CompositeMessageCodec(MessageCodec writeCodec, List<MessageCodec> readCodecs, ObjectMapper objectMapper,
+                                 int compressionThreshold) {
+        this.writeCodec = writeCodec;
+        this.readCodecs = readCodecs;
+        this.objectMapper = objectMapper;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] encode(MessageModel messageModel) throws IOException {
+        byte[] payload = writeCodec.encode(messageModel);
+        if (compressionThreshold <= 0 || payload.length < compressionThreshold) {
+            return payload;
+        }
+        byte[] compressed = compress(payload);
+        // Incompressible bodies (already compressed media, random tokens) are kept as they are
+        return compressed.length < payload.length ? compressed : payload;
+    }
+
+    @Override
+    public MessageModel decode(byte[] payload) throws IOException {
+        if (isCompressed(payload)) {
+            payload = decompress(payload);
+        }
+        for (MessageCodec codec : readCodecs) {
+            if (codec.canDecode(payload)) {
+                return codec.decode(payload);
+            }
+        }
+        throw new IOException("Unknown message encoding");
+    }
+
+    @Override
+    public boolean canDecode(byte[] payload) {
+        return isCompressed(payload) || readCodecs.stream().anyMatch(codec -> codec.canDecode(payload));
+    }
+
+    // WebSocket clients always get JSON; JSON frames from the send script pass through untouched,
+    // binary and compressed frames are decoded once per pod rather than once per socket
+    public byte[] toClientFrame(byte[] publishedFrame) throws IOException {
+        if (publishedFrame.length == 0 || publishedFrame[0] != BinaryMessageCodec.PUBLISHED_MAGIC) {
+            return publishedFrame;
+        }
+
+        int idLength = publishedFrame[1] & 0xFF;
+        String id = new String(publishedFrame, 2, idLength, StandardCharsets.UTF_8);
+        MessageModel messageModel = decode(Arrays.copyOfRange(publishedFrame, 2 + idLength, publishedFrame.length));
+        messageModel.setId(id);
+        return objectMapper.writeValueAsBytes(messageModel);
+    }
+
+    private static boolean isCompressed(byte[] payload) {
+        return payload.length >= COMPRESSED_HEADER_BYTES && payload[0] == COMPRESSED_MAGIC;
+    }
+
+    private static byte[] compress(byte[] payload) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 2 + COMPRESSED_HEADER_BYTES);
+            out.write(COMPRESSED_MAGIC);
+            out.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(payload.length).array());
+            byte[] buffer = new byte[Math.min(payload.length, 8192)];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] payload) throws IOException {
+        int length = ByteBuffer.wrap(payload, 1, Integer.BYTES).getInt();
+        if (length < 0 || length > MAX_INFLATED_BYTES) {
+            throw new IOException("Invalid compressed message length " + length);
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload, COMPRESSED_HEADER_BYTES, payload.length - COMPRESSED_HEADER_BYTES);
+            byte[] inflated = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                int read = inflater.inflate(inflated, offset, length - offset);
+                if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += read;
+            }
+            // Reading on past the last byte consumes the zlib checksum, so a truncated or corrupt tail is caught here
+            if (offset != length || (!inflater.finished() && inflater.inflate(new byte[1]) != 0) || !inflater.finished()) {
+                throw new IOException("Truncated compressed message");
+            }
+            return inflated;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed message", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ai.freightfox.chat.app.codec;
+
+import ai.freightfox.chat.app.model.MessageModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+public class JsonMessageCodec implements MessageCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public JsonMessageCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte[] encode(MessageModel messageModel) throws IOException {
+        return objectMapper.writeValueAsBytes(messageModel);
+    }
+
+    @Override
+    public MessageModel decode(byte[] payload) throws IOException {
+        // Entries written before raw payload storage hold the message JSON wrapped in a JSON string
+        if (payload.length > 0 && payload[0] == '"') {
+            String messageJson = objectMapper.readValue(payload, String.class);
+            return objectMapper.readValue(messageJson, MessageModel.class);
+        }
+        return objectMapper.readValue(payload, MessageModel.class);
+    }
+
+    @Override
+    public boolean canDecode(byte[] payload) {
+        return payload.length > 0 && (payload[0] == '{' || payload[0] == '"');
+    }
+}
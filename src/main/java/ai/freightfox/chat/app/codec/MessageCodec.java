@@ -0,0 +1,16 @@
+package ai.freightfox.chat.app.codec;
+
+import ai.freightfox.chat.app.model.MessageModel;
+
+import java.io.IOException;
+
+// Encoding of a message as stored in the message store; the store assigns the id, so it is not encoded
+public interface MessageCodec {
+
+    byte[] encode(MessageModel messageModel) throws IOException;
+
+    MessageModel decode(byte[] payload) throws IOException;
+
+    // Whether the payload is in this codec's format, judged from its leading bytes
+    boolean canDecode(byte[] payload);
+}
@@ -0,0 +1,59 @@
+package ai.freightfox.chat.app.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+// Virtual threads by default; chat.threads.virtual.enabled=false restores bounded platform thread pools
+@Slf4j
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${chat.threads.virtual.enabled:true}")
+    private boolean virtualThreadsEnabled;
+
+    // Drains per-session outbound queues so slow sockets never block the Redis listener thread
+    @Bean
+    public ExecutorService websocketWriterExecutor(@Value("${chat.websocket.outbound.writer-threads:16}") int writerThreads){
+        return newExecutor("ws-writer-", writerThreads);
+    }
+
+    // Writes messages received over /ws, off the container's socket read loop
+    @Bean
+    public ExecutorService inboundMessageExecutor(@Value("${chat.websocket.inbound.threads:16}") int inboundThreads){
+        return newExecutor("ws-inbound-", inboundThreads);
+    }
+
+    // Dispatches Redis pub/sub messages to listeners
+    @Bean
+    public ExecutorService redisListenerExecutor(@Value("${chat.redis.listener-threads:8}") int listenerThreads){
+        return newExecutor("redis-listener-", listenerThreads);
+    }
+
+    // CPU bound scatter step for very large rooms; parallelism 0 means one worker per core
+    @Bean
+    public ExecutorService fanOutExecutor(@Value("${chat.websocket.fanout.parallelism:0}") int parallelism){
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    // Moves messages beyond the hot history cap from Redis into the on-disk archive
+    @Bean
+    public ExecutorService historySpillExecutor(@Value("${chat.message-store.archive.spill-threads:2}") int spillThreads){
+        return newExecutor("history-spill-", spillThreads);
+    }
+
+    private ExecutorService newExecutor(String threadNamePrefix, int platformThreads) {
+        if (virtualThreadsEnabled) {
+            log.info("Using virtual threads for {}", threadNamePrefix);
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadNamePrefix, 0).factory());
+        }
+        log.info("Using {} platform threads for {}", platformThreads, threadNamePrefix);
+        return Executors.newFixedThreadPool(platformThreads, new CustomizableThreadFactory(threadNamePrefix));
+    }
+}
@@ -0,0 +1,64 @@
+package ai.freightfox.chat.app.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+// The servlet container negotiates permessage-deflate itself whenever a client offers it, so turning compression off
+// means hiding the offer from the handshake. Other extensions in the header are passed through.
+class PerMessageDeflateFilter extends OncePerRequestFilter {
+
+    private static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+    private static final String PER_MESSAGE_DEFLATE = "permessage-deflate";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (request.getHeader(EXTENSIONS_HEADER) == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        filterChain.doFilter(new HttpServletRequestWrapper(request) {
+
+            @Override
+            public String getHeader(String name) {
+                if (!EXTENSIONS_HEADER.equalsIgnoreCase(name)) {
+                    return super.getHeader(name);
+                }
+                List<String> offers = withoutDeflate(super.getHeaders(name));
+                return offers.isEmpty() ? null : String.join(", ", offers);
+            }
+
+            @Override
+            public Enumeration<String> getHeaders(String name) {
+                if (!EXTENSIONS_HEADER.equalsIgnoreCase(name)) {
+                    return super.getHeaders(name);
+                }
+                return Collections.enumeration(withoutDeflate(super.getHeaders(name)));
+            }
+        }, response);
+    }
+
+    private static List<String> withoutDeflate(Enumeration<String> headerValues) {
+        List<String> offers = new ArrayList<>();
+        while (headerValues.hasMoreElements()) {
+            for (String offer : headerValues.nextElement().split(",")) {
+                String extensionName = offer.split(";", 2)[0].trim();
+                if (!extensionName.isEmpty() && !PER_MESSAGE_DEFLATE.equalsIgnoreCase(extensionName)) {
+                    offers.add(offer.trim());
+                }
+            }
+        }
+        return offers;
+    }
+}
@@ -1,48 +1,202 @@
 package ai.freightfox.chat.app.config;
 
 
-import ai.freightfox.chat.app.service.MessageSubscriberService;
+import ai.freightfox.chat.app.codec.BinaryMessageCodec;
+import ai.freightfox.chat.app.codec.CompositeMessageCodec;
+import ai.freightfox.chat.app.codec.JsonMessageCodec;
+import ai.freightfox.chat.app.codec.MessageCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
 @Configuration
 @EnableRedisRepositories
 public class RedisConfig {
 
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory){
-        RedisTemplate<String,Object> template = new RedisTemplate<>();
-        template.setConnectionFactory(connectionFactory);
-
+    public GenericJackson2JsonRedisSerializer redisValueSerializer(){
         // Configure ObjectMapper with JavaTimeModule for LocalDateTime support
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
+
+    @Bean
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory, GenericJackson2JsonRedisSerializer redisValueSerializer){
+        RedisTemplate<String,Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setHashKeySerializer(new StringRedisSerializer());
+
+        template.setValueSerializer(redisValueSerializer);
+        template.setHashValueSerializer(redisValueSerializer);
+        return template;
+    }
+
+    // Message payloads are encoded once at ingest and stored and published as raw bytes
+    @Bean
+    public RedisTemplate<String, byte[]> messageRedisTemplate(RedisConnectionFactory connectionFactory){
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
 
         template.setKeySerializer(new StringRedisSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
 
-        template.setValueSerializer(serializer);
-        template.setHashValueSerializer(serializer);
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
         return template;
     }
 
-    // To Support Redis Listener
+    // Message store encoding, json (default) or binary; reads accept every format so the setting can change at any time
     @Bean
-    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory, MessageSubscriberService messageSubscriber){
+    public JsonMessageCodec jsonMessageCodec(ObjectMapper objectMapper){
+        return new JsonMessageCodec(objectMapper);
+    }
+
+    @Bean
+    public BinaryMessageCodec binaryMessageCodec(){
+        return new BinaryMessageCodec();
+    }
+
+    @Bean
+    @Primary
+    public CompositeMessageCodec messageCodec(@Value("${chat.message-codec.type:json}") String codecType,
+                                              @Value("${chat.message-codec.compression-threshold:1024}") int compressionThreshold,
+                                              JsonMessageCodec jsonMessageCodec, BinaryMessageCodec binaryMessageCodec,
+                                              ObjectMapper objectMapper){
+        MessageCodec writeCodec = switch (codecType) {
+            case "json" -> jsonMessageCodec;
+            case "binary" -> binaryMessageCodec;
+            default -> throw new IllegalArgumentException("Unknown chat.message-codec.type '" + codecType + "', expected json or binary");
+        };
+        return new CompositeMessageCodec(writeCodec, List.of(binaryMessageCodec, jsonMessageCodec), objectMapper,
+                compressionThreshold);
+    }
+
+    // To Support Redis Listener; room channels are subscribed on demand by RoomSubscriptionManager
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory, ExecutorService redisListenerExecutor){
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(redisConnectionFactory);
-        container.addMessageListener(messageSubscriber, new PatternTopic("chatroom:*:channel"));
+        container.setTaskExecutor(redisListenerExecutor);
         return container;
     }
+
+    // Room check, membership check, append and publish for a single message in one call
+    @Bean
+    public RedisScript<List> sendMessageScript(){
+        return RedisScript.of(new ClassPathResource("scripts/send_message.lua"), List.class);
+    }
+
+    // Same as sendMessageScript for the stream backed message store
+    @Bean
+    public RedisScript<List> sendStreamMessageScript(){
+        return RedisScript.of(new ClassPathResource("scripts/send_message_stream.lua"), List.class);
+    }
+
+    @Bean
+    public RedisScript<List> readMessagesScript(){
+        return RedisScript.of(new ClassPathResource("scripts/read_messages.lua"), List.class);
+    }
+
+    // Conditional head trim once spilled messages are durable in the archive
+    @Bean
+    public RedisScript<Long> trimMessagesScript(){
+        return RedisScript.of(new ClassPathResource("scripts/trim_messages.lua"), Long.class);
+    }
+
+    // Shared per-window send counters behind the local rate limit buckets
+    @Bean
+    public RedisScript<List> reconcileRateLimitsScript(){
+        return RedisScript.of(new ClassPathResource("scripts/reconcile_rate_limits.lua"), List.class);
+    }
+
+    // Refreshes one pod's connected participants for one room
+    @Bean
+    public RedisScript<List> presenceHeartbeatScript(){
+        return RedisScript.of(new ClassPathResource("scripts/presence_heartbeat.lua"), List.class);
+    }
+
+    // One page of the room directory with participant and message counts
+    @Bean
+    public RedisScript<List> listRoomsScript(){
+        return RedisScript.of(new ClassPathResource("scripts/list_rooms.lua"), List.class);
+    }
+
+    // Drops a room's keys, moves its history aside and publishes the room deleted event
+    @Bean
+    public RedisScript<Long> deleteRoomScript(){
+        return RedisScript.of(new ClassPathResource("scripts/delete_room.lua"), Long.class);
+    }
+
+    // Trims one chunk off the history of a deleted room
+    @Bean
+    public RedisScript<List> reclaimRoomDataScript(){
+        return RedisScript.of(new ClassPathResource("scripts/reclaim_room_data.lua"), List.class);
+    }
+
+    // Room check plus SADD or SREM of any number of participants in one call, with their room sets
+    @Bean
+    public RedisScript<List> updateMembershipScript(){
+        return RedisScript.of(new ClassPathResource("scripts/update_membership.lua"), List.class);
+    }
+
+    // A participant's rooms with the newest message of each
+    @Bean
+    public RedisScript<List> participantRoomsScript(){
+        return RedisScript.of(new ClassPathResource("scripts/participant_rooms.lua"), List.class);
+    }
+
+    // Forward-only update of one participant's read position in one room
+    @Bean
+    public RedisScript<List> updateReadCursorScript(){
+        return RedisScript.of(new ClassPathResource("scripts/update_read_cursor.lua"), List.class);
+    }
+
+    // Unread message count of one participant in one room
+    @Bean
+    public RedisScript<List> unreadCountScript(){
+        return RedisScript.of(new ClassPathResource("scripts/unread_count.lua"), List.class);
+    }
+
+    // Applies coalesced typing signals for one room and publishes the room's typists when they changed
+    @Bean
+    public RedisScript<List> publishTypingScript(){
+        return RedisScript.of(new ClassPathResource("scripts/publish_typing.lua"), List.class);
+    }
+
+    // Compare-and-delete release of a lock taken with SET NX PX and a random token
+    @Bean
+    public RedisScript<Long> releaseLockScript(){
+        return RedisScript.of(new ClassPathResource("scripts/release_lock.lua"), Long.class);
+    }
+
+    // Token-checked append of one batch of a list-to-stream migration to its temporary stream
+    @Bean
+    public RedisScript<Long> copyStreamBatchScript(){
+        return RedisScript.of(new ClassPathResource("scripts/copy_stream_batch.lua"), Long.class);
+    }
+
+    // Moves live sends behind the migrated history and puts the finished stream in place of the list
+    @Bean
+    public RedisScript<Long> finishStreamMigrationScript(){
+        return RedisScript.of(new ClassPathResource("scripts/finish_stream_migration.lua"), Long.class);
+    }
 }
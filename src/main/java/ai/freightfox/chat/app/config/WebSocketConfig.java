@@ -1,10 +1,15 @@
 package ai.freightfox.chat.app.config;
 
 import ai.freightfox.chat.app.service.ChatRoomService;
+import ai.freightfox.chat.app.service.InboundMessageService;
+import ai.freightfox.chat.app.service.SessionResumeService;
 import ai.freightfox.chat.app.service.WebSocketSessionManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
@@ -27,6 +32,24 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Autowired
     private WebSocketSessionManager sessionManager;
 
+    @Autowired
+    private SessionResumeService sessionResumeService;
+
+    @Autowired
+    private InboundMessageService inboundMessageService;
+
+    @Value("${chat.websocket.permessage-deflate.enabled:true}")
+    private boolean perMessageDeflateEnabled;
+
+    // Per-message compression on /ws is negotiated by the container; the filter only runs when it is switched off
+    @Bean
+    public FilterRegistrationBean<PerMessageDeflateFilter> perMessageDeflateFilter() {
+        FilterRegistrationBean<PerMessageDeflateFilter> registration = new FilterRegistrationBean<>(new PerMessageDeflateFilter());
+        registration.addUrlPatterns("/ws");
+        registration.setEnabled(!perMessageDeflateEnabled);
+        return registration;
+    }
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(new WebSocketHandler() {
@@ -35,15 +58,25 @@ public class WebSocketConfig implements WebSocketConfigurer {
             public void afterConnectionEstablished(org.springframework.web.socket.WebSocketSession session) throws Exception {
                 String roomName = (String) session.getAttributes().get("roomName");
                 String participant = (String) session.getAttributes().get("participantName");
+                String lastSeen = (String) session.getAttributes().get("lastSeen");
                 
                 log.info("WebSocket connected: {} - Room: {}, Participant: {}", session.getId(), roomName, participant);
 
-                sessionManager.addSession(roomName, session);
+                // Reconnecting clients pass the id of the last message they received to get what they missed
+                if (lastSeen != null) {
+                    sessionResumeService.resume(roomName, session, lastSeen);
+                } else {
+                    sessionManager.addSession(roomName, session);
+                }
             }
 
             @Override
             public void handleMessage(org.springframework.web.socket.WebSocketSession session, org.springframework.web.socket.WebSocketMessage<?> message) throws Exception {
                 log.debug("WebSocket message received: {}", message.getPayload());
+                // Text frames are send commands from the session's participant; they are acked over the same socket
+                if (message instanceof org.springframework.web.socket.TextMessage textMessage) {
+                    inboundMessageService.handle(session, textMessage);
+                }
             }
 
             @Override
@@ -60,6 +93,7 @@ public class WebSocketConfig implements WebSocketConfigurer {
                 if (roomName != null) {
                     sessionManager.removeSession(roomName, session);
                 }
+                inboundMessageService.sessionClosed(session);
             }
 
             @Override
@@ -105,6 +139,10 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
                         attributes.put("roomName", roomName);
                         attributes.put("participantName", participantName);
+                        String lastSeen = extractLastSeenFromQuery(query);
+                        if (lastSeen != null) {
+                            attributes.put("lastSeen", lastSeen);
+                        }
                         
                         log.info("Raw WebSocket connection authorized for user '{}' in room '{}'", participantName, roomName);
                         return true;
@@ -147,4 +185,16 @@ public class WebSocketConfig implements WebSocketConfigurer {
         }
         return null;
     }
+
+    private String extractLastSeenFromQuery(String query) {
+        if (query != null && query.contains("lastSeen=")) {
+            String[] params = query.split("&");
+            for (String param : params) {
+                if (param.startsWith("lastSeen=") && param.length() > "lastSeen=".length()) {
+                    return param.split("=")[1];
+                }
+            }
+        }
+        return null;
+    }
 }
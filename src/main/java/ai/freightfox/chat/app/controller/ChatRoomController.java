@@ -2,8 +2,12 @@ package ai.freightfox.chat.app.controller;
 
 
 import ai.freightfox.chat.app.dto.response.ApiResponse;
+import ai.freightfox.chat.app.dto.response.BatchMembershipResponse;
 import ai.freightfox.chat.app.dto.response.ChatRoomCreateResponse;
+import ai.freightfox.chat.app.dto.response.PresenceResponse;
+import ai.freightfox.chat.app.dto.response.RoomListResponse;
 import ai.freightfox.chat.app.service.ChatRoomService;
+import ai.freightfox.chat.app.service.PresenceService;
 import io.swagger.v3.oas.annotations.Hidden;
 import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,7 +15,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -22,6 +29,9 @@ public class ChatRoomController {
     @Autowired
     private ChatRoomService chatRoomService;
 
+    @Autowired
+    private PresenceService presenceService;
+
     // Create Chat Room
     @Operation(summary = "Create Chat Room")
     @PostMapping
@@ -36,6 +46,18 @@ public class ChatRoomController {
     }
 
 
+    // Room directory, newest first by creation (sort=created) or by last message (sort=activity)
+    @Operation(summary = "List Chat Rooms")
+    @GetMapping
+    public ResponseEntity<RoomListResponse> listChatRooms(
+            @RequestParam(required = false, defaultValue = "created") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "20") @Min(value = 1, message = "Limit must be at least 1") @Max(value = 100, message = "Limit cannot exceed 100") Integer limit,
+            @RequestParam(required = false) String prefix){
+        return ResponseEntity.ok(chatRoomService.listRooms(sort, cursor, limit, prefix));
+    }
+
+
     // User Join the Chat Room
     @Operation(summary = "Join Chat Room")
     @PostMapping(value = "{roomId}/join")
@@ -53,6 +75,30 @@ public class ChatRoomController {
     }
 
 
+    // Join many participants at once, e.g. a whole team; one Redis call however many names are sent
+    @Operation(summary = "Join Chat Room in Bulk")
+    @PostMapping(value = "{roomId}/join/batch")
+    public ResponseEntity<BatchMembershipResponse> joinChatRoomBatch(@RequestBody List<String> participants, @PathVariable String roomId){
+        return ResponseEntity.ok(chatRoomService.joinChatRoom(roomId, participants));
+    }
+
+
+    // Remove many participants at once
+    @Operation(summary = "Leave Chat Room in Bulk")
+    @PostMapping(value = "{roomId}/leave/batch")
+    public ResponseEntity<BatchMembershipResponse> leaveChatRoomBatch(@RequestBody List<String> participants, @PathVariable String roomId){
+        return ResponseEntity.ok(chatRoomService.removeParticipants(roomId, participants));
+    }
+
+
+    // Participants connected right now on any pod
+    @Operation(summary = "Get Online Participants")
+    @GetMapping(value = "{roomId}/presence")
+    public ResponseEntity<PresenceResponse> getPresence(@PathVariable String roomId){
+        return ResponseEntity.ok(presenceService.getPresence(roomId));
+    }
+
+
     // Remove the Chat Room
     @Operation(summary = "Remove Chat Room")
     @DeleteMapping(value = "{roomId}")
@@ -1,17 +1,27 @@
 package ai.freightfox.chat.app.controller;
 
+import ai.freightfox.chat.app.dto.request.ReadCursorRequest;
 import ai.freightfox.chat.app.dto.request.SendMessageRequest;
 import ai.freightfox.chat.app.dto.response.ApiResponse;
+import ai.freightfox.chat.app.dto.response.BatchSendResponse;
+import ai.freightfox.chat.app.dto.response.MessagePageResponse;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ChatRoomNotFoundException;
 import ai.freightfox.chat.app.model.MessageModel;
+import ai.freightfox.chat.app.service.ChatRoomService;
 import ai.freightfox.chat.app.service.MessageService;
+import ai.freightfox.chat.app.service.ReadCursorService;
 import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Max;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -22,6 +32,12 @@ public class MessageController {
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private ChatRoomService chatRoomService;
+
+    @Autowired
+    private ReadCursorService readCursorService;
+
     @Operation(summary = "Send Message to Chat Room")
     @PostMapping
     public ResponseEntity<ApiResponse> sendMessage(@PathVariable String roomId, @RequestBody SendMessageRequest messageRequest) {
@@ -34,6 +50,31 @@ public class MessageController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(summary = "Send a Batch of Messages to Chat Room")
+    @PostMapping("/batch")
+    public ResponseEntity<BatchSendResponse> sendMessages(@PathVariable String roomId, @RequestBody List<SendMessageRequest> messageRequests) {
+        List<MessageModel> messageModels = new ArrayList<>();
+        if (messageRequests != null) {
+            for (SendMessageRequest messageRequest : messageRequests) {
+                messageModels.add(messageRequest == null ? null : new MessageModel(messageRequest.getParticipant(), messageRequest.getMessage()));
+            }
+        }
+        return ResponseEntity.ok(messageService.saveMessages(roomId, messageModels));
+    }
+
+    // Read positions are batched on the server; the new position is visible in unread counts right away
+    @Operation(summary = "Mark Messages as Read")
+    @PostMapping("/read")
+    public ResponseEntity<ApiResponse> markRead(@PathVariable String roomId, @RequestBody ReadCursorRequest readCursorRequest) {
+        readCursorService.markRead(roomId, readCursorRequest.getParticipant(), readCursorRequest.getMessageId());
+
+        ApiResponse response = new ApiResponse();
+        response.setStatus("Success");
+        response.setMessage("Read position recorded");
+
+        return ResponseEntity.accepted().body(response);
+    }
+
     @Operation(summary = "Get Chat History")
     @GetMapping
     public ResponseEntity<List<MessageModel>> getMessages(
@@ -43,4 +84,37 @@ public class MessageController {
         List<MessageModel> messageModels = messageService.getMessages(roomId, limit, offset);
         return ResponseEntity.ok(messageModels);
     }
+
+    @Operation(summary = "Export Full Chat History as NDJSON")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportMessages(@PathVariable String roomId) {
+        // Checked before streaming starts so a missing room still gets a proper 404
+        if (!chatRoomService.isRoomExists(roomId)) {
+            throw new ChatRoomNotFoundException("Chat room '" + roomId + "' does not exist");
+        }
+
+        StreamingResponseBody body = outputStream -> messageService.exportMessages(roomId, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + roomId + ".ndjson\"")
+                .body(body);
+    }
+
+    @Operation(summary = "Get Chat History Older Than a Message")
+    @GetMapping(params = "before")
+    public ResponseEntity<MessagePageResponse> getMessagesBefore(
+            @PathVariable String roomId,
+            @RequestParam String before,
+            @RequestParam(required = false, defaultValue = "50") @Min(value = 1, message = "Limit must be at least 1") @Max(value = 100, message = "Limit cannot exceed 100") Integer limit) {
+        return ResponseEntity.ok(messageService.getMessagesBefore(roomId, before, limit));
+    }
+
+    @Operation(summary = "Get Chat History Newer Than a Message")
+    @GetMapping(params = {"after", "!before"})
+    public ResponseEntity<MessagePageResponse> getMessagesAfter(
+            @PathVariable String roomId,
+            @RequestParam String after,
+            @RequestParam(required = false, defaultValue = "50") @Min(value = 1, message = "Limit must be at least 1") @Max(value = 100, message = "Limit cannot exceed 100") Integer limit) {
+        return ResponseEntity.ok(messageService.getMessagesAfter(roomId, after, limit));
+    }
 }
@@ -0,0 +1,36 @@
+package ai.freightfox.chat.app.controller;
+
+import ai.freightfox.chat.app.dto.response.RoomOutboundStatsResponse;
+import ai.freightfox.chat.app.dto.response.WriteCoalescerStatsResponse;
+import ai.freightfox.chat.app.service.MessageWriteCoalescer;
+import ai.freightfox.chat.app.service.WebSocketSessionManager;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    @Autowired
+    private WebSocketSessionManager sessionManager;
+
+    @Autowired
+    private MessageWriteCoalescer messageWriteCoalescer;
+
+    @Operation(summary = "Outbound queue depth and drop counters of a room on this pod")
+    @GetMapping("/rooms/{roomId}/outbound")
+    public ResponseEntity<RoomOutboundStatsResponse> getRoomOutboundStats(@PathVariable String roomId) {
+        return ResponseEntity.ok(sessionManager.getRoomOutboundStats(roomId));
+    }
+
+    @Operation(summary = "Batch size and wait time histograms of the message write coalescer on this pod")
+    @GetMapping("/message-writes")
+    public ResponseEntity<WriteCoalescerStatsResponse> getMessageWriteStats() {
+        return ResponseEntity.ok(messageWriteCoalescer.getStats());
+    }
+}
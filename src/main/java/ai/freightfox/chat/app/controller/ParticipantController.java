@@ -0,0 +1,42 @@
+package ai.freightfox.chat.app.controller;
+
+import ai.freightfox.chat.app.dto.response.ParticipantRoomsResponse;
+import ai.freightfox.chat.app.dto.response.UnreadCountsResponse;
+import ai.freightfox.chat.app.service.ParticipantService;
+import ai.freightfox.chat.app.service.ReadCursorService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/chatapp/participants/")
+public class ParticipantController {
+
+    @Autowired
+    private ParticipantService participantService;
+
+    @Autowired
+    private ReadCursorService readCursorService;
+
+    // Rooms the participant has joined, most recently active first, each with its newest message
+    @Operation(summary = "Get Participant Rooms")
+    @GetMapping(value = "{participant}/rooms")
+    public ResponseEntity<ParticipantRoomsResponse> getParticipantRooms(@PathVariable String participant){
+        return ResponseEntity.ok(participantService.getParticipantRooms(participant));
+    }
+
+    // Unread counts of the listed rooms, or of every room the participant has joined when none are given
+    @Operation(summary = "Get Unread Counts")
+    @GetMapping(value = "{participant}/unread")
+    public ResponseEntity<UnreadCountsResponse> getUnreadCounts(@PathVariable String participant,
+                                                                @RequestParam(required = false) List<String> rooms){
+        return ResponseEntity.ok(readCursorService.getUnreadCounts(participant, rooms));
+    }
+}
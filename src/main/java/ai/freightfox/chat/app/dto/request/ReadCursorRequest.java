@@ -0,0 +1,14 @@
+package ai.freightfox.chat.app.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadCursorRequest {
+    private String participant;
+    // Id of the newest message the participant has seen
+    private String messageId;
+}
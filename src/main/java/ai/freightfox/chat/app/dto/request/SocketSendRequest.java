@@ -0,0 +1,21 @@
+package ai.freightfox.chat.app.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Inbound /ws frame; room and participant come from the authenticated session, not from the frame
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SocketSendRequest {
+    public static final String TYPE_TYPING = "typing";
+
+    // Absent for messages; "typing" frames carry only the typing flag and are never stored or acked
+    private String type;
+    // Echoed back in the ack so the client can match it to its send
+    private String correlationId;
+    private String message;
+    // For typing frames: false when the participant stopped typing
+    private Boolean typing;
+}
@@ -0,0 +1,17 @@
+package ai.freightfox.chat.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchMembershipResponse {
+    private int changed;
+    private int unchanged;
+    private int rejected;
+    private List<BatchMembershipResult> results;
+}
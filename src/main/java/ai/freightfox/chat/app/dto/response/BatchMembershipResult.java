@@ -0,0 +1,31 @@
+package ai.freightfox.chat.app.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchMembershipResult {
+    // Position of the participant in the request array
+    private int index;
+    private String participant;
+    // Success when the membership changed, Unchanged when the participant already was (join) or was not (leave) a member
+    private String status;
+    private String error;
+
+    public static BatchMembershipResult success(int index, String participant) {
+        return new BatchMembershipResult(index, participant, "Success", null);
+    }
+
+    public static BatchMembershipResult unchanged(int index, String participant) {
+        return new BatchMembershipResult(index, participant, "Unchanged", null);
+    }
+
+    public static BatchMembershipResult failure(int index, String participant, String error) {
+        return new BatchMembershipResult(index, participant, "Failed", error);
+    }
+}
@@ -0,0 +1,26 @@
+package ai.freightfox.chat.app.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchMessageResult {
+    // Position of the message in the request array
+    private int index;
+    private String status;
+    private String messageId;
+    private String error;
+
+    public static BatchMessageResult success(int index, String messageId) {
+        return new BatchMessageResult(index, "Success", messageId, null);
+    }
+
+    public static BatchMessageResult failure(int index, String error) {
+        return new BatchMessageResult(index, "Failed", null, error);
+    }
+}
@@ -0,0 +1,19 @@
+package ai.freightfox.chat.app.dto.response;
+
+import ai.freightfox.chat.app.model.MessageModel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessagePageResponse {
+    // Oldest first, like the other history endpoints
+    private List<MessageModel> messages;
+    // Pass back as before/after to continue in the same direction; null when there is nothing more
+    private String nextCursor;
+    private boolean hasMore;
+}
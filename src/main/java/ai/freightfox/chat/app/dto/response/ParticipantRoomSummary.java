@@ -0,0 +1,19 @@
+package ai.freightfox.chat.app.dto.response;
+
+import ai.freightfox.chat.app.model.MessageModel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParticipantRoomSummary {
+    private String roomName;
+    private Instant lastActivityAt;
+    private long messageCount;
+    // Null when nothing has been sent to the room yet
+    private MessageModel lastMessage;
+}
@@ -0,0 +1,16 @@
+package ai.freightfox.chat.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParticipantRoomsResponse {
+    private String participant;
+    // Most recently active first
+    private List<ParticipantRoomSummary> rooms;
+}
@@ -0,0 +1,19 @@
+package ai.freightfox.chat.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceResponse {
+    private String roomName;
+    // Distinct participants with at least one open socket on any pod, sorted by name
+    private int onlineCount;
+    private List<String> participants;
+    // Pods currently holding sockets for the room
+    private int pods;
+}
@@ -0,0 +1,17 @@
+package ai.freightfox.chat.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Control frame sent once the missed messages of a resumed socket have been replayed; live messages follow it
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumeStatusFrame {
+    private final String type = "resume";
+    private int replayed;
+    // False when more messages were missed than the replay limit; fetch the rest with GET .../messages?after=nextCursor
+    private boolean complete;
+    private String nextCursor;
+}
@@ -0,0 +1,17 @@
+package ai.freightfox.chat.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomListResponse {
+    private List<RoomSummary> rooms;
+    // Pass back as cursor to read the next page; a page can hold fewer rooms than requested when a prefix is given
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,16 @@
+package ai.freightfox.chat.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomOutboundStatsResponse {
+    private String roomName;
+    private int localSessions;
+    private long queuedMessages;
+    private long droppedMessages;
+    private long slowConsumerDisconnects;
+}
@@ -0,0 +1,19 @@
+package ai.freightfox.chat.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomSummary {
+    private String roomName;
+    private Instant createdAt;
+    // Time of the last message sent, or the creation time for rooms nobody has written to yet
+    private Instant lastActivityAt;
+    private long participantCount;
+    private long messageCount;
+}
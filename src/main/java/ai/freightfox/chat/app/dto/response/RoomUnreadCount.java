@@ -0,0 +1,17 @@
+package ai.freightfox.chat.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomUnreadCount {
+    private String roomName;
+    private long unreadCount;
+    // Null when the participant has not read anything in the room
+    private String lastReadMessageId;
+    // The stream store counts unread messages up to a limit; true means there are at least unreadCount
+    private boolean capped;
+}
@@ -0,0 +1,27 @@
+package ai.freightfox.chat.app.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Reply to a message sent over /ws; acks of one socket arrive in the order its sends were received
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SendAckFrame {
+    private String type;
+    private String correlationId;
+    private String status;
+    private String messageId;
+    private String error;
+
+    public static SendAckFrame success(String correlationId, String messageId) {
+        return new SendAckFrame("ack", correlationId, "Success", messageId, null);
+    }
+
+    public static SendAckFrame failure(String correlationId, String error) {
+        return new SendAckFrame("ack", correlationId, "Failed", null, error);
+    }
+}
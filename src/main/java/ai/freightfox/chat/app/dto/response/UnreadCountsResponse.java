@@ -0,0 +1,15 @@
+package ai.freightfox.chat.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCountsResponse {
+    private String participant;
+    private List<RoomUnreadCount> rooms;
+}
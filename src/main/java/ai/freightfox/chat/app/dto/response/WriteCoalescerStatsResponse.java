@@ -0,0 +1,22 @@
+package ai.freightfox.chat.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WriteCoalescerStatsResponse {
+    private boolean enabled;
+    private long batches;
+    private long messages;
+    private double averageBatchSize;
+    private Map<String, Long> batchSizeHistogram;
+    // Time from enqueue until the batch holding the message was sent to Redis
+    private long waitMicrosP50;
+    private long waitMicrosP99;
+    private Map<String, Long> waitMicrosHistogram;
+}
@@ -4,6 +4,7 @@ import ai.freightfox.chat.app.dto.response.ApiErrorResponse;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -56,6 +57,22 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(apiErrorResponse, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ApiErrorResponse> handleRateLimitExceeded(
+            RateLimitExceededException ex,
+            HttpServletRequest request) {
+
+        ApiErrorResponse apiErrorResponse = new ApiErrorResponse(
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, ex.getRetryAfterSeconds())))
+                .body(apiErrorResponse);
+    }
+
     @ExceptionHandler(RedisOperationException.class)
     public ResponseEntity<ApiErrorResponse> handleRedisOperation(
             RedisOperationException ex,
@@ -0,0 +1,16 @@
+package ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers;
+
+public class RateLimitExceededException extends RuntimeException {
+
+    // Sent back as Retry-After
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,18 @@
+package ai.freightfox.chat.app.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Everything the send script needs to validate, store and publish one message
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSendCommand {
+    private String roomHashKey;
+    private String participantRoomHashKey;
+    private String chatRoomKey;
+    private String channelKey;
+    private String participant;
+    private byte[] payload;
+}
@@ -0,0 +1,27 @@
+package ai.freightfox.chat.app.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSendResult {
+    private long code;
+    private String messageId;
+
+    // Send scripts return {code} on failure or {code, id} on success
+    public static MessageSendResult fromScriptResult(List<?> result) {
+        long code = (Long) result.get(0);
+        String messageId = result.size() > 1 ? toText(result.get(1)) : null;
+        return new MessageSendResult(code, messageId);
+    }
+
+    private static String toText(Object value) {
+        return value instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+}
@@ -0,0 +1,19 @@
+package ai.freightfox.chat.app.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// One room of a participant as read from the reverse membership index
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParticipantRoomEntry {
+    private String roomName;
+    private Instant lastActivityAt;
+    private long messageCount;
+    // Newest message still held in Redis, or null for an empty room
+    private StoredMessage lastMessage;
+}
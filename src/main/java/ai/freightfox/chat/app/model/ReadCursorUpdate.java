@@ -0,0 +1,15 @@
+package ai.freightfox.chat.app.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A participant's new read position in one room, waiting to be written with the next batch
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadCursorUpdate {
+    private String roomName;
+    private String participant;
+    private String messageId;
+}
@@ -0,0 +1,17 @@
+package ai.freightfox.chat.app.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Room lifecycle event published to every pod on the room control channel
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomControlEvent {
+
+    public static final String ROOM_DELETED = "room-deleted";
+
+    private String type;
+    private String roomName;
+}
@@ -0,0 +1,14 @@
+package ai.freightfox.chat.app.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// An encoded message as read from the message store, with the id the store assigned to it
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredMessage {
+    private String id;
+    private byte[] payload;
+}
@@ -0,0 +1,16 @@
+package ai.freightfox.chat.app.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// The typing signals one pod collected for a room during an interval, latest per participant; true means typing
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypingUpdate {
+    private String roomName;
+    private Map<String, Boolean> signals;
+}
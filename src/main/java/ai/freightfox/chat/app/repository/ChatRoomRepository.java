@@ -1,14 +1,29 @@
 package ai.freightfox.chat.app.repository;
 
+import ai.freightfox.chat.app.dto.response.RoomListResponse;
+import ai.freightfox.chat.app.dto.response.RoomSummary;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ChatRoomNotFoundException;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RedisOperationException;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ResourceAlreadyExistException;
+import ai.freightfox.chat.app.model.ParticipantRoomEntry;
+import ai.freightfox.chat.app.model.StoredMessage;
+import ai.freightfox.chat.app.util.RedisKeyUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -19,10 +34,44 @@ public class ChatRoomRepository {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    // Room index members are plain room names, not JSON values, so the indexes go through the raw byte template
+    @Autowired
+    private RedisTemplate<String, byte[]> messageRedisTemplate;
+
+    @Autowired
+    private GenericJackson2JsonRedisSerializer redisValueSerializer;
+
+    @Autowired
+    private RedisScript<List> listRoomsScript;
+
+    @Autowired
+    private RedisScript<List> updateMembershipScript;
+
+    @Autowired
+    private RedisScript<List> participantRoomsScript;
+
+    @Autowired
+    private RedisScript<Long> deleteRoomScript;
+
+    @Autowired
+    private RedisScript<List> reclaimRoomDataScript;
+
+    @Value("${chat.message-store.type:list}")
+    private String messageStoreType;
+
     public void saveChatRoom(String chatRoomName, LocalDateTime createdAt, String hashKey){
         try {
             redisTemplate.opsForHash().put(hashKey, "createdAt", createdAt);
             redisTemplate.opsForHash().put(hashKey, "roomName", chatRoomName);
+
+            // A new room counts as active from its creation until the first message moves it
+            double createdAtMillis = createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            byte[] member = bytes(chatRoomName);
+            messageRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.zSetCommands().zAdd(bytes(RedisKeyUtil.getRoomCreatedIndexKey()), createdAtMillis, member);
+                connection.zSetCommands().zAdd(bytes(RedisKeyUtil.getRoomActivityIndexKey()), createdAtMillis, member);
+                return null;
+            });
         } catch (Exception e) {
             log.error("Redis operation failed for saveChatRoom: {}", e.getMessage());
             throw new RedisOperationException("Failed to create chat room", e);
@@ -47,34 +96,30 @@ public class ChatRoomRepository {
         }
     }
 
+    // SADD's reply tells whether the participant was new, so the room check and the add are a single script call
     public void joinChatRoom(String roomName, String participantName, String  participantRoomHashKey, String roomHashKey){
-        try {
-            if(!Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(participantRoomHashKey, participantName))){
-                redisTemplate.opsForSet().add(participantRoomHashKey, participantName);
-            } else {
-                throw new ResourceAlreadyExistException("User already in room");
-            }
-        } catch (ResourceAlreadyExistException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("Redis operation failed for addParticipant: {}", e.getMessage());
-            throw new RedisOperationException("Failed to add participant to room", e);
+        if (!addParticipants(roomName, participantRoomHashKey, roomHashKey, List.of(participantName)).get(0)) {
+            throw new ResourceAlreadyExistException("User already in room");
         }
     }
 
     public boolean removeParticipant(String participantName, String roomName, String participantRoomHashKey, String roomHashKey){
-        try {
-            if(Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(participantRoomHashKey, participantName))){
-                redisTemplate.opsForSet().remove(participantRoomHashKey, participantName);
-                log.info("Participant: {} removed from room: {}",participantName, roomName);
-                return true;
-            }
-            log.info("Participant :{}  does not exist in room :{}", participantName, roomName);
-            return false;
-        } catch (Exception e) {
-            log.error("Redis operation failed for removeParticipant: {}", e.getMessage());
-            throw new RedisOperationException("Failed to remove participant from room", e);
+        if (removeParticipants(roomName, participantRoomHashKey, roomHashKey, List.of(participantName)).get(0)) {
+            log.info("Participant: {} removed from room: {}",participantName, roomName);
+            return true;
         }
+        log.info("Participant :{}  does not exist in room :{}", participantName, roomName);
+        return false;
+    }
+
+    // Per participant, in order: true when it was not yet a member and has been added
+    public List<Boolean> addParticipants(String roomName, String participantRoomHashKey, String roomHashKey, List<String> participantNames){
+        return updateMembership("join", roomName, participantRoomHashKey, roomHashKey, participantNames);
+    }
+
+    // Per participant, in order: true when it was a member and has been removed
+    public List<Boolean> removeParticipants(String roomName, String participantRoomHashKey, String roomHashKey, List<String> participantNames){
+        return updateMembership("leave", roomName, participantRoomHashKey, roomHashKey, participantNames);
     }
 
     public Set<Object> getParticipants(String roomName, String participantRoomHashKey) {
@@ -95,15 +140,74 @@ public class ChatRoomRepository {
         }
     }
 
-    public void removeRemoveRoomData(String roomKey, String participantRoomKey, String messageRoomKey){
-        try{
-            redisTemplate.delete(Arrays.asList(roomKey, participantRoomKey, messageRoomKey));
-        }catch (Exception e){
+    // One SMISMEMBER for any number of participants
+    public Map<Object, Boolean> areParticipantsInRoom(String participantRoomHashKey, Collection<String> participants) {
+        try {
+            return redisTemplate.opsForSet().isMember(participantRoomHashKey, participants.toArray());
+        } catch (Exception e) {
+            log.error("Redis operation failed for areParticipantsInRoom: {}", e.getMessage());
+            throw new RedisOperationException("Failed to check participant membership", e);
+        }
+    }
+
+    // Deletes the room in one script call and publishes controlEvent; false when the room does not exist
+    public boolean deleteRoom(String roomName, String reclaimKey, String controlEvent){
+        try {
+            String messageRoomKey = RedisKeyUtil.getMessageRoomKey(roomName);
+            Long result = messageRedisTemplate.execute(deleteRoomScript,
+                    List.of(RedisKeyUtil.getRoomHashKey(roomName), RedisKeyUtil.getParticipantRoomHashKey(roomName),
+                            messageRoomKey, RedisKeyUtil.getTrimmedCountKey(messageRoomKey),
+                            RedisKeyUtil.getRoomCreatedIndexKey(), RedisKeyUtil.getRoomActivityIndexKey(),
+                            RedisKeyUtil.getRoomReclaimSetKey(), reclaimKey, RedisKeyUtil.getRoomControlChannelKey()),
+                    bytes(roomName), bytes(controlEvent), bytes(Long.toString(System.currentTimeMillis())),
+                    bytes(RedisKeyUtil.getParticipantKeyPrefix()), bytes(RedisKeyUtil.getReadCursorsKeySuffix()),
+                    bytes(RedisKeyUtil.getParticipantRoomsKeySuffix()));
+            return result != null && result == 1L;
+        } catch (Exception e) {
             log.error("Redis operation failed for deleteRoom: {}", e.getMessage());
             throw new RedisOperationException("Failed to Delete Chat Room Data", e);
         }
     }
 
+    // Oldest histories of deleted rooms that still hold entries
+    public List<String> getPendingReclaims(int limit){
+        try {
+            Set<byte[]> reclaimKeys = messageRedisTemplate.opsForZSet().range(RedisKeyUtil.getRoomReclaimSetKey(), 0, limit - 1);
+            List<String> pending = new ArrayList<>();
+            if (reclaimKeys != null) {
+                reclaimKeys.forEach(reclaimKey -> pending.add(asString(reclaimKey)));
+            }
+            return pending;
+        } catch (Exception e) {
+            log.error("Redis operation failed for getPendingReclaims: {}", e.getMessage());
+            throw new RedisOperationException("Failed to read deleted room data", e);
+        }
+    }
+
+    // Trims one chunk off each history in one pipelined round trip
+    public void reclaimChunks(List<String> reclaimKeys, int chunkSize){
+        if (reclaimKeys.isEmpty()) {
+            return;
+        }
+        try {
+            byte[] reclaimSetKey = bytes(RedisKeyUtil.getRoomReclaimSetKey());
+            byte[] chunk = bytes(Integer.toString(chunkSize));
+            List<byte[][]> invocations = new ArrayList<>(reclaimKeys.size());
+            for (String reclaimKey : reclaimKeys) {
+                invocations.add(new byte[][]{bytes(reclaimKey), reclaimSetKey, chunk});
+            }
+
+            for (Object result : ScriptPipeline.evalShaPipelined(messageRedisTemplate, reclaimRoomDataScript, 2, invocations)) {
+                if (result instanceof Exception failure) {
+                    throw failure;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Redis operation failed for reclaimChunks: {}", e.getMessage());
+            throw new RedisOperationException("Failed to reclaim deleted room data", e);
+        }
+    }
+
     public long getParticipantCount(String participantRoomHashKey) {
         try {
             return redisTemplate.opsForSet().size(participantRoomHashKey);
@@ -113,4 +217,118 @@ public class ChatRoomRepository {
         }
     }
 
+    // One page of the directory in a single script call; cursorName is empty on the first page
+    public RoomListResponse listRooms(String indexKey, String cursorScore, String cursorName, int limit, String prefix, int maxScan) {
+        try {
+            List<?> result = messageRedisTemplate.execute(listRoomsScript,
+                    List.of(indexKey, RedisKeyUtil.getRoomCreatedIndexKey(), RedisKeyUtil.getRoomActivityIndexKey()),
+                    bytes(cursorScore), bytes(cursorName), bytes(Integer.toString(limit)), bytes(prefix),
+                    bytes(messageStoreType), bytes(Integer.toString(maxScan)));
+            if (result == null || result.size() < 3) {
+                throw new RedisOperationException("List rooms script returned no result");
+            }
+
+            List<RoomSummary> rooms = new ArrayList<>();
+            for (int i = 3; i + 4 < result.size(); i += 5) {
+                rooms.add(new RoomSummary(asString(result.get(i)), toInstant(result.get(i + 1)), toInstant(result.get(i + 2)),
+                        (Long) result.get(i + 3), (Long) result.get(i + 4)));
+            }
+
+            String lastScore = asString(result.get(1));
+            String nextCursor = lastScore.isEmpty() ? null : lastScore + ":" + asString(result.get(2));
+            return new RoomListResponse(rooms, nextCursor, (Long) result.get(0) == 1L);
+        } catch (RedisOperationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Redis operation failed for listRooms: {}", e.getMessage());
+            throw new RedisOperationException("Failed to list chat rooms", e);
+        }
+    }
+
+    // Names only, from the reverse membership index
+    public List<String> getParticipantRoomNames(String participantName) {
+        try {
+            Set<byte[]> roomNames = messageRedisTemplate.opsForSet().members(RedisKeyUtil.getParticipantRoomsKey(participantName));
+            List<String> rooms = new ArrayList<>();
+            if (roomNames != null) {
+                roomNames.forEach(roomName -> rooms.add(asString(roomName)));
+            }
+            return rooms;
+        } catch (Exception e) {
+            log.error("Redis operation failed for getParticipantRoomNames: {}", e.getMessage());
+            throw new RedisOperationException("Failed to retrieve participant rooms", e);
+        }
+    }
+
+    // Every room of the participant with its newest stored message, in one script call
+    public List<ParticipantRoomEntry> getParticipantRooms(String participantName) {
+        try {
+            List<?> result = messageRedisTemplate.execute(participantRoomsScript,
+                    List.of(RedisKeyUtil.getParticipantRoomsKey(participantName), RedisKeyUtil.getRoomActivityIndexKey()),
+                    redisValueSerializer.serialize(participantName), bytes(messageStoreType));
+            List<ParticipantRoomEntry> rooms = new ArrayList<>();
+            if (result == null) {
+                return rooms;
+            }
+
+            for (int i = 0; i + 4 < result.size(); i += 5) {
+                String lastMessageId = asString(result.get(i + 3));
+                StoredMessage lastMessage = lastMessageId.isEmpty() ? null : new StoredMessage(lastMessageId, (byte[]) result.get(i + 4));
+                rooms.add(new ParticipantRoomEntry(asString(result.get(i)), toInstant(result.get(i + 1)), (Long) result.get(i + 2), lastMessage));
+            }
+            return rooms;
+        } catch (Exception e) {
+            log.error("Redis operation failed for getParticipantRooms: {}", e.getMessage());
+            throw new RedisOperationException("Failed to retrieve participant rooms", e);
+        }
+    }
+
+    private List<Boolean> updateMembership(String operation, String roomName, String participantRoomHashKey, String roomHashKey,
+                                           List<String> participantNames){
+        try {
+            // Participant sets are written through the JSON value serializer, so members are encoded the same way
+            List<String> keys = new ArrayList<>(participantNames.size() + 2);
+            keys.add(roomHashKey);
+            keys.add(participantRoomHashKey);
+            byte[][] args = new byte[participantNames.size() + 2][];
+            args[0] = bytes(operation);
+            args[1] = bytes(roomName);
+            for (int i = 0; i < participantNames.size(); i++) {
+                keys.add(RedisKeyUtil.getParticipantRoomsKey(participantNames.get(i)));
+                args[i + 2] = redisValueSerializer.serialize(participantNames.get(i));
+            }
+
+            List<?> result = messageRedisTemplate.execute(updateMembershipScript, keys, (Object[]) args);
+            if (result == null || result.isEmpty()) {
+                throw new RedisOperationException("Membership script returned no result");
+            }
+            if ((Long) result.get(0) < 0) {
+                throw new ChatRoomNotFoundException("Chat room '" + roomName + "' does not exist");
+            }
+
+            List<Boolean> changed = new ArrayList<>(participantNames.size());
+            for (int i = 1; i < result.size(); i++) {
+                changed.add((Long) result.get(i) == 1L);
+            }
+            return changed;
+        } catch (ChatRoomNotFoundException | RedisOperationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Redis operation failed for updateMembership: {}", e.getMessage());
+            throw new RedisOperationException("Failed to update room membership", e);
+        }
+    }
+
+    private static Instant toInstant(Object score) {
+        String value = asString(score);
+        return value.isEmpty() ? null : Instant.ofEpochMilli((long) Double.parseDouble(value));
+    }
+
+    private static String asString(Object value) {
+        return value instanceof byte[] raw ? new String(raw, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
 }
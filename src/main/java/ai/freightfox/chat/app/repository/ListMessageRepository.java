@@ -0,0 +1,330 @@
+package ai.freightfox.chat.app.repository;
+
+import ai.freightfox.chat.app.archive.MessageArchive;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.BadRequestException;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RedisOperationException;
+import ai.freightfox.chat.app.model.MessageSendCommand;
+import ai.freightfox.chat.app.model.MessageSendResult;
+import ai.freightfox.chat.app.model.StoredMessage;
+import ai.freightfox.chat.app.util.RedisKeyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+// Stores history as a Redis list; a message id is its absolute position in the room history.
+// With a hot cap set, the oldest entries are spilled to the on-disk MessageArchive and trimmed from the list,
+// and chatroom:{room}:messages:trimmed counts how many left so positions stay stable.
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "chat.message-store.type", havingValue = "list", matchIfMissing = true)
+public class ListMessageRepository implements MessageRepository {
+
+    private static final Duration SPILL_LOCK_TTL = Duration.ofSeconds(30);
+
+    @Autowired
+    private RedisTemplate<String, byte[]> messageRedisTemplate;
+
+    @Autowired
+    private GenericJackson2JsonRedisSerializer redisValueSerializer;
+
+    @Autowired
+    private RedisScript<List> sendMessageScript;
+
+    @Autowired
+    private RedisScript<List> readMessagesScript;
+
+    @Autowired
+    private RedisScript<Long> trimMessagesScript;
+
+    @Autowired
+    private RedisScript<Long> releaseLockScript;
+
+    @Autowired
+    private MessageArchive messageArchive;
+
+    @Autowired
+    private Executor historySpillExecutor;
+
+    // Messages kept in Redis per room; 0 disables spilling
+    @Value("${chat.message-store.hot-cap:0}")
+    private long hotCap;
+
+    // A spill starts once the list holds hot-cap + spill-batch-size entries, and moves at most this many per step
+    @Value("${chat.message-store.archive.spill-batch-size:1000}")
+    private int spillBatchSize;
+
+    private final Set<String> pendingSpills = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public MessageSendResult sendChat(String roomHashKey, String participantRoomHashKey, String chatRoomKey, String channelKey,
+                                      String participant, byte[] payload) {
+        MessageSendResult sendResult;
+        long length;
+        try {
+            // Participant sets are written through the JSON value serializer, so the member is encoded the same way
+            byte[] participantMember = redisValueSerializer.serialize(participant);
+            List<?> result = messageRedisTemplate.execute(sendMessageScript,
+                    List.of(roomHashKey, participantRoomHashKey, chatRoomKey, channelKey, RedisKeyUtil.getTrimmedCountKey(chatRoomKey),
+                            RedisKeyUtil.getRoomActivityIndexKey()),
+                    participantMember, payload);
+            if (result == null || result.isEmpty()) {
+                throw new RedisOperationException("Send message script returned no result");
+            }
+            sendResult = MessageSendResult.fromScriptResult(result);
+            length = result.size() > 2 ? (Long) result.get(2) : 0;
+        } catch (RedisOperationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Redis operation failed for sendChat: {}", e.getMessage());
+            throw new RedisOperationException("Failed to send message", e);
+        }
+
+        if (hotCap > 0 && length >= hotCap + spillBatchSize && messageArchive.isWritable()) {
+            requestSpill(chatRoomKey);
+        }
+        return sendResult;
+    }
+
+    @Override
+    public List<MessageSendResult> sendChatBatch(List<MessageSendCommand> commands) {
+        List<Object> results;
+        try {
+            List<byte[][]> invocations = new ArrayList<>(commands.size());
+            for (MessageSendCommand command : commands) {
+                invocations.add(new byte[][]{
+                        bytes(command.getRoomHashKey()), bytes(command.getParticipantRoomHashKey()), bytes(command.getChatRoomKey()),
+                        bytes(command.getChannelKey()), bytes(RedisKeyUtil.getTrimmedCountKey(command.getChatRoomKey())),
+                        bytes(RedisKeyUtil.getRoomActivityIndexKey()),
+                        redisValueSerializer.serialize(command.getParticipant()), command.getPayload()});
+            }
+            results = ScriptPipeline.evalShaPipelined(messageRedisTemplate, sendMessageScript, 6, invocations);
+        } catch (Exception e) {
+            log.error("Redis operation failed for sendChatBatch: {}", e.getMessage());
+            throw new RedisOperationException("Failed to send message batch", e);
+        }
+
+        List<MessageSendResult> sendResults = new ArrayList<>(commands.size());
+        Map<String, Long> longestLists = new HashMap<>();
+        for (int i = 0; i < commands.size(); i++) {
+            Object result = i < results.size() ? results.get(i) : null;
+            if (result instanceof List<?> scriptResult && !scriptResult.isEmpty()) {
+                sendResults.add(MessageSendResult.fromScriptResult(scriptResult));
+                if (scriptResult.size() > 2) {
+                    longestLists.merge(commands.get(i).getChatRoomKey(), (Long) scriptResult.get(2), Math::max);
+                }
+            } else {
+                log.error("Redis operation failed for sendChatBatch entry: {}", result);
+                sendResults.add(new MessageSendResult(SEND_ERROR, null));
+            }
+        }
+
+        if (hotCap > 0 && messageArchive.isWritable()) {
+            longestLists.forEach((chatRoomKey, length) -> {
+                if (length >= hotCap + spillBatchSize) {
+                    requestSpill(chatRoomKey);
+                }
+            });
+        }
+        return sendResults;
+    }
+
+    @Override
+    public List<StoredMessage> getLastNMessages(String chatRoomKey, int limit) {
+        try {
+            HotRange hot = readRange(chatRoomKey, -limit, -1, false);
+            int missing = limit - hot.messages.size();
+            if (missing <= 0 || hot.trimmed == 0) {
+                return hot.messages;
+            }
+            // The hot list is shorter than the request; the rest comes from the archive
+            List<StoredMessage> messages = messageArchive.read(chatRoomKey, Math.max(0, hot.trimmed - missing), hot.trimmed - 1);
+            messages.addAll(hot.messages);
+            return messages;
+        } catch (Exception e) {
+            log.error("Redis operation failed for getLastNMessages: {}", e.getMessage());
+            throw new RedisOperationException("Failed to retrieve last N messages", e);
+        }
+    }
+
+    @Override
+    public List<StoredMessage> getAllMessages(String chatRoomKey) {
+        try {
+            return readAbsolute(chatRoomKey, 0, Long.MAX_VALUE);
+        } catch (Exception e) {
+            log.error("Redis operation failed for getAllMessages: {}", e.getMessage());
+            throw new RedisOperationException("Failed to retrieve all messages", e);
+        }
+    }
+
+    @Override
+    public List<StoredMessage> getMessagesWithPagination(String chatRoomKey, int limit, int offset) {
+        try {
+            return readAbsolute(chatRoomKey, offset, (long) offset + limit - 1);
+        } catch (Exception e) {
+            log.error("Redis operation failed for getMessagesWithPagination: {}", e.getMessage());
+            throw new RedisOperationException("Failed to retrieve paginated messages", e);
+        }
+    }
+
+    @Override
+    public List<StoredMessage> getMessagesBefore(String chatRoomKey, String beforeId, int limit) {
+        long position = parsePosition(beforeId);
+        try {
+            if (position <= 0) {
+                return new ArrayList<>();
+            }
+            // Positions never move on append or trim, so the page stays stable while new messages arrive
+            return readAbsolute(chatRoomKey, Math.max(0, position - limit), position - 1);
+        } catch (Exception e) {
+            log.error("Redis operation failed for getMessagesBefore: {}", e.getMessage());
+            throw new RedisOperationException("Failed to retrieve messages before cursor", e);
+        }
+    }
+
+    @Override
+    public List<StoredMessage> getMessagesAfter(String chatRoomKey, String afterId, int limit) {
+        long position = parsePosition(afterId);
+        try {
+            return readAbsolute(chatRoomKey, position + 1, position + limit);
+        } catch (Exception e) {
+            log.error("Redis operation failed for getMessagesAfter: {}", e.getMessage());
+            throw new RedisOperationException("Failed to retrieve messages after cursor", e);
+        }
+    }
+
+    // Total history length, archived entries included
+    @Override
+    public long getMessageCount(String chatRoomKey) {
+        try {
+            HotRange hot = readRange(chatRoomKey, 0, -1, true);
+            return hot.trimmed + hot.length;
+        } catch (Exception e) {
+            log.error("Redis operation failed for getMessageCount: {}", e.getMessage());
+            throw new RedisOperationException("Failed to get message count", e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private long parsePosition(String messageId) {
+        try {
+            long position = Long.parseLong(messageId);
+            if (position >= 0) {
+                return position;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new BadRequestException("Invalid message cursor '" + messageId + "'");
+    }
+
+    // Reads absolute positions [from, to], taking whatever part lies below the hot window from the archive
+    private List<StoredMessage> readAbsolute(String chatRoomKey, long from, long to) {
+        HotRange hot = readRange(chatRoomKey, from, to, true);
+        if (from >= hot.trimmed) {
+            return hot.messages;
+        }
+        List<StoredMessage> messages = messageArchive.read(chatRoomKey, from, Math.min(to, hot.trimmed - 1));
+        messages.addAll(hot.messages);
+        return messages;
+    }
+
+    // Trimmed counter, length and range are read atomically so every entry's position, and therefore its id, is exact
+    private HotRange readRange(String chatRoomKey, long start, long stop, boolean absolute) {
+        List<?> result = messageRedisTemplate.execute(readMessagesScript,
+                List.of(chatRoomKey, RedisKeyUtil.getTrimmedCountKey(chatRoomKey)),
+                Long.toString(start).getBytes(StandardCharsets.UTF_8), Long.toString(stop).getBytes(StandardCharsets.UTF_8),
+                (absolute ? "1" : "0").getBytes(StandardCharsets.UTF_8));
+        HotRange range = new HotRange();
+        if (result == null || result.size() < 4) {
+            return range;
+        }
+
+        range.trimmed = (Long) result.get(0);
+        range.length = (Long) result.get(1);
+        long position = range.trimmed + (Long) result.get(2);
+        for (Object entry : (List<?>) result.get(3)) {
+            range.messages.add(new StoredMessage(Long.toString(position++), (byte[]) entry));
+        }
+        return range;
+    }
+
+    private void requestSpill(String chatRoomKey) {
+        if (!pendingSpills.add(chatRoomKey)) {
+            return;
+        }
+        historySpillExecutor.execute(() -> {
+            try {
+                spillToArchive(chatRoomKey);
+            } catch (Exception e) {
+                // The next send over the threshold retries; nothing is trimmed until the archive write succeeded
+                log.error("History spill failed for {}: {}", chatRoomKey, e.getMessage());
+            } finally {
+                pendingSpills.remove(chatRoomKey);
+            }
+        });
+    }
+
+    // Copies the head of the list to the archive (fsynced), then trims it only if no other spill moved the counter
+    void spillToArchive(String chatRoomKey) {
+        String lockKey = chatRoomKey + ":spill-lock";
+        byte[] lockToken = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        Boolean locked = messageRedisTemplate.opsForValue().setIfAbsent(lockKey, lockToken, SPILL_LOCK_TTL);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+
+        // No batch starts in the second half of the lock's lifetime, leaving the last one that half to finish its fsync
+        // and trim; whatever is left goes with the spill requested by a later send
+        long deadline = System.nanoTime() + SPILL_LOCK_TTL.toNanos() / 2;
+        try {
+            while (System.nanoTime() < deadline) {
+                HotRange head = readRange(chatRoomKey, 0, spillBatchSize - 1, false);
+                int count = (int) Math.min(head.messages.size(), head.length - hotCap);
+                if (count <= 0) {
+                    return;
+                }
+
+                List<byte[]> payloads = new ArrayList<>(count);
+                for (StoredMessage message : head.messages.subList(0, count)) {
+                    payloads.add(message.getPayload());
+                }
+                messageArchive.append(chatRoomKey, head.trimmed, payloads);
+
+                Long trimmed = messageRedisTemplate.execute(trimMessagesScript,
+                        List.of(chatRoomKey, RedisKeyUtil.getTrimmedCountKey(chatRoomKey)),
+                        Long.toString(head.trimmed).getBytes(StandardCharsets.UTF_8),
+                        Integer.toString(count).getBytes(StandardCharsets.UTF_8));
+                if (trimmed == null || trimmed == 0) {
+                    return;
+                }
+                log.debug("Spilled {} messages of {} to the archive", count, chatRoomKey);
+            }
+        } finally {
+            messageRedisTemplate.execute(releaseLockScript, List.of(lockKey), lockToken);
+        }
+    }
+
+    private static final class HotRange {
+        private long trimmed;
+        private long length;
+        private final List<StoredMessage> messages = new ArrayList<>();
+    }
+}
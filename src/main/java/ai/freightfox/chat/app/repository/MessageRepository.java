@@ -1,62 +1,37 @@
 package ai.freightfox.chat.app.repository;
 
-import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RedisOperationException;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.stereotype.Repository;
+import ai.freightfox.chat.app.model.MessageSendCommand;
+import ai.freightfox.chat.app.model.MessageSendResult;
+import ai.freightfox.chat.app.model.StoredMessage;
 
 import java.util.List;
 
-@Slf4j
-@Repository
-public class MessageRepository {
-
-    @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
-
-    public void saveChat(String chatRoomKey, String messageJson) {
-        try {
-            redisTemplate.opsForList().rightPush(chatRoomKey, messageJson);
-        } catch (Exception e) {
-            log.error("Redis operation failed for saveChat: {}", e.getMessage());
-            throw new RedisOperationException("Failed to save message", e);
-        }
-    }
-
-    public List<Object> getLastNMessages(String chatRoomKey, int limit) {
-        try {
-            return redisTemplate.opsForList().range(chatRoomKey, -limit, -1);
-        } catch (Exception e) {
-            log.error("Redis operation failed for getLastNMessages: {}", e.getMessage());
-            throw new RedisOperationException("Failed to retrieve last N messages", e);
-        }
-    }
-
-    public List<Object> getAllMessages(String chatRoomKey) {
-        try {
-            return redisTemplate.opsForList().range(chatRoomKey, 0, -1);
-        } catch (Exception e) {
-            log.error("Redis operation failed for getAllMessages: {}", e.getMessage());
-            throw new RedisOperationException("Failed to retrieve all messages", e);
-        }
-    }
-
-    public List<Object> getMessagesWithPagination(String chatRoomKey, int limit, int offset) {
-        try {
-            return redisTemplate.opsForList().range(chatRoomKey, offset, offset + limit - 1);
-        } catch (Exception e) {
-            log.error("Redis operation failed for getMessagesWithPagination: {}", e.getMessage());
-            throw new RedisOperationException("Failed to retrieve paginated messages", e);
-        }
-    }
-
-    public long getMessageCount(String chatRoomKey) {
-        try {
-            return redisTemplate.opsForList().size(chatRoomKey);
-        } catch (Exception e) {
-            log.error("Redis operation failed for getMessageCount: {}", e.getMessage());
-            throw new RedisOperationException("Failed to get message count", e);
-        }
-    }
+// Message history store; the implementation is selected with chat.message-store.type (list or stream)
+public interface MessageRepository {
+
+    // Result codes returned by the send message scripts
+    long SEND_OK = 1L;
+    long SEND_ROOM_NOT_FOUND = -1L;
+    long SEND_PARTICIPANT_NOT_IN_ROOM = -2L;
+    // The script itself failed for this entry of a batch
+    long SEND_ERROR = 0L;
+
+    MessageSendResult sendChat(String roomHashKey, String participantRoomHashKey, String chatRoomKey, String channelKey,
+                               String participant, byte[] payload);
+
+    // Runs the send script for every command in one pipelined round trip; results are in command order
+    List<MessageSendResult> sendChatBatch(List<MessageSendCommand> commands);
+
+    List<StoredMessage> getLastNMessages(String chatRoomKey, int limit);
+
+    List<StoredMessage> getAllMessages(String chatRoomKey);
+
+    List<StoredMessage> getMessagesWithPagination(String chatRoomKey, int limit, int offset);
+
+    // Keyset paging: up to limit messages strictly older / newer than the given id, oldest first
+    List<StoredMessage> getMessagesBefore(String chatRoomKey, String beforeId, int limit);
+
+    List<StoredMessage> getMessagesAfter(String chatRoomKey, String afterId, int limit);
+
+    long getMessageCount(String chatRoomKey);
 }
@@ -0,0 +1,108 @@
+package ai.freightfox.chat.app.repository;
+
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RedisOperationException;
+import ai.freightfox.chat.app.util.RedisKeyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
+@Repository
+public class PresenceRepository {
+
+    @Autowired
+    private RedisTemplate<String, byte[]> messageRedisTemplate;
+
+    @Autowired
+    private RedisScript<List> presenceHeartbeatScript;
+
+    // Refreshes this pod's entry in every given room in one pipelined round trip; participantsByRoom holds
+    // the newline-joined names connected to this pod
+    public void publishHeartbeats(String podInstanceId, Map<String, String> participantsByRoom, long ttlMillis, long nowMillis) {
+        if (participantsByRoom.isEmpty()) {
+            return;
+        }
+        try {
+            byte[] podId = bytes(podInstanceId);
+            byte[] ttl = bytes(Long.toString(ttlMillis));
+            byte[] now = bytes(Long.toString(nowMillis));
+            List<byte[][]> invocations = new ArrayList<>(participantsByRoom.size());
+            participantsByRoom.forEach((roomName, participants) -> invocations.add(new byte[][]{
+                    bytes(RedisKeyUtil.getPodPresenceKey(roomName, podInstanceId)),
+                    bytes(RedisKeyUtil.getPresenceKey(roomName)),
+                    podId, bytes(participants), ttl, now}));
+
+            for (Object result : ScriptPipeline.evalShaPipelined(messageRedisTemplate, presenceHeartbeatScript, 2, invocations)) {
+                if (result instanceof Exception failure) {
+                    throw failure;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Redis operation failed for publishHeartbeats: {}", e.getMessage());
+            throw new RedisOperationException("Failed to publish presence heartbeats", e);
+        }
+    }
+
+    // Drops this pod's entries for rooms it no longer holds sockets for
+    public void removeHeartbeats(String podInstanceId, Collection<String> roomNames) {
+        if (roomNames.isEmpty()) {
+            return;
+        }
+        try {
+            byte[] podId = bytes(podInstanceId);
+            messageRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String roomName : roomNames) {
+                    connection.keyCommands().del(bytes(RedisKeyUtil.getPodPresenceKey(roomName, podInstanceId)));
+                    connection.zSetCommands().zRem(bytes(RedisKeyUtil.getPresenceKey(roomName)), podId);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Redis operation failed for removeHeartbeats: {}", e.getMessage());
+            throw new RedisOperationException("Failed to remove presence heartbeats", e);
+        }
+    }
+
+    // Live pods of the room first, then one MGET of their entries: two commands however many sockets are connected
+    public List<String> getPodPresence(String roomName, long nowMillis) {
+        try {
+            Set<byte[]> podIds = messageRedisTemplate.opsForZSet().rangeByScore(RedisKeyUtil.getPresenceKey(roomName), nowMillis, Double.POSITIVE_INFINITY);
+            List<String> entries = new ArrayList<>();
+            if (podIds == null || podIds.isEmpty()) {
+                return entries;
+            }
+
+            List<String> podKeys = new ArrayList<>(podIds.size());
+            for (byte[] podId : podIds) {
+                podKeys.add(RedisKeyUtil.getPodPresenceKey(roomName, new String(podId, StandardCharsets.UTF_8)));
+            }
+            List<byte[]> values = messageRedisTemplate.opsForValue().multiGet(podKeys);
+            if (values != null) {
+                for (byte[] value : values) {
+                    // A pod whose entry expired after the range read simply counts as gone
+                    if (value != null) {
+                        entries.add(new String(value, StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            return entries;
+        } catch (Exception e) {
+            log.error("Redis operation failed for getPodPresence: {}", e.getMessage());
+            throw new RedisOperationException("Failed to read presence", e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,48 @@
+package ai.freightfox.chat.app.repository;
+
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RedisOperationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Repository
+public class RateLimitRepository {
+
+    @Autowired
+    private RedisTemplate<String, byte[]> messageRedisTemplate;
+
+    @Autowired
+    private RedisScript<List> reconcileRateLimitsScript;
+
+    // Adds increments.get(i) to windowKeys.get(i) in one round trip and returns the new totals in the same order
+    public List<Long> addToWindowCounters(List<String> windowKeys, List<Long> increments, long ttlSeconds) {
+        try {
+            Object[] args = new Object[increments.size() + 1];
+            args[0] = bytes(ttlSeconds);
+            for (int i = 0; i < increments.size(); i++) {
+                args[i + 1] = bytes(increments.get(i));
+            }
+
+            List<?> result = messageRedisTemplate.execute(reconcileRateLimitsScript, windowKeys, args);
+            List<Long> totals = new ArrayList<>(windowKeys.size());
+            for (Object total : result) {
+                totals.add(((Number) total).longValue());
+            }
+            return totals;
+        } catch (Exception e) {
+            log.error("Redis operation failed for addToWindowCounters: {}", e.getMessage());
+            throw new RedisOperationException("Failed to reconcile rate limits", e);
+        }
+    }
+
+    private static byte[] bytes(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,111 @@
+package ai.freightfox.chat.app.repository;
+
+import ai.freightfox.chat.app.dto.response.RoomUnreadCount;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RedisOperationException;
+import ai.freightfox.chat.app.model.ReadCursorUpdate;
+import ai.freightfox.chat.app.util.RedisKeyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Repository
+public class ReadCursorRepository {
+
+    @Autowired
+    private RedisTemplate<String, byte[]> messageRedisTemplate;
+
+    @Autowired
+    private GenericJackson2JsonRedisSerializer redisValueSerializer;
+
+    @Autowired
+    private RedisScript<List> updateReadCursorScript;
+
+    @Autowired
+    private RedisScript<List> unreadCountScript;
+
+    @Value("${chat.message-store.type:list}")
+    private String messageStoreType;
+
+    // Writes every update in one pipelined round trip; cursors only move forward, only for room members, and are
+    // clamped to the room's newest message
+    public void updateReadCursors(List<ReadCursorUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        try {
+            List<byte[][]> invocations = new ArrayList<>(updates.size());
+            for (ReadCursorUpdate update : updates) {
+                String messageRoomKey = RedisKeyUtil.getMessageRoomKey(update.getRoomName());
+                invocations.add(new byte[][]{
+                        bytes(RedisKeyUtil.getReadCursorsKey(update.getParticipant())),
+                        bytes(RedisKeyUtil.getParticipantRoomHashKey(update.getRoomName())),
+                        bytes(messageRoomKey),
+                        bytes(RedisKeyUtil.getTrimmedCountKey(messageRoomKey)),
+                        bytes(update.getRoomName()),
+                        // Participant sets are written through the JSON value serializer, so the member is encoded the same way
+                        redisValueSerializer.serialize(update.getParticipant()),
+                        bytes(update.getMessageId())});
+            }
+
+            for (Object result : ScriptPipeline.evalShaPipelined(messageRedisTemplate, updateReadCursorScript, 4, invocations)) {
+                if (result instanceof Exception failure) {
+                    throw failure;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Redis operation failed for updateReadCursors: {}", e.getMessage());
+            throw new RedisOperationException("Failed to update read cursors", e);
+        }
+    }
+
+    // One pipelined round trip for any number of rooms; pendingReadIds holds read ids this pod has not written yet
+    public List<RoomUnreadCount> getUnreadCounts(String participant, List<String> roomNames, Map<String, String> pendingReadIds,
+                                                 int maxStreamUnread) {
+        List<RoomUnreadCount> unreadCounts = new ArrayList<>(roomNames.size());
+        if (roomNames.isEmpty()) {
+            return unreadCounts;
+        }
+        try {
+            byte[] readCursorsKey = bytes(RedisKeyUtil.getReadCursorsKey(participant));
+            byte[] storeType = bytes(messageStoreType);
+            byte[] cap = bytes(Integer.toString(maxStreamUnread));
+            List<byte[][]> invocations = new ArrayList<>(roomNames.size());
+            for (String roomName : roomNames) {
+                String messageRoomKey = RedisKeyUtil.getMessageRoomKey(roomName);
+                invocations.add(new byte[][]{readCursorsKey, bytes(messageRoomKey), bytes(RedisKeyUtil.getTrimmedCountKey(messageRoomKey)),
+                        bytes(roomName), storeType, bytes(pendingReadIds.getOrDefault(roomName, "")), cap});
+            }
+
+            List<Object> results = ScriptPipeline.evalShaPipelined(messageRedisTemplate, unreadCountScript, 3, invocations);
+            boolean stream = "stream".equals(messageStoreType);
+            for (int i = 0; i < roomNames.size(); i++) {
+                if (results.get(i) instanceof Exception failure) {
+                    throw failure;
+                }
+                List<?> result = (List<?>) results.get(i);
+                long unread = (Long) result.get(0);
+                String readId = new String((byte[]) result.get(1), StandardCharsets.UTF_8);
+                unreadCounts.add(new RoomUnreadCount(roomNames.get(i), unread, readId.isEmpty() ? null : readId,
+                        stream && unread >= maxStreamUnread));
+            }
+            return unreadCounts;
+        } catch (Exception e) {
+            log.error("Redis operation failed for getUnreadCounts: {}", e.getMessage());
+            throw new RedisOperationException("Failed to get unread counts", e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,57 @@
+package ai.freightfox.chat.app.repository;
+
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Runs one Lua script many times in a single pipelined round trip using EVALSHA
+final class ScriptPipeline {
+
+    private ScriptPipeline() {
+    }
+
+    // Returns one result per invocation, in order; an invocation that failed in Redis yields its exception
+    static List<Object> evalShaPipelined(RedisTemplate<String, byte[]> template, RedisScript<?> script, int numKeys,
+                                         List<byte[][]> keysAndArgs) {
+        try {
+            return run(template, script, numKeys, keysAndArgs);
+        } catch (RedisPipelineException e) {
+            if (!isNoScript(e)) {
+                return e.getPipelineResult();
+            }
+            // Redis restarted or flushed its script cache; NOSCRIPT means nothing ran, so loading and retrying is safe
+            template.execute((RedisCallback<String>) connection ->
+                    connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8)));
+            try {
+                return run(template, script, numKeys, keysAndArgs);
+            } catch (RedisPipelineException retry) {
+                return retry.getPipelineResult();
+            }
+        }
+    }
+
+    private static List<Object> run(RedisTemplate<String, byte[]> template, RedisScript<?> script, int numKeys,
+                                    List<byte[][]> keysAndArgs) {
+        return template.executePipelined((RedisCallback<Object>) connection -> {
+            for (byte[][] invocation : keysAndArgs) {
+                connection.scriptingCommands().evalSha(script.getSha1(), ReturnType.MULTI, numKeys, invocation);
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+    }
+
+    private static boolean isNoScript(RedisPipelineException e) {
+        for (Object result : e.getPipelineResult()) {
+            if (result instanceof Exception failure && String.valueOf(failure.getMessage()).contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,192 @@
+package ai.freightfox.chat.app.repository;
+
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.BadRequestException;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RedisOperationException;
+import ai.freightfox.chat.app.model.MessageSendCommand;
+import ai.freightfox.chat.app.model.MessageSendResult;
+import ai.freightfox.chat.app.model.StoredMessage;
+import ai.freightfox.chat.app.util.RedisKeyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Stores history as a Redis stream; message ids are the server assigned entry ids
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "chat.message-store.type", havingValue = "stream")
+public class StreamMessageRepository implements MessageRepository {
+
+    // Stream entry field holding the encoded message
+    public static final String PAYLOAD_FIELD = "m";
+
+    private static final Pattern STREAM_ID_PATTERN = Pattern.compile("\\d+(-\\d+)?");
+
+    @Autowired
+    private RedisTemplate<String, byte[]> messageRedisTemplate;
+
+    @Autowired
+    private GenericJackson2JsonRedisSerializer redisValueSerializer;
+
+    @Autowired
+    private RedisScript<List> sendStreamMessageScript;
+
+    @Override
+    public MessageSendResult sendChat(String roomHashKey, String participantRoomHashKey, String chatRoomKey, String channelKey,
+                                      String participant, byte[] payload) {
+        try {
+            // Participant sets are written through the JSON value serializer, so the member is encoded the same way
+            byte[] participantMember = redisValueSerializer.serialize(participant);
+            List<?> result = messageRedisTemplate.execute(sendStreamMessageScript,
+                    List.of(roomHashKey, participantRoomHashKey, chatRoomKey, channelKey, RedisKeyUtil.getRoomActivityIndexKey()),
+                    participantMember, payload);
+            if (result == null || result.isEmpty()) {
+                throw new RedisOperationException("Send message script returned no result");
+            }
+            return MessageSendResult.fromScriptResult(result);
+        } catch (RedisOperationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Redis operation failed for sendChat: {}", e.getMessage());
+            throw new RedisOperationException("Failed to send message", e);
+        }
+    }
+
+    @Override
+    public List<MessageSendResult> sendChatBatch(List<MessageSendCommand> commands) {
+        List<Object> results;
+        try {
+            List<byte[][]> invocations = new ArrayList<>(commands.size());
+            for (MessageSendCommand command : commands) {
+                invocations.add(new byte[][]{
+                        bytes(command.getRoomHashKey()), bytes(command.getParticipantRoomHashKey()),
+                        bytes(command.getChatRoomKey()), bytes(command.getChannelKey()), bytes(RedisKeyUtil.getRoomActivityIndexKey()),
+                        redisValueSerializer.serialize(command.getParticipant()), command.getPayload()});
+            }
+            results = ScriptPipeline.evalShaPipelined(messageRedisTemplate, sendStreamMessageScript, 5, invocations);
+        } catch (Exception e) {
+            log.error("Redis operation failed for sendChatBatch: {}", e.getMessage());
+            throw new RedisOperationException("Failed to send message batch", e);
+        }
+
+        List<MessageSendResult> sendResults = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            Object result = i < results.size() ? results.get(i) : null;
+            if (result instanceof List<?> scriptResult && !scriptResult.isEmpty()) {
+                sendResults.add(MessageSendResult.fromScriptResult(scriptResult));
+            } else {
+                log.error("Redis operation failed for sendChatBatch entry: {}", result);
+                sendResults.add(new MessageSendResult(SEND_ERROR, null));
+            }
+        }
+        return sendResults;
+    }
+
+    @Override
+    public List<StoredMessage> getLastNMessages(String chatRoomKey, int limit) {
+        try {
+            // XREVRANGE + - COUNT n is O(log n + k) regardless of history depth
+            List<StoredMessage> messages = toStoredMessages(messageRedisTemplate.opsForStream()
+                    .reverseRange(chatRoomKey, Range.unbounded(), Limit.limit().count(limit)));
+            Collections.reverse(messages);
+            return messages;
+        } catch (Exception e) {
+            log.error("Redis operation failed for getLastNMessages: {}", e.getMessage());
+            throw new RedisOperationException("Failed to retrieve last N messages", e);
+        }
+    }
+
+    @Override
+    public List<StoredMessage> getAllMessages(String chatRoomKey) {
+        try {
+            return toStoredMessages(messageRedisTemplate.opsForStream().range(chatRoomKey, Range.unbounded()));
+        } catch (Exception e) {
+            log.error("Redis operation failed for getAllMessages: {}", e.getMessage());
+            throw new RedisOperationException("Failed to retrieve all messages", e);
+        }
+    }
+
+    @Override
+    public List<StoredMessage> getMessagesWithPagination(String chatRoomKey, int limit, int offset) {
+        try {
+            // Streams are not index addressable, so offset paging reads and skips the leading entries
+            List<StoredMessage> messages = toStoredMessages(messageRedisTemplate.opsForStream()
+                    .range(chatRoomKey, Range.unbounded(), Limit.limit().count(offset + limit)));
+            return messages.size() > offset ? new ArrayList<>(messages.subList(offset, messages.size())) : new ArrayList<>();
+        } catch (Exception e) {
+            log.error("Redis operation failed for getMessagesWithPagination: {}", e.getMessage());
+            throw new RedisOperationException("Failed to retrieve paginated messages", e);
+        }
+    }
+
+    @Override
+    public List<StoredMessage> getMessagesBefore(String chatRoomKey, String beforeId, int limit) {
+        validateEntryId(beforeId);
+        try {
+            // XREVRANGE key (id - COUNT n seeks straight to the cursor, so a page costs O(log n + page size)
+            List<StoredMessage> messages = toStoredMessages(messageRedisTemplate.opsForStream()
+                    .reverseRange(chatRoomKey, Range.of(Range.Bound.unbounded(), Range.Bound.exclusive(beforeId)),
+                            Limit.limit().count(limit)));
+            Collections.reverse(messages);
+            return messages;
+        } catch (Exception e) {
+            log.error("Redis operation failed for getMessagesBefore: {}", e.getMessage());
+            throw new RedisOperationException("Failed to retrieve messages before cursor", e);
+        }
+    }
+
+    @Override
+    public List<StoredMessage> getMessagesAfter(String chatRoomKey, String afterId, int limit) {
+        validateEntryId(afterId);
+        try {
+            return toStoredMessages(messageRedisTemplate.opsForStream()
+                    .range(chatRoomKey, Range.of(Range.Bound.exclusive(afterId), Range.Bound.unbounded()),
+                            Limit.limit().count(limit)));
+        } catch (Exception e) {
+            log.error("Redis operation failed for getMessagesAfter: {}", e.getMessage());
+            throw new RedisOperationException("Failed to retrieve messages after cursor", e);
+        }
+    }
+
+    @Override
+    public long getMessageCount(String chatRoomKey) {
+        try {
+            return messageRedisTemplate.opsForStream().size(chatRoomKey);
+        } catch (Exception e) {
+            log.error("Redis operation failed for getMessageCount: {}", e.getMessage());
+            throw new RedisOperationException("Failed to get message count", e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void validateEntryId(String messageId) {
+        if (messageId == null || !STREAM_ID_PATTERN.matcher(messageId).matches()) {
+            throw new BadRequestException("Invalid message cursor '" + messageId + "'");
+        }
+    }
+
+    private List<StoredMessage> toStoredMessages(List<MapRecord<String, Object, Object>> records) {
+        List<StoredMessage> messages = new ArrayList<>();
+        if (records != null) {
+            for (MapRecord<String, Object, Object> record : records) {
+                messages.add(new StoredMessage(record.getId().getValue(), (byte[]) record.getValue().get(PAYLOAD_FIELD)));
+            }
+        }
+        return messages;
+    }
+}
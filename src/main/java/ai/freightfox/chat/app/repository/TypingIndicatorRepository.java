@@ -0,0 +1,67 @@
+package ai.freightfox.chat.app.repository;
+
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RedisOperationException;
+import ai.freightfox.chat.app.model.TypingUpdate;
+import ai.freightfox.chat.app.util.RedisKeyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Repository
+public class TypingIndicatorRepository {
+
+    @Autowired
+    private RedisTemplate<String, byte[]> messageRedisTemplate;
+
+    @Autowired
+    private RedisScript<List> publishTypingScript;
+
+    // Applies every room's signals in one pipelined round trip; nothing is written to the message history.
+    // Returns per room the milliseconds until its earliest typist expires, or -1 when nobody is typing there
+    public List<Long> publishTypingUpdates(List<TypingUpdate> updates, long ttlMillis) {
+        List<Long> nextExpiries = new ArrayList<>(updates.size());
+        if (updates.isEmpty()) {
+            return nextExpiries;
+        }
+        try {
+            byte[] ttl = bytes(Long.toString(ttlMillis));
+            List<byte[][]> invocations = new ArrayList<>(updates.size());
+            for (TypingUpdate update : updates) {
+                byte[][] invocation = new byte[4 + update.getSignals().size() * 2][];
+                invocation[0] = bytes(RedisKeyUtil.getTypingKey(update.getRoomName()));
+                invocation[1] = bytes(RedisKeyUtil.getChannelKey(update.getRoomName()));
+                invocation[2] = bytes(update.getRoomName());
+                invocation[3] = ttl;
+                int i = 4;
+                for (Map.Entry<String, Boolean> signal : update.getSignals().entrySet()) {
+                    invocation[i++] = bytes(signal.getKey());
+                    invocation[i++] = bytes(signal.getValue() ? "1" : "0");
+                }
+                invocations.add(invocation);
+            }
+
+            for (Object result : ScriptPipeline.evalShaPipelined(messageRedisTemplate, publishTypingScript, 2, invocations)) {
+                if (result instanceof Exception failure) {
+                    throw failure;
+                }
+                nextExpiries.add((Long) ((List<?>) result).get(1));
+            }
+            return nextExpiries;
+        } catch (Exception e) {
+            log.error("Redis operation failed for publishTypingUpdates: {}", e.getMessage());
+            throw new RedisOperationException("Failed to publish typing updates", e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,5 +1,8 @@
 package ai.freightfox.chat.app.service;
 
+import ai.freightfox.chat.app.dto.response.BatchMembershipResponse;
+import ai.freightfox.chat.app.dto.response.BatchMembershipResult;
+import ai.freightfox.chat.app.dto.response.RoomListResponse;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.BadRequestException;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ChatRoomNotFoundException;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ResourceAlreadyExistException;
@@ -8,8 +11,14 @@ import ai.freightfox.chat.app.repository.ChatRoomRepository;
 import ai.freightfox.chat.app.util.RedisKeyUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -20,6 +29,14 @@ public class ChatRoomService {
     @Autowired
     private ChatRoomRepository chatRoomRepository;
 
+    @Autowired
+    private RoomDeletionService roomDeletionService;
+
+    @Value("${chat.membership.batch.max-size:1000}")
+    private int maxMembershipBatchSize;
+
+    @Value("${chat.room-directory.max-scan:1000}")
+    private int directoryMaxScan;
 
     public void createChatRoom(String roomName) {
         if (isRoomExists(roomName)) {
@@ -42,11 +59,8 @@ public class ChatRoomService {
         return chatRoomRepository.isRoomExist(hashKey);
     }
 
+    // The room check happens inside the same script call as the add
     public void joinChatRoom(String roomName, String participantName) {
-        if (!isRoomExists(roomName)) {
-            throw new ChatRoomNotFoundException("Chat room '" + roomName + "' does not exist");
-        }
-
         if (participantName == null || participantName.trim().isEmpty()) {
             throw new BadRequestException("Participant name cannot be empty");
         }
@@ -57,10 +71,6 @@ public class ChatRoomService {
     }
 
     public boolean removeParticipant(String roomName, String participantName) {
-        if (!isRoomExists(roomName)) {
-            throw new ChatRoomNotFoundException("Chat room '" + roomName + "' does not exist");
-        }
-
         if (participantName == null || participantName.trim().isEmpty()) {
             throw new BadRequestException("Participant name cannot be empty");
         }
@@ -70,6 +80,61 @@ public class ChatRoomService {
         return chatRoomRepository.removeParticipant(participantName.trim(), roomName, participantRoomHashKey, roomHashKey);
     }
 
+    // Adds every valid name in one script call; blank names fail individually and the rest still join
+    public BatchMembershipResponse joinChatRoom(String roomName, List<String> participantNames) {
+        return updateMembership(roomName, participantNames, true);
+    }
+
+    public BatchMembershipResponse removeParticipants(String roomName, List<String> participantNames) {
+        return updateMembership(roomName, participantNames, false);
+    }
+
+    private BatchMembershipResponse updateMembership(String roomName, List<String> participantNames, boolean join) {
+        if (participantNames == null || participantNames.isEmpty()) {
+            throw new BadRequestException("Participants cannot be empty");
+        }
+
+        if (participantNames.size() > maxMembershipBatchSize) {
+            throw new BadRequestException("A batch cannot contain more than " + maxMembershipBatchSize + " participants");
+        }
+
+        BatchMembershipResult[] results = new BatchMembershipResult[participantNames.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        List<String> validNames = new ArrayList<>();
+        for (int i = 0; i < participantNames.size(); i++) {
+            String participantName = participantNames.get(i);
+            if (participantName == null || participantName.trim().isEmpty()) {
+                results[i] = BatchMembershipResult.failure(i, participantName, "Participant name cannot be empty");
+            } else {
+                validIndexes.add(i);
+                validNames.add(participantName.trim());
+            }
+        }
+
+        int changed = 0;
+        if (!validNames.isEmpty()) {
+            String participantRoomHashKey = RedisKeyUtil.getParticipantRoomHashKey(roomName);
+            String roomHashKey = RedisKeyUtil.getRoomHashKey(roomName);
+            List<Boolean> updated = join
+                    ? chatRoomRepository.addParticipants(roomName, participantRoomHashKey, roomHashKey, validNames)
+                    : chatRoomRepository.removeParticipants(roomName, participantRoomHashKey, roomHashKey, validNames);
+
+            for (int i = 0; i < validNames.size(); i++) {
+                int index = validIndexes.get(i);
+                if (updated.get(i)) {
+                    results[index] = BatchMembershipResult.success(index, validNames.get(i));
+                    changed++;
+                } else {
+                    results[index] = BatchMembershipResult.unchanged(index, validNames.get(i));
+                }
+            }
+        }
+
+        log.info("{} {} of {} participants in room {}", join ? "Joined" : "Removed", changed, participantNames.size(), roomName);
+        int rejected = participantNames.size() - validNames.size();
+        return new BatchMembershipResponse(changed, validNames.size() - changed, rejected, Arrays.asList(results));
+    }
+
     public Set<Object> getParticipants(String roomName) {
         if (!isRoomExists(roomName)) {
             throw new ChatRoomNotFoundException("Chat room '" + roomName + "' does not exist");
@@ -92,6 +157,21 @@ public class ChatRoomService {
         return chatRoomRepository.isParticipantInRoom(participantRoomHashKey, participantName.trim());
     }
 
+    // Membership of several participants in a single round trip; names are expected to be trimmed
+    public Map<String, Boolean> getParticipantMembership(String roomName, Collection<String> participantNames) {
+        Map<String, Boolean> membership = new HashMap<>();
+        if (participantNames.isEmpty()) {
+            return membership;
+        }
+
+        String participantRoomHashKey = RedisKeyUtil.getParticipantRoomHashKey(roomName);
+        Map<Object, Boolean> result = chatRoomRepository.areParticipantsInRoom(participantRoomHashKey, participantNames);
+        for (String participantName : participantNames) {
+            membership.put(participantName, result != null && Boolean.TRUE.equals(result.get(participantName)));
+        }
+        return membership;
+    }
+
     public long getParticipantCount(String roomName) {
         String participantRoomHashKey = RedisKeyUtil.getParticipantRoomHashKey(roomName);
         return chatRoomRepository.getParticipantCount(participantRoomHashKey);
@@ -111,32 +191,48 @@ public class ChatRoomService {
         createChatRoom(roomName.trim());
     }
 
+    // Returns once the room keys are gone; the history is reclaimed in the background and every pod closes the
+    // room's sockets on the room deleted event
     public void removeRoom(String roomName){
-        String roomKey = RedisKeyUtil.getRoomHashKey(roomName);
-        String participantKey = RedisKeyUtil.getParticipantRoomHashKey(roomName);
-        String messageRoomKey = RedisKeyUtil.getMessageRoomKey(roomName);
-
-        Map<String, Boolean> keyExistence = Map.of(
-            "room", chatRoomRepository.isRoomExist(roomKey),
-            "participants", chatRoomRepository.isRoomExist(participantKey),
-            "messages", chatRoomRepository.isRoomExist(messageRoomKey)
-        );
-
-        if (!keyExistence.get("room")) {
+        if (!roomDeletionService.deleteRoom(roomName)) {
             throw new ChatRoomNotFoundException("Room '" + roomName + "' does not exist");
         }
+        log.info("Successfully deleted room {}", roomName);
+    }
 
-        boolean allKeysExist = keyExistence.values().stream().allMatch(Boolean::booleanValue);
+    // Room directory page ordered by creation time or last activity, newest first. The cursor is the opaque
+    // nextCursor of the previous page; at most max-scan index entries are examined per page when filtering by prefix.
+    public RoomListResponse listRooms(String sort, String cursor, int limit, String prefix) {
+        String indexKey;
+        if (sort == null || sort.equals("created")) {
+            indexKey = RedisKeyUtil.getRoomCreatedIndexKey();
+        } else if (sort.equals("activity")) {
+            indexKey = RedisKeyUtil.getRoomActivityIndexKey();
+        } else {
+            throw new BadRequestException("Invalid sort '" + sort + "', must be created or activity");
+        }
 
-        if (!allKeysExist) {
-            log.warn("Some keys missing for room {} - proceeding with deletion anyway: {}", roomName, keyExistence);
+        String roomPrefix = prefix == null ? "" : prefix.trim();
+        if (!roomPrefix.matches("^[a-zA-Z0-9_-]*$")) {
+            throw new BadRequestException("Invalid prefix, room names are alphanumeric, underscore, or hyphen only.");
         }
 
-        log.info("Deleting room {} - Key existence: {}", roomName, keyExistence);
-        
-        chatRoomRepository.removeRemoveRoomData(roomKey, participantKey, messageRoomKey);
-        
-        log.info("Successfully deleted room {}", roomName);
-    }
+        String cursorScore = "+inf";
+        String cursorName = "";
+        if (cursor != null && !cursor.isBlank()) {
+            int separator = cursor.indexOf(':');
+            if (separator <= 0 || separator == cursor.length() - 1) {
+                throw new BadRequestException("Invalid room cursor '" + cursor + "'");
+            }
+            cursorScore = cursor.substring(0, separator);
+            cursorName = cursor.substring(separator + 1);
+            try {
+                Double.parseDouble(cursorScore);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid room cursor '" + cursor + "'");
+            }
+        }
 
+        return chatRoomRepository.listRooms(indexKey, cursorScore, cursorName, limit, roomPrefix, directoryMaxScan);
+    }
 }
@@ -0,0 +1,194 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.dto.request.SocketSendRequest;
+import ai.freightfox.chat.app.dto.response.BatchMessageResult;
+import ai.freightfox.chat.app.dto.response.BatchSendResponse;
+import ai.freightfox.chat.app.dto.response.SendAckFrame;
+import ai.freightfox.chat.app.model.MessageModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Messages sent over /ws. The container's read loop only parses and queues a frame, so a client can pipeline sends
+// without waiting for acks. One drain task per socket writes whatever has queued up since the last round trip,
+// as a single send or one pipelined batch, which keeps each socket's messages in the order they were sent.
+@Slf4j
+@Service
+public class InboundMessageService {
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private WebSocketSessionManager sessionManager;
+
+    @Autowired
+    private SendRateLimiter sendRateLimiter;
+
+    @Autowired
+    private TypingIndicatorService typingIndicatorService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Executor inboundMessageExecutor;
+
+    // Unacknowledged sends allowed per socket; further sends are refused with a failed ack
+    @Value("${chat.websocket.inbound.max-pending:256}")
+    private int maxPending;
+
+    @Value("${chat.websocket.inbound.max-batch:64}")
+    private int maxBatch;
+
+    private final ConcurrentHashMap<String, InboundQueue> inboundQueues = new ConcurrentHashMap<>();
+
+    public void handle(WebSocketSession session, TextMessage frame) {
+        SocketSendRequest request;
+        try {
+            request = objectMapper.readValue(frame.asBytes(), SocketSendRequest.class);
+        } catch (Exception e) {
+            sendAck(session, SendAckFrame.failure(null, "Malformed message frame"));
+            return;
+        }
+
+        String roomName = (String) session.getAttributes().get("roomName");
+        String participant = (String) session.getAttributes().get("participantName");
+
+        // Typing signals only update this pod's coalescing map, so they skip the limiter and the send queue
+        if (SocketSendRequest.TYPE_TYPING.equals(request.getType())) {
+            typingIndicatorService.signal(roomName, participant, !Boolean.FALSE.equals(request.getTyping()));
+            return;
+        }
+
+        // Charged here so a flooding socket is turned away before it takes a queue slot; the write below skips the limiter
+        if (!sendRateLimiter.tryAcquire(roomName, participant)) {
+            sendAck(session, SendAckFrame.failure(request.getCorrelationId(), "Rate limit exceeded"));
+            return;
+        }
+
+        InboundQueue inboundQueue = inboundQueues.computeIfAbsent(session.getId(), id -> new InboundQueue(session));
+        if (inboundQueue.pending.incrementAndGet() > maxPending) {
+            inboundQueue.pending.decrementAndGet();
+            sendAck(session, SendAckFrame.failure(request.getCorrelationId(), "Too many unacknowledged messages"));
+            return;
+        }
+
+        // Room membership was checked at the handshake; the send script still re-checks it in the same round trip
+        inboundQueue.sends.add(new PendingSend(request.getCorrelationId(), new MessageModel(participant, request.getMessage())));
+        inboundQueue.scheduleDrain();
+    }
+
+    public void sessionClosed(WebSocketSession session) {
+        inboundQueues.remove(session.getId());
+        typingIndicatorService.signal((String) session.getAttributes().get("roomName"),
+                (String) session.getAttributes().get("participantName"), false);
+    }
+
+    private void sendAck(WebSocketSession session, SendAckFrame ack) {
+        try {
+            sessionManager.sendToSession(session, new TextMessage(objectMapper.writeValueAsBytes(ack)));
+        } catch (Exception e) {
+            log.warn("Failed to ack message for session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private static final class PendingSend {
+        private final String correlationId;
+        private final MessageModel messageModel;
+
+        private PendingSend(String correlationId, MessageModel messageModel) {
+            this.correlationId = correlationId;
+            this.messageModel = messageModel;
+        }
+    }
+
+    private final class InboundQueue {
+
+        private final WebSocketSession session;
+        private final String roomName;
+        private final Queue<PendingSend> sends = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+        private InboundQueue(WebSocketSession session) {
+            this.session = session;
+            this.roomName = (String) session.getAttributes().get("roomName");
+        }
+
+        private void scheduleDrain() {
+            if (drainScheduled.compareAndSet(false, true)) {
+                try {
+                    inboundMessageExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    drainScheduled.set(false);
+                    log.warn("Inbound drain rejected for session {}: {}", session.getId(), e.getMessage());
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                List<PendingSend> batch = new ArrayList<>();
+                PendingSend next;
+                while ((next = sends.poll()) != null) {
+                    batch.add(next);
+                    if (batch.size() >= maxBatch || sends.isEmpty()) {
+                        write(batch);
+                        pending.addAndGet(-batch.size());
+                        batch.clear();
+                    }
+                }
+            } finally {
+                drainScheduled.set(false);
+            }
+
+            // A send queued between the last poll and clearing the flag would otherwise wait for the next frame
+            if (!sends.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void write(List<PendingSend> batch) {
+            // A lone send takes the single round trip path; a backlog goes out as one pipelined batch
+            if (batch.size() == 1) {
+                PendingSend send = batch.get(0);
+                try {
+                    messageService.saveMessage(roomName, send.messageModel, false);
+                    sendAck(session, SendAckFrame.success(send.correlationId, send.messageModel.getId()));
+                } catch (Exception e) {
+                    sendAck(session, SendAckFrame.failure(send.correlationId, e.getMessage()));
+                }
+                return;
+            }
+
+            List<MessageModel> messageModels = new ArrayList<>(batch.size());
+            batch.forEach(send -> messageModels.add(send.messageModel));
+            try {
+                BatchSendResponse response = messageService.saveMessages(roomName, messageModels, false);
+                for (BatchMessageResult result : response.getResults()) {
+                    String correlationId = batch.get(result.getIndex()).correlationId;
+                    sendAck(session, result.getError() == null
+                            ? SendAckFrame.success(correlationId, result.getMessageId())
+                            : SendAckFrame.failure(correlationId, result.getError()));
+                }
+            } catch (Exception e) {
+                batch.forEach(send -> sendAck(session, SendAckFrame.failure(send.correlationId, e.getMessage())));
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ai.freightfox.chat.app.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free histogram with power-of-two buckets; bucket i counts values in (2^(i-1), 2^i]
+public class Log2Histogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public Log2Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+        int bucket = clamped <= 1 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(clamped - 1));
+        buckets[bucket].increment();
+        count.increment();
+        sum.add(clamped);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMean() {
+        long total = count.sum();
+        return total == 0 ? 0 : (double) sum.sum() / total;
+    }
+
+    // Upper bound of the bucket holding the given quantile, e.g. 0.99
+    public long getPercentile(double quantile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                return 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    // Non-empty buckets keyed by their upper bound ("<=1", "<=2", "<=4", ...)
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucketCount = buckets[i].sum();
+            if (bucketCount > 0) {
+                snapshot.put("<=" + (1L << i), bucketCount);
+            }
+        }
+        return snapshot;
+    }
+}
@@ -1,20 +1,36 @@
 package ai.freightfox.chat.app.service;
 
+import ai.freightfox.chat.app.codec.MessageCodec;
+import ai.freightfox.chat.app.dto.response.BatchMessageResult;
+import ai.freightfox.chat.app.dto.response.BatchSendResponse;
+import ai.freightfox.chat.app.dto.response.MessagePageResponse;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.BadRequestException;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ChatRoomNotFoundException;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ParticipantNotFoundException;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RateLimitExceededException;
 import ai.freightfox.chat.app.model.MessageModel;
+import ai.freightfox.chat.app.model.MessageSendCommand;
+import ai.freightfox.chat.app.model.MessageSendResult;
+import ai.freightfox.chat.app.model.StoredMessage;
 import ai.freightfox.chat.app.repository.MessageRepository;
 import ai.freightfox.chat.app.util.RedisKeyUtil;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+@Slf4j
 @Service
 public class MessageService {
 
@@ -28,33 +44,179 @@ public class MessageService {
     private ObjectMapper objectMapper;
 
     @Autowired
-    private MessagePublisherService messagePublisher;
+    private MessageCodec messageCodec;
+
+    @Autowired
+    private MessageWriteCoalescer messageWriteCoalescer;
+
+    @Autowired
+    private SendRateLimiter sendRateLimiter;
+
+    @Value("${chat.messages.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${chat.messages.export.chunk-size:500}")
+    private int exportChunkSize;
 
 
+    // Room and membership checks run inside the send script, so a send costs a single Redis round trip
     public void saveMessage(String roomName, MessageModel messageModel) {
+        saveMessage(roomName, messageModel, true);
+    }
+
+    // rateLimited=false is for callers that already charged the send to the rate limiter, such as the /ws send path
+    void saveMessage(String roomName, MessageModel messageModel, boolean rateLimited) {
 
-        validateParam(roomName, messageModel);
+        validateParam(messageModel);
 
+        // The room bucket is charged only after the script admitted the send, see below
+        String participant = messageModel.getParticipant().trim();
+        if (rateLimited && !sendRateLimiter.tryAcquireParticipant(roomName, participant)) {
+            throw new RateLimitExceededException("Participant '" + messageModel.getParticipant() + "' is sending too fast to room '" + roomName + "'",
+                    sendRateLimiter.getRetryAfterSeconds(roomName, participant));
+        }
+
+        // The message is encoded exactly once with the configured codec; the same bytes are stored and published
+        byte[] payload;
         try {
             if (messageModel.getTimestamp() == null) {
                 messageModel.setTimestamp(LocalDateTime.now());
             }
-            
-            String chatRoomKey = RedisKeyUtil.getMessageRoomKey(roomName);
-            String messageJson = objectMapper.writeValueAsString(messageModel);
-            messageRepository.saveChat(chatRoomKey, messageJson);
-
-            messagePublisher.publishMessage(roomName, messageModel);
-        } catch (JsonProcessingException e) {
+            payload = messageCodec.encode(messageModel);
+        } catch (IOException e) {
             throw new RuntimeException("Failed to save message: " + e.getMessage(), e);
         }
+
+        MessageSendResult result;
+        if (messageWriteCoalescer.isEnabled()) {
+            // Shares one pipelined round trip with other concurrent senders
+            result = messageWriteCoalescer.send(new MessageSendCommand(
+                    RedisKeyUtil.getRoomHashKey(roomName),
+                    RedisKeyUtil.getParticipantRoomHashKey(roomName),
+                    RedisKeyUtil.getMessageRoomKey(roomName),
+                    RedisKeyUtil.getChannelKey(roomName),
+                    participant,
+                    payload));
+        } else {
+            result = messageRepository.sendChat(
+                    RedisKeyUtil.getRoomHashKey(roomName),
+                    RedisKeyUtil.getParticipantRoomHashKey(roomName),
+                    RedisKeyUtil.getMessageRoomKey(roomName),
+                    RedisKeyUtil.getChannelKey(roomName),
+                    participant,
+                    payload);
+        }
+
+        if (result.getCode() == MessageRepository.SEND_ROOM_NOT_FOUND) {
+            throw new ChatRoomNotFoundException("Chat room '" + roomName + "' does not exist");
+        }
+
+        if (result.getCode() == MessageRepository.SEND_PARTICIPANT_NOT_IN_ROOM) {
+            throw new ParticipantNotFoundException("Participant '" + messageModel.getParticipant() + "' is not a member of room '" + roomName + "'");
+        }
+
+        if (rateLimited) {
+            sendRateLimiter.chargeRoom(roomName);
+        }
+        messageModel.setId(result.getMessageId());
+    }
+
+    // Bulk ingest: the room is checked once, membership once per distinct participant (one SMISMEMBER),
+    // and every valid message is stored and published in one pipelined round trip
+    public BatchSendResponse saveMessages(String roomName, List<MessageModel> messageModels) {
+        return saveMessages(roomName, messageModels, true);
     }
 
-    private void validateParam(String roomName, MessageModel messageModel){
+    // Entries over the rate limit are rejected individually, like any other failed entry
+    BatchSendResponse saveMessages(String roomName, List<MessageModel> messageModels, boolean rateLimited) {
+        if (messageModels == null || messageModels.isEmpty()) {
+            throw new BadRequestException("Messages cannot be empty");
+        }
+
+        if (messageModels.size() > maxBatchSize) {
+            throw new BadRequestException("A batch cannot contain more than " + maxBatchSize + " messages");
+        }
+
         if (!chatRoomService.isRoomExists(roomName)) {
             throw new ChatRoomNotFoundException("Chat room '" + roomName + "' does not exist");
         }
 
+        BatchMessageResult[] results = new BatchMessageResult[messageModels.size()];
+        Set<String> participants = new HashSet<>();
+        for (int i = 0; i < messageModels.size(); i++) {
+            try {
+                validateParam(messageModels.get(i));
+                participants.add(messageModels.get(i).getParticipant().trim());
+            } catch (BadRequestException e) {
+                results[i] = BatchMessageResult.failure(i, e.getMessage());
+            }
+        }
+
+        Map<String, Boolean> membership = chatRoomService.getParticipantMembership(roomName, participants);
+        List<MessageSendCommand> commands = new ArrayList<>();
+        List<Integer> commandIndexes = new ArrayList<>();
+        for (int i = 0; i < messageModels.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+
+            MessageModel messageModel = messageModels.get(i);
+            String participant = messageModel.getParticipant().trim();
+            if (!membership.getOrDefault(participant, false)) {
+                results[i] = BatchMessageResult.failure(i, "Participant '" + participant + "' is not a member of room '" + roomName + "'");
+                continue;
+            }
+
+            // As for single sends, the room bucket is only charged for the messages the script admits
+            if (rateLimited && !sendRateLimiter.tryAcquireParticipant(roomName, participant)) {
+                results[i] = BatchMessageResult.failure(i, "Participant '" + participant + "' is sending too fast to room '" + roomName + "'");
+                continue;
+            }
+
+            try {
+                if (messageModel.getTimestamp() == null) {
+                    messageModel.setTimestamp(LocalDateTime.now());
+                }
+                commands.add(new MessageSendCommand(
+                        RedisKeyUtil.getRoomHashKey(roomName),
+                        RedisKeyUtil.getParticipantRoomHashKey(roomName),
+                        RedisKeyUtil.getMessageRoomKey(roomName),
+                        RedisKeyUtil.getChannelKey(roomName),
+                        participant,
+                        messageCodec.encode(messageModel)));
+                commandIndexes.add(i);
+            } catch (IOException e) {
+                results[i] = BatchMessageResult.failure(i, "Failed to encode message: " + e.getMessage());
+            }
+        }
+
+        if (!commands.isEmpty()) {
+            // The script still checks room and membership per message, so a concurrent leave or delete is not missed
+            List<MessageSendResult> sendResults = messageRepository.sendChatBatch(commands);
+            for (int c = 0; c < commandIndexes.size(); c++) {
+                int i = commandIndexes.get(c);
+                MessageSendResult sendResult = sendResults.get(c);
+                if (sendResult.getCode() == MessageRepository.SEND_OK) {
+                    messageModels.get(i).setId(sendResult.getMessageId());
+                    results[i] = BatchMessageResult.success(i, sendResult.getMessageId());
+                    if (rateLimited) {
+                        sendRateLimiter.chargeRoom(roomName);
+                    }
+                } else if (sendResult.getCode() == MessageRepository.SEND_ROOM_NOT_FOUND) {
+                    results[i] = BatchMessageResult.failure(i, "Chat room '" + roomName + "' does not exist");
+                } else if (sendResult.getCode() == MessageRepository.SEND_PARTICIPANT_NOT_IN_ROOM) {
+                    results[i] = BatchMessageResult.failure(i, "Participant '" + commands.get(c).getParticipant() + "' is not a member of room '" + roomName + "'");
+                } else {
+                    results[i] = BatchMessageResult.failure(i, "Failed to send message");
+                }
+            }
+        }
+
+        int accepted = (int) Arrays.stream(results).filter(result -> result.getError() == null).count();
+        return new BatchSendResponse(accepted, results.length - accepted, Arrays.asList(results));
+    }
+
+    private void validateParam(MessageModel messageModel){
         if (messageModel == null) {
             throw new BadRequestException("Message cannot be null");
         }
@@ -66,9 +228,6 @@ public class MessageService {
         if (messageModel.getMessage() == null || messageModel.getMessage().trim().isEmpty()) {
             throw new BadRequestException("Message content cannot be empty");
         }
-
-        if(!chatRoomService.isParticipantInRoom(roomName, messageModel.getParticipant()))
-            throw new ParticipantNotFoundException("Participant '" + messageModel.getParticipant() + "' is not a member of room '" + roomName + "'");
     }
 
     public void saveMessage(String roomName, String participant, String messageText) {
@@ -86,8 +245,8 @@ public class MessageService {
         }
 
         String chatRoomKey = RedisKeyUtil.getMessageRoomKey(roomName);
-        List<Object> messageJsonList = messageRepository.getLastNMessages(chatRoomKey, limit);
-        return convertJsonListToMessages(messageJsonList);
+        List<StoredMessage> storedMessages = messageRepository.getLastNMessages(chatRoomKey, limit);
+        return convertJsonListToMessages(roomName, storedMessages);
     }
 
     public List<MessageModel> getAllMessages(String roomName) {
@@ -96,8 +255,8 @@ public class MessageService {
         }
 
         String chatRoomKey = RedisKeyUtil.getMessageRoomKey(roomName);
-        List<Object> messageJsonList = messageRepository.getAllMessages(chatRoomKey);
-        return convertJsonListToMessages(messageJsonList);
+        List<StoredMessage> storedMessages = messageRepository.getAllMessages(chatRoomKey);
+        return convertJsonListToMessages(roomName, storedMessages);
     }
 
     public List<MessageModel> getMessages(String roomName, Integer limit) {
@@ -126,8 +285,79 @@ public class MessageService {
 
     public List<MessageModel> getMessagesWithPagination(String roomName, int limit, int offset) {
         String chatRoomKey = RedisKeyUtil.getMessageRoomKey(roomName);
-        List<Object> messageJsonList = messageRepository.getMessagesWithPagination(chatRoomKey, limit, offset);
-        return convertJsonListToMessages(messageJsonList);
+        List<StoredMessage> storedMessages = messageRepository.getMessagesWithPagination(chatRoomKey, limit, offset);
+        return convertJsonListToMessages(roomName, storedMessages);
+    }
+
+    // Keyset paging: each page reads only its own entries and is not shifted by concurrent sends
+    public MessagePageResponse getMessagesBefore(String roomName, String beforeId, int limit) {
+        validateCursorRequest(roomName, beforeId, limit);
+
+        String chatRoomKey = RedisKeyUtil.getMessageRoomKey(roomName);
+        // One extra entry tells whether an older page exists without a separate count
+        List<StoredMessage> storedMessages = messageRepository.getMessagesBefore(chatRoomKey, beforeId, limit + 1);
+        boolean hasMore = storedMessages.size() > limit;
+        if (hasMore) {
+            storedMessages = storedMessages.subList(1, storedMessages.size());
+        }
+
+        String nextCursor = hasMore ? storedMessages.get(0).getId() : null;
+        return new MessagePageResponse(convertJsonListToMessages(roomName, storedMessages), nextCursor, hasMore);
+    }
+
+    public MessagePageResponse getMessagesAfter(String roomName, String afterId, int limit) {
+        validateCursorRequest(roomName, afterId, limit);
+
+        String chatRoomKey = RedisKeyUtil.getMessageRoomKey(roomName);
+        List<StoredMessage> storedMessages = messageRepository.getMessagesAfter(chatRoomKey, afterId, limit + 1);
+        boolean hasMore = storedMessages.size() > limit;
+        if (hasMore) {
+            storedMessages = storedMessages.subList(0, limit);
+        }
+
+        String nextCursor = hasMore ? storedMessages.get(storedMessages.size() - 1).getId() : null;
+        return new MessagePageResponse(convertJsonListToMessages(roomName, storedMessages), nextCursor, hasMore);
+    }
+
+    private void validateCursorRequest(String roomName, String cursor, int limit) {
+        if (!chatRoomService.isRoomExists(roomName)) {
+            throw new ChatRoomNotFoundException("Chat room '" + roomName + "' does not exist");
+        }
+
+        if (cursor == null || cursor.trim().isEmpty()) {
+            throw new BadRequestException("Cursor cannot be empty");
+        }
+
+        if (limit <= 0) {
+            throw new BadRequestException("Limit must be greater than 0");
+        }
+    }
+
+    // Writes the room history as NDJSON in fixed-size chunks, so memory stays bounded by the chunk size.
+    // The message count is taken up front; messages sent while the export runs are not included.
+    public void exportMessages(String roomName, OutputStream outputStream) throws IOException {
+        String chatRoomKey = RedisKeyUtil.getMessageRoomKey(roomName);
+        long remaining = messageRepository.getMessageCount(chatRoomKey);
+        if (remaining <= 0) {
+            return;
+        }
+
+        // Offset 0 is cheap in both stores; later chunks continue from the last id, so no chunk rescans earlier history
+        List<StoredMessage> chunk = messageRepository.getMessagesWithPagination(chatRoomKey, (int) Math.min(exportChunkSize, remaining), 0);
+        while (!chunk.isEmpty()) {
+            for (MessageModel messageModel : convertJsonListToMessages(roomName, chunk)) {
+                outputStream.write(objectMapper.writeValueAsBytes(messageModel));
+                outputStream.write('\n');
+            }
+            outputStream.flush();
+
+            remaining -= chunk.size();
+            if (remaining <= 0) {
+                return;
+            }
+            String lastId = chunk.get(chunk.size() - 1).getId();
+            chunk = messageRepository.getMessagesAfter(chatRoomKey, lastId, (int) Math.min(exportChunkSize, remaining));
+        }
     }
 
     public long getTotalMessageCount(String roomName) {
@@ -139,19 +369,24 @@ public class MessageService {
     }
 
 
-    private List<MessageModel> convertJsonListToMessages(List<Object> messageJsonList) {
+    private List<MessageModel> convertJsonListToMessages(String roomName, List<StoredMessage> storedMessages) {
         List<MessageModel> messageModels = new ArrayList<>();
-        if (messageJsonList != null) {
-            for (Object messageJson : messageJsonList) {
+        if (storedMessages != null) {
+            for (StoredMessage storedMessage : storedMessages) {
                 try {
-                    MessageModel messageModel = objectMapper.readValue((String) messageJson, MessageModel.class);
+                    MessageModel messageModel = readMessage(storedMessage.getPayload());
+                    messageModel.setId(storedMessage.getId());
                     messageModels.add(messageModel);
                 } catch (Exception e) {
-                    System.err.println("Warning: Skipping malformed message: " + messageJson + ", Error: " + e.getMessage());
+                    log.warn("Skipping malformed message {} in room '{}': {}", storedMessage.getId(), roomName, e.getMessage());
                 }
             }
         }
         return messageModels;
     }
 
+    private MessageModel readMessage(byte[] payload) throws IOException {
+        return messageCodec.decode(payload);
+    }
+
 }
@@ -0,0 +1,205 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.archive.MessageArchive;
+import ai.freightfox.chat.app.model.StoredMessage;
+import ai.freightfox.chat.app.util.RedisKeyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// Converts chatroom:*:messages lists into streams when the stream message store is selected
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "chat.message-store.type", havingValue = "stream")
+public class MessageStoreMigrationService implements SmartInitializingSingleton {
+
+    private static final String MESSAGE_KEY_PATTERN = "chatroom:*:messages";
+    private static final String MIGRATING_SUFFIX = ":migrating";
+    private static final String MIGRATION_LOCK_SUFFIX = ":migration-lock";
+    // Temporary stream the history is copied into, and how many list positions it holds so far
+    private static final String MIGRATION_STREAM_SUFFIX = ":migration-stream";
+    private static final String MIGRATION_COPIED_SUFFIX = ":migration-copied";
+    private static final Duration MIGRATION_LOCK_TTL = Duration.ofSeconds(60);
+
+    @Autowired
+    private RedisTemplate<String, byte[]> messageRedisTemplate;
+
+    @Autowired
+    private RedisScript<Long> releaseLockScript;
+
+    @Autowired
+    private RedisScript<Long> copyStreamBatchScript;
+
+    @Autowired
+    private RedisScript<Long> finishStreamMigrationScript;
+
+    @Autowired
+    private MessageArchive messageArchive;
+
+    @Value("${chat.message-store.migrate-on-startup:false}")
+    private boolean migrateOnStartup;
+
+    @Value("${chat.message-store.migration-batch-size:500}")
+    private int batchSize;
+
+    // Runs before the web server accepts requests, as list keys would fail stream writes with WRONGTYPE
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (migrateOnStartup) {
+            migrateAll();
+        }
+    }
+
+    public int migrateAll() {
+        // Leftovers of a migration interrupted by a crash are finished first, then every list still in place
+        Set<String> messageKeys = new LinkedHashSet<>();
+        try (Cursor<String> keys = messageRedisTemplate.scan(
+                ScanOptions.scanOptions().match(MESSAGE_KEY_PATTERN + MIGRATING_SUFFIX).count(1000).build())) {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                messageKeys.add(key.substring(0, key.length() - MIGRATING_SUFFIX.length()));
+            }
+        }
+        try (Cursor<String> keys = messageRedisTemplate.scan(ScanOptions.scanOptions().match(MESSAGE_KEY_PATTERN).count(1000).build())) {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (DataType.LIST.equals(messageRedisTemplate.type(key))) {
+                    messageKeys.add(key);
+                }
+            }
+        }
+
+        int migratedRooms = 0;
+        for (String messageKey : messageKeys) {
+            if (migrateRoom(messageKey) >= 0) {
+                migratedRooms++;
+            }
+        }
+        log.info("Migrated {} message lists to streams", migratedRooms);
+        return migratedRooms;
+    }
+
+    // Moves the list aside and copies its history, archived part first, into a temporary stream in batches. Live sends
+    // meanwhile go to a fresh stream under the original key; the finish script moves them behind the history and renames
+    // the temporary stream into place. History ids are "<list position>-1", below every live id. A copy interrupted by
+    // a crash resumes from its counter. Returns the number of messages copied, or -1 when another pod is migrating the
+    // room or already has
+    public long migrateRoom(String messageKey) {
+        String migratingKey = messageKey + MIGRATING_SUFFIX;
+        String lockKey = messageKey + MIGRATION_LOCK_SUFFIX;
+        byte[] lockToken = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        if (!Boolean.TRUE.equals(messageRedisTemplate.opsForValue().setIfAbsent(lockKey, lockToken, MIGRATION_LOCK_TTL))) {
+            log.info("Skipping migration of {}: another pod is migrating it", messageKey);
+            return -1;
+        }
+
+        try {
+            if (Boolean.TRUE.equals(messageRedisTemplate.hasKey(migratingKey))) {
+                log.info("Resuming migration of {}", messageKey);
+            } else if (!DataType.LIST.equals(messageRedisTemplate.type(messageKey))) {
+                // Listed by the scan but moved by another pod since, or deleted with its room
+                log.info("Skipping migration of {}: no longer a list", messageKey);
+                return -1;
+            } else {
+                messageRedisTemplate.rename(messageKey, migratingKey);
+            }
+
+            long copied = copyToStream(messageKey, lockKey, lockToken);
+            Long moved = copied < 0 ? null : messageRedisTemplate.execute(finishStreamMigrationScript,
+                    List.of(messageKey + MIGRATION_STREAM_SUFFIX, messageKey, migratingKey, messageKey + MIGRATION_COPIED_SUFFIX,
+                            RedisKeyUtil.getTrimmedCountKey(messageKey), RedisKeyUtil.getRoomHashKey(roomNameOf(messageKey)), lockKey),
+                    lockToken);
+            if (moved == null || moved < 0) {
+                // Another pod took over after the lock expired; it resumes from the counter
+                log.warn("Stopped migrating {}: the migration lock was lost", messageKey);
+                return -1;
+            }
+
+            // The archived part now lives in the stream
+            messageArchive.delete(messageKey);
+            log.info("Migrated {} messages from list {} to stream, {} sent during the migration", copied, messageKey, moved);
+            return copied;
+        } finally {
+            messageRedisTemplate.execute(releaseLockScript, List.of(lockKey), lockToken);
+        }
+    }
+
+    // Copies positions [copied so far, archived + listed) and returns the total, or -1 once the lock is lost
+    private long copyToStream(String messageKey, String lockKey, byte[] lockToken) {
+        String migratingKey = messageKey + MIGRATING_SUFFIX;
+        List<String> keys = List.of(messageKey + MIGRATION_STREAM_SUFFIX, messageKey + MIGRATION_COPIED_SUFFIX, lockKey);
+        byte[] lockTtl = bytes(Long.toString(MIGRATION_LOCK_TTL.toMillis()));
+        long trimmed = readCounter(RedisKeyUtil.getTrimmedCountKey(messageKey));
+        long copied = readCounter(messageKey + MIGRATION_COPIED_SUFFIX);
+        while (true) {
+            List<byte[]> batch = new ArrayList<>(batchSize);
+            if (copied < trimmed) {
+                // Spilled history is read back from the archive in position order
+                for (StoredMessage message : messageArchive.read(messageKey, copied, Math.min(trimmed, copied + batchSize) - 1)) {
+                    if (!message.getId().equals(Long.toString(copied + batch.size()))) {
+                        break;
+                    }
+                    batch.add(message.getPayload());
+                }
+                if (batch.isEmpty()) {
+                    throw new IllegalStateException("Archived history of " + messageKey + " from position " + copied
+                            + " is not readable on this pod");
+                }
+            } else {
+                List<byte[]> listed = messageRedisTemplate.opsForList().range(migratingKey, copied - trimmed, copied - trimmed + batchSize - 1);
+                if (listed == null || listed.isEmpty()) {
+                    return copied;
+                }
+                batch.addAll(listed);
+            }
+
+            Object[] args = new Object[3 + batch.size()];
+            args[0] = lockToken;
+            args[1] = lockTtl;
+            args[2] = bytes(Long.toString(copied));
+            for (int i = 0; i < batch.size(); i++) {
+                args[3 + i] = batch.get(i);
+            }
+            Long next = messageRedisTemplate.execute(copyStreamBatchScript, keys, args);
+            if (next == null || next == -1) {
+                return -1;
+            }
+            if (next < 0) {
+                throw new IllegalStateException("Migration counter of " + messageKey + " moved under the lock");
+            }
+            copied = next;
+        }
+    }
+
+    private long readCounter(String key) {
+        byte[] value = messageRedisTemplate.opsForValue().get(key);
+        return value == null ? 0 : Long.parseLong(new String(value, StandardCharsets.UTF_8));
+    }
+
+    // chatroom:{room}:messages -> room name
+    private static String roomNameOf(String messageKey) {
+        String prefix = RedisKeyUtil.getRoomHashKey("");
+        String suffix = RedisKeyUtil.getMessageRoomKey("").substring(prefix.length());
+        return messageKey.substring(prefix.length(), messageKey.length() - suffix.length());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
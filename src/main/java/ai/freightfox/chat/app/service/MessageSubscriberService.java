@@ -1,7 +1,6 @@
 package ai.freightfox.chat.app.service;
 
-import ai.freightfox.chat.app.model.MessageModel;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import ai.freightfox.chat.app.codec.CompositeMessageCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.connection.Message;
@@ -13,26 +12,23 @@ import org.springframework.stereotype.Service;
 public class MessageSubscriberService implements MessageListener {
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private WebSocketSessionManager sessionManager;
 
     @Autowired
-    private WebSocketSessionManager sessionManager;
+    private CompositeMessageCodec messageCodec;
 
     @Override
     public void onMessage(Message message, byte[] pattern) {
         try {
             String channel = new String(message.getChannel());
-            String body = new String(message.getBody());
 
             // Extract room name from channel where the format is chatroom:roomName:channel
             String roomName = extractRoomNameFromChannel(channel);
-            
-            MessageModel deserializedMessageModel = objectMapper.readValue(body, MessageModel.class);
 
+            // JSON bodies are forwarded to sockets without decoding; binary ones are converted once here
             if (roomName != null) {
-                log.info("Broadcasting message from {} to room {} on pod {}", 
-                        deserializedMessageModel.getParticipant(), roomName, sessionManager.getPodInstanceId());
-                sessionManager.broadcastToLocalSessions(roomName, deserializedMessageModel);
+                log.debug("Broadcasting message to room {} on pod {}", roomName, sessionManager.getPodInstanceId());
+                sessionManager.broadcastToLocalSessions(roomName, messageCodec.toClientFrame(message.getBody()));
             }
 
         } catch (Exception e) {
@@ -0,0 +1,180 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.dto.response.WriteCoalescerStatsResponse;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RedisOperationException;
+import ai.freightfox.chat.app.model.MessageSendCommand;
+import ai.freightfox.chat.app.model.MessageSendResult;
+import ai.freightfox.chat.app.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Group commit for message sends: concurrent senders are collected for up to max-wait-micros or max-batch commands
+// and written as one pipelined batch; each caller returns once its own script result is back from Redis
+@Slf4j
+@Service
+public class MessageWriteCoalescer {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Value("${chat.message-store.coalescer.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.message-store.coalescer.max-batch:64}")
+    private int maxBatch;
+
+    @Value("${chat.message-store.coalescer.max-wait-micros:200}")
+    private long maxWaitMicros;
+
+    @Value("${chat.message-store.coalescer.flushers:2}")
+    private int flushers;
+
+    private final BlockingQueue<PendingSend> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> flusherThreads = new ArrayList<>();
+    private final Log2Histogram batchSizes = new Log2Histogram();
+    private final Log2Histogram waitMicros = new Log2Histogram();
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < flushers; i++) {
+            // Platform threads: the wait window is a few hundred microseconds and must not depend on carrier scheduling
+            Thread thread = Thread.ofPlatform().daemon().name("message-write-coalescer-" + i).start(this::runFlusher);
+            flusherThreads.add(thread);
+        }
+        log.info("Message write coalescer started: maxBatch={}, maxWaitMicros={}, flushers={}", maxBatch, maxWaitMicros, flushers);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Blocks until the batch holding this command has been executed by Redis
+    public MessageSendResult send(MessageSendCommand command) {
+        if (!running) {
+            throw new RedisOperationException("Message write coalescer is not running");
+        }
+
+        PendingSend pending = new PendingSend(command, System.nanoTime());
+        queue.add(pending);
+        try {
+            return pending.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RedisOperationException redisOperationException) {
+                throw redisOperationException;
+            }
+            throw new RedisOperationException("Failed to send message", e.getCause());
+        }
+    }
+
+    public WriteCoalescerStatsResponse getStats() {
+        return new WriteCoalescerStatsResponse(enabled, batchSizes.getCount(), waitMicros.getCount(), batchSizes.getMean(),
+                batchSizes.snapshot(), waitMicros.getPercentile(0.5), waitMicros.getPercentile(0.99), waitMicros.snapshot());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        flusherThreads.forEach(Thread::interrupt);
+        for (Thread thread : flusherThreads) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<PendingSend> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(pending -> pending.future.completeExceptionally(
+                new RedisOperationException("Message write coalescer stopped before the message was written")));
+    }
+
+    private void runFlusher() {
+        long maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        List<PendingSend> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                PendingSend first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // The window is measured from the oldest waiting command, so no caller waits longer than max-wait-micros
+                long deadline = first.enqueuedNanos + maxWaitNanos;
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || remaining <= 0) {
+                        break;
+                    }
+                    PendingSend next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.forEach(pending -> pending.future.completeExceptionally(
+                        new RedisOperationException("Message write coalescer stopped before the message was written")));
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingSend> batch) {
+        long flushStart = System.nanoTime();
+        List<MessageSendCommand> commands = new ArrayList<>(batch.size());
+        for (PendingSend pending : batch) {
+            commands.add(pending.command);
+            waitMicros.record(TimeUnit.NANOSECONDS.toMicros(flushStart - pending.enqueuedNanos));
+        }
+        batchSizes.record(batch.size());
+
+        try {
+            List<MessageSendResult> results = messageRepository.sendChatBatch(commands);
+            for (int i = 0; i < batch.size(); i++) {
+                MessageSendResult result = results.get(i);
+                if (result.getCode() == MessageRepository.SEND_ERROR) {
+                    batch.get(i).future.completeExceptionally(new RedisOperationException("Failed to send message"));
+                } else {
+                    batch.get(i).future.complete(result);
+                }
+            }
+        } catch (Exception e) {
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+    }
+
+    private static final class PendingSend {
+        private final MessageSendCommand command;
+        private final long enqueuedNanos;
+        private final CompletableFuture<MessageSendResult> future = new CompletableFuture<>();
+
+        private PendingSend(MessageSendCommand command, long enqueuedNanos) {
+            this.command = command;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.codec.CompositeMessageCodec;
+import ai.freightfox.chat.app.dto.response.ParticipantRoomSummary;
+import ai.freightfox.chat.app.dto.response.ParticipantRoomsResponse;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.BadRequestException;
+import ai.freightfox.chat.app.model.MessageModel;
+import ai.freightfox.chat.app.model.ParticipantRoomEntry;
+import ai.freightfox.chat.app.repository.ChatRoomRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Participant-centric reads served from the reverse membership index kept by the join and leave script
+@Slf4j
+@Service
+public class ParticipantService {
+
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+
+    @Autowired
+    private CompositeMessageCodec messageCodec;
+
+    // Home screen data: every room of the participant with its newest message, from a single Redis call
+    public ParticipantRoomsResponse getParticipantRooms(String participantName) {
+        if (participantName == null || participantName.trim().isEmpty()) {
+            throw new BadRequestException("Participant name cannot be empty");
+        }
+
+        String participant = participantName.trim();
+        List<ParticipantRoomSummary> rooms = new ArrayList<>();
+        for (ParticipantRoomEntry entry : chatRoomRepository.getParticipantRooms(participant)) {
+            rooms.add(new ParticipantRoomSummary(entry.getRoomName(), entry.getLastActivityAt(), entry.getMessageCount(),
+                    readLastMessage(entry)));
+        }
+        rooms.sort(Comparator.comparing(ParticipantRoomSummary::getLastActivityAt, Comparator.nullsLast(Comparator.<Instant>reverseOrder()))
+                .thenComparing(ParticipantRoomSummary::getRoomName));
+        return new ParticipantRoomsResponse(participant, rooms);
+    }
+
+    private MessageModel readLastMessage(ParticipantRoomEntry entry) {
+        if (entry.getLastMessage() == null) {
+            return null;
+        }
+        try {
+            MessageModel messageModel = messageCodec.decode(entry.getLastMessage().getPayload());
+            messageModel.setId(entry.getLastMessage().getId());
+            return messageModel;
+        } catch (Exception e) {
+            // A preview is optional; the room is still listed
+            log.warn("Skipping malformed last message of room {}: {}", entry.getRoomName(), e.getMessage());
+            return null;
+        }
+    }
+}
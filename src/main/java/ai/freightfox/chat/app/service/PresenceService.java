@@ -0,0 +1,106 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.dto.response.PresenceResponse;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ChatRoomNotFoundException;
+import ai.freightfox.chat.app.repository.PresenceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Cross-pod presence: every heartbeat interval each pod writes, per room, the participants connected to it under a
+// key that expires after ttl. A pod that dies stops refreshing and drops out on its own once its keys expire.
+@Slf4j
+@Service
+public class PresenceService {
+
+    private static final String NAME_SEPARATOR = "\n";
+
+    @Autowired
+    private PresenceRepository presenceRepository;
+
+    @Autowired
+    private WebSocketSessionManager sessionManager;
+
+    @Autowired
+    private ChatRoomService chatRoomService;
+
+    @Value("${chat.presence.heartbeat-interval-ms:5000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${chat.presence.ttl-ms:15000}")
+    private long ttlMs;
+
+    // Rooms this pod published in the last heartbeat, so rooms it has left can be cleared without waiting for the ttl
+    private Set<String> publishedRooms = new HashSet<>();
+
+    private final ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "presence-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public PresenceResponse getPresence(String roomName) {
+        if (!chatRoomService.isRoomExists(roomName)) {
+            throw new ChatRoomNotFoundException("Chat room '" + roomName + "' does not exist");
+        }
+
+        List<String> podEntries = presenceRepository.getPodPresence(roomName, System.currentTimeMillis());
+        Set<String> participants = new TreeSet<>();
+        for (String podEntry : podEntries) {
+            for (String participant : podEntry.split(NAME_SEPARATOR)) {
+                if (!participant.isEmpty()) {
+                    participants.add(participant);
+                }
+            }
+        }
+        return new PresenceResponse(roomName, participants.size(), new ArrayList<>(participants), podEntries.size());
+    }
+
+    void heartbeat() {
+        try {
+            Map<String, String> participantsByRoom = new HashMap<>();
+            sessionManager.getLocalParticipantsByRoom().forEach((roomName, participants) ->
+                    participantsByRoom.put(roomName, String.join(NAME_SEPARATOR, participants)));
+
+            String podInstanceId = sessionManager.getPodInstanceId();
+            presenceRepository.publishHeartbeats(podInstanceId, participantsByRoom, ttlMs, System.currentTimeMillis());
+
+            Set<String> leftRooms = new HashSet<>(publishedRooms);
+            leftRooms.removeAll(participantsByRoom.keySet());
+            presenceRepository.removeHeartbeats(podInstanceId, leftRooms);
+            publishedRooms = participantsByRoom.keySet();
+        } catch (Exception e) {
+            // Entries stay valid until their ttl, so a missed heartbeat only matters if the next ones fail too
+            log.warn("Presence heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatScheduler.shutdownNow();
+        try {
+            presenceRepository.removeHeartbeats(sessionManager.getPodInstanceId(), publishedRooms);
+        } catch (Exception e) {
+            log.debug("Failed to clear presence on shutdown: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.dto.response.UnreadCountsResponse;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.BadRequestException;
+import ai.freightfox.chat.app.model.ReadCursorUpdate;
+import ai.freightfox.chat.app.repository.ChatRoomRepository;
+import ai.freightfox.chat.app.repository.ReadCursorRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Read positions per participant per room. Clients report reads as often as they like; this pod keeps only the
+// newest id per participant and room and writes them in one pipelined batch every flush interval
+@Slf4j
+@Service
+public class ReadCursorService {
+
+    // List store ids are positions, stream store ids are <ms>-<seq>
+    private static final Pattern MESSAGE_ID_PATTERN = Pattern.compile("^\\d{1,18}(-\\d{1,18})?$");
+
+    @Autowired
+    private ReadCursorRepository readCursorRepository;
+
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+
+    @Value("${chat.read-cursors.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${chat.read-cursors.max-batch:1000}")
+    private int maxBatch;
+
+    @Value("${chat.read-cursors.max-rooms:200}")
+    private int maxRooms;
+
+    @Value("${chat.read-cursors.max-stream-unread:1000}")
+    private int maxStreamUnread;
+
+    private final ConcurrentHashMap<CursorKey, String> pendingCursors = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "read-cursor-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        flushScheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Records the read position locally; it reaches Redis with the next flush. Reads behind the current one are ignored
+    public void markRead(String roomName, String participantName, String messageId) {
+        if (participantName == null || participantName.trim().isEmpty()) {
+            throw new BadRequestException("Participant name cannot be empty");
+        }
+
+        if (messageId == null || !MESSAGE_ID_PATTERN.matcher(messageId).matches()) {
+            throw new BadRequestException("Invalid message id '" + messageId + "'");
+        }
+
+        pendingCursors.merge(new CursorKey(roomName, participantName.trim()), messageId,
+                (current, next) -> isAfter(next, current) ? next : current);
+    }
+
+    // Unread counts of the given rooms, or of every room the participant has joined, from one pipelined call
+    public UnreadCountsResponse getUnreadCounts(String participantName, List<String> roomNames) {
+        if (participantName == null || participantName.trim().isEmpty()) {
+            throw new BadRequestException("Participant name cannot be empty");
+        }
+
+        String participant = participantName.trim();
+        List<String> rooms = roomNames == null || roomNames.isEmpty()
+                ? chatRoomRepository.getParticipantRoomNames(participant)
+                : new ArrayList<>(new LinkedHashSet<>(roomNames));
+        if (rooms.size() > maxRooms) {
+            throw new BadRequestException("Unread counts can be requested for at most " + maxRooms + " rooms");
+        }
+
+        // Reads not flushed yet count too, so a client sees its own read right away
+        Map<String, String> pendingReadIds = new HashMap<>();
+        for (String roomName : rooms) {
+            String pending = pendingCursors.get(new CursorKey(roomName, participant));
+            if (pending != null) {
+                pendingReadIds.put(roomName, pending);
+            }
+        }
+        return new UnreadCountsResponse(participant,
+                readCursorRepository.getUnreadCounts(participant, rooms, pendingReadIds, maxStreamUnread));
+    }
+
+    void flush() {
+        try {
+            List<Map.Entry<CursorKey, String>> snapshot = new ArrayList<>(pendingCursors.entrySet());
+            for (int from = 0; from < snapshot.size(); from += maxBatch) {
+                List<Map.Entry<CursorKey, String>> batch = snapshot.subList(from, Math.min(from + maxBatch, snapshot.size()));
+                List<ReadCursorUpdate> updates = new ArrayList<>(batch.size());
+                for (Map.Entry<CursorKey, String> entry : batch) {
+                    updates.add(new ReadCursorUpdate(entry.getKey().roomName, entry.getKey().participant, entry.getValue()));
+                }
+                readCursorRepository.updateReadCursors(updates);
+
+                // A newer read that arrived during the write stays pending for the next flush
+                batch.forEach(entry -> pendingCursors.remove(entry.getKey(), entry.getValue()));
+            }
+        } catch (Exception e) {
+            log.warn("Flushing read cursors failed, retrying with the next flush: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdownNow();
+        flush();
+    }
+
+    static boolean isAfter(String messageId, String other) {
+        long[] id = parseId(messageId);
+        long[] otherId = parseId(other);
+        return id[0] != otherId[0] ? id[0] > otherId[0] : id[1] > otherId[1];
+    }
+
+    private static long[] parseId(String messageId) {
+        int separator = messageId.indexOf('-');
+        if (separator < 0) {
+            return new long[]{Long.parseLong(messageId), 0};
+        }
+        return new long[]{Long.parseLong(messageId.substring(0, separator)), Long.parseLong(messageId.substring(separator + 1))};
+    }
+
+    private static final class CursorKey {
+        private final String roomName;
+        private final String participant;
+
+        private CursorKey(String roomName, String participant) {
+            this.roomName = roomName;
+            this.participant = participant;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof CursorKey key && roomName.equals(key.roomName) && participant.equals(key.participant);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(roomName, participant);
+        }
+    }
+}
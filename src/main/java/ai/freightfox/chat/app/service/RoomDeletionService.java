@@ -0,0 +1,123 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.archive.MessageArchive;
+import ai.freightfox.chat.app.model.RoomControlEvent;
+import ai.freightfox.chat.app.repository.ChatRoomRepository;
+import ai.freightfox.chat.app.util.RedisKeyUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Room deletion returns as soon as the small room keys are gone: the history is moved aside and trimmed in chunks
+// by every pod's reclaim loop, and a room deleted event makes each pod close the room's sockets and drop its state
+@Slf4j
+@Service
+public class RoomDeletionService implements MessageListener {
+
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+
+    @Autowired
+    private WebSocketSessionManager sessionManager;
+
+    @Autowired
+    private MessageArchive messageArchive;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${chat.room-deletion.reclaim-interval-ms:100}")
+    private long reclaimIntervalMs;
+
+    // Entries freed per history per reclaim step; each step is one O(chunk-size) trim inside Redis
+    @Value("${chat.room-deletion.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${chat.room-deletion.max-rooms-per-step:16}")
+    private int maxRoomsPerStep;
+
+    @Value("${chat.room-deletion.close-code:4404}")
+    private int closeCode;
+
+    private final ScheduledExecutorService reclaimScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "room-reclaim");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(RedisKeyUtil.getRoomControlChannelKey()));
+        reclaimScheduler.scheduleWithFixedDelay(this::reclaim, reclaimIntervalMs, reclaimIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // False when the room does not exist
+    public boolean deleteRoom(String roomName) {
+        String controlEvent;
+        try {
+            controlEvent = objectMapper.writeValueAsString(new RoomControlEvent(RoomControlEvent.ROOM_DELETED, roomName));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize room control event", e);
+        }
+
+        // A fresh key per deletion, so a room recreated and deleted again never shares a history still being trimmed
+        String reclaimKey = RedisKeyUtil.getRoomReclaimKey(roomName, UUID.randomUUID().toString());
+        if (!chatRoomRepository.deleteRoom(roomName, reclaimKey, controlEvent)) {
+            return false;
+        }
+        messageArchive.delete(RedisKeyUtil.getMessageRoomKey(roomName));
+        return true;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            RoomControlEvent event = objectMapper.readValue(message.getBody(), RoomControlEvent.class);
+            if (RoomControlEvent.ROOM_DELETED.equals(event.getType()) && event.getRoomName() != null) {
+                onRoomDeleted(event.getRoomName());
+            }
+        } catch (Exception e) {
+            log.error("Error processing room control event: {}", e.getMessage());
+        }
+    }
+
+    void onRoomDeleted(String roomName) {
+        int closed = sessionManager.closeRoomSessions(roomName, new CloseStatus(closeCode, "Room deleted"));
+        messageArchive.evict(RedisKeyUtil.getMessageRoomKey(roomName));
+        log.info("Room '{}' deleted, closed {} local sessions on pod {}", roomName, closed, sessionManager.getPodInstanceId());
+    }
+
+    // Every pod runs this loop; two pods trimming the same history at once only finish it sooner
+    void reclaim() {
+        try {
+            List<String> reclaimKeys = chatRoomRepository.getPendingReclaims(maxRoomsPerStep);
+            chatRoomRepository.reclaimChunks(reclaimKeys, chunkSize);
+        } catch (Exception e) {
+            log.warn("Reclaiming deleted room data failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reclaimScheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,26 @@
+package ai.freightfox.chat.app.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Outbound counters shared by all local sessions of one room
+public class RoomOutboundMetrics {
+
+    private final LongAdder droppedMessages = new LongAdder();
+    private final LongAdder slowConsumerDisconnects = new LongAdder();
+
+    public void recordDrop() {
+        droppedMessages.increment();
+    }
+
+    public void recordDisconnect() {
+        slowConsumerDisconnects.increment();
+    }
+
+    public long getDroppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    public long getSlowConsumerDisconnects() {
+        return slowConsumerDisconnects.sum();
+    }
+}
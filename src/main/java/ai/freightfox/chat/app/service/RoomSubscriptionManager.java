@@ -0,0 +1,121 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.util.RedisKeyUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Keeps this pod subscribed only to the channels of rooms it holds sockets for
+@Slf4j
+@Service
+public class RoomSubscriptionManager {
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    // Lazy to break the subscriber -> session manager -> subscription manager cycle
+    @Lazy
+    @Autowired
+    private MessageSubscriberService messageSubscriber;
+
+    @Value("${chat.redis.unsubscribe-delay-ms:5000}")
+    private long unsubscribeDelayMs;
+
+    private final ConcurrentHashMap<String, RoomSubscription> subscriptions = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService unsubscribeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "room-unsubscribe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Counts a local session of the room. Only touches memory, so callers may hold their own locks; the Redis
+    // SUBSCRIBE is issued by subscribe, which must be called afterwards outside of them
+    public void acquire(String roomName) {
+        subscriptions.compute(roomName, (room, subscription) -> {
+            RoomSubscription roomSubscription = subscription != null ? subscription : new RoomSubscription();
+            if (roomSubscription.pendingUnsubscribe != null) {
+                roomSubscription.pendingUnsubscribe.cancel(false);
+                roomSubscription.pendingUnsubscribe = null;
+            }
+            roomSubscription.sessions.incrementAndGet();
+            return roomSubscription;
+        });
+    }
+
+    // Subscribes to the room channel if the room has local sessions and is not subscribed yet. The per-room monitor
+    // orders this against the delayed unsubscribe without holding any map lock during the network call
+    public void subscribe(String roomName) {
+        RoomSubscription subscription = subscriptions.get(roomName);
+        if (subscription == null) {
+            return;
+        }
+        synchronized (subscription) {
+            // A subscription dropped from the map was replaced, and its replacement is subscribed by its own acquirer
+            if (subscription.subscribed || subscription.sessions.get() == 0 || subscriptions.get(roomName) != subscription) {
+                return;
+            }
+            redisMessageListenerContainer.addMessageListener(messageSubscriber, new ChannelTopic(RedisKeyUtil.getChannelKey(roomName)));
+            subscription.subscribed = true;
+            log.info("Subscribed to channel of room '{}'", roomName);
+        }
+    }
+
+    public void release(String roomName) {
+        subscriptions.computeIfPresent(roomName, (room, subscription) -> {
+            if (subscription.sessions.decrementAndGet() == 0) {
+                // Last local session left; unsubscribe later so a quick reconnect keeps the subscription
+                subscription.pendingUnsubscribe = unsubscribeScheduler.schedule(
+                        () -> unsubscribeIfIdle(room, subscription), unsubscribeDelayMs, TimeUnit.MILLISECONDS);
+            }
+            return subscription;
+        });
+    }
+
+    public boolean isSubscribed(String roomName) {
+        RoomSubscription subscription = subscriptions.get(roomName);
+        return subscription != null && subscription.subscribed;
+    }
+
+    void unsubscribeIfIdle(String roomName, RoomSubscription subscription) {
+        synchronized (subscription) {
+            // A session that arrived since counts before this check, and its subscribe waits for the monitor
+            if (subscription.sessions.get() > 0) {
+                return;
+            }
+            if (subscription.subscribed) {
+                redisMessageListenerContainer.removeMessageListener(messageSubscriber, new ChannelTopic(RedisKeyUtil.getChannelKey(roomName)));
+                subscription.subscribed = false;
+                log.info("Unsubscribed from channel of room '{}'", roomName);
+            }
+            // Dropped only after the UNSUBSCRIBE, so a replacement created by a later acquire subscribes after it
+            subscriptions.computeIfPresent(roomName, (room, current) ->
+                    current == subscription && current.sessions.get() == 0 ? null : current);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        unsubscribeScheduler.shutdownNow();
+    }
+
+    static final class RoomSubscription {
+        private final AtomicInteger sessions = new AtomicInteger();
+        // Guarded by the subscriptions map's compute for the room
+        private ScheduledFuture<?> pendingUnsubscribe;
+        // Written under the subscription's monitor
+        private volatile boolean subscribed;
+    }
+}
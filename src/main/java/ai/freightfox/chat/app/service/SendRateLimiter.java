@@ -0,0 +1,260 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.repository.RateLimitRepository;
+import ai.freightfox.chat.app.util.RedisKeyUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-participant and per-room send limits. Every decision is taken by a lock-free local bucket, so sends never wait
+// on Redis. Each reconcile interval the pod adds what it admitted to per-window counters in Redis and reads back the
+// cluster total; a bucket whose total is over the window limit is closed on this pod until the window ends.
+// Between reconciles the pods together can overshoot by at most one interval's worth of sends.
+@Slf4j
+@Service
+public class SendRateLimiter {
+
+    private static final int MAX_KEYS_PER_RECONCILE = 500;
+
+    @Autowired
+    private RateLimitRepository rateLimitRepository;
+
+    @Value("${chat.rate-limit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.rate-limit.participant.per-second:5}")
+    private double participantPerSecond;
+
+    @Value("${chat.rate-limit.participant.burst:20}")
+    private int participantBurst;
+
+    @Value("${chat.rate-limit.room.per-second:200}")
+    private double roomPerSecond;
+
+    @Value("${chat.rate-limit.room.burst:400}")
+    private int roomBurst;
+
+    @Value("${chat.rate-limit.window-seconds:10}")
+    private int windowSeconds;
+
+    @Value("${chat.rate-limit.reconcile-interval-ms:250}")
+    private long reconcileIntervalMs;
+
+    // Buckets untouched for this long are forgotten; their next send starts from a full burst
+    @Value("${chat.rate-limit.idle-evict-seconds:120}")
+    private long idleEvictSeconds;
+
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService reconcileScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rate-limit-reconcile");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            reconcileScheduler.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMs, reconcileIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // True when the participant may send to the room now; an admitted send is charged to both buckets
+    public boolean tryAcquire(String roomName, String participant) {
+        if (!enabled) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        Bucket participantBucket = bucket(participantKey(roomName, participant), participantPerSecond, participantBurst, now);
+        if (!participantBucket.tryAcquire(now)) {
+            return false;
+        }
+        Bucket roomBucket = bucket(roomKey(roomName), roomPerSecond, roomBurst, now);
+        if (!roomBucket.tryAcquire(now)) {
+            participantBucket.refund();
+            return false;
+        }
+        return true;
+    }
+
+    // For sends whose room and membership checks are still to come. Only the participant bucket is charged here and the
+    // room bucket is merely checked, so sends the script turns away (unknown room, not a member) never drain the room's
+    // shared budget or create buckets for made-up rooms; chargeRoom follows once the send was admitted
+    public boolean tryAcquireParticipant(String roomName, String participant) {
+        if (!enabled) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        Bucket roomBucket = buckets.get(roomKey(roomName));
+        if (roomBucket != null && roomBucket.waitNanos(now) > 0) {
+            return false;
+        }
+        return bucket(participantKey(roomName, participant), participantPerSecond, participantBurst, now).tryAcquire(now);
+    }
+
+    // Charges an admitted send to the room; it was already checked by tryAcquireParticipant, so the charge is not refused
+    public void chargeRoom(String roomName) {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        bucket(roomKey(roomName), roomPerSecond, roomBurst, now).charge(now);
+    }
+
+    // Seconds until a refused send of the participant could be admitted, rounded up; at least 1
+    public long getRetryAfterSeconds(String roomName, String participant) {
+        long now = System.nanoTime();
+        long waitNanos = 0;
+        for (String key : List.of(participantKey(roomName, participant), roomKey(roomName))) {
+            Bucket bucket = buckets.get(key);
+            if (bucket != null) {
+                waitNanos = Math.max(waitNanos, bucket.waitNanos(now));
+            }
+        }
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconcileScheduler.shutdownNow();
+    }
+
+    private static String participantKey(String roomName, String participant) {
+        return "participant:" + roomName + ":" + participant;
+    }
+
+    private static String roomKey(String roomName) {
+        return "room:" + roomName;
+    }
+
+    private Bucket bucket(String key, double perSecond, int burst, long now) {
+        return buckets.computeIfAbsent(key, k -> new Bucket(k, perSecond, burst, windowLimit(perSecond, burst), now));
+    }
+
+    // A window admits its steady-state share plus one burst
+    private long windowLimit(double perSecond, int burst) {
+        return (long) Math.ceil(perSecond * windowSeconds) + burst;
+    }
+
+    void reconcile() {
+        try {
+            long nowMillis = System.currentTimeMillis();
+            long windowMillis = TimeUnit.SECONDS.toMillis(windowSeconds);
+            long window = nowMillis / windowMillis;
+            long windowEndNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos((window + 1) * windowMillis - nowMillis);
+
+            List<Bucket> pending = new ArrayList<>();
+            long idleBefore = System.nanoTime() - TimeUnit.SECONDS.toNanos(idleEvictSeconds);
+            for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+                Bucket bucket = entry.getValue();
+                if (bucket.unsynced.get() > 0) {
+                    pending.add(bucket);
+                } else if (bucket.lastUsedNanos - idleBefore < 0) {
+                    buckets.remove(entry.getKey(), bucket);
+                }
+            }
+
+            for (int from = 0; from < pending.size(); from += MAX_KEYS_PER_RECONCILE) {
+                sync(pending.subList(from, Math.min(from + MAX_KEYS_PER_RECONCILE, pending.size())), window, windowEndNanos);
+            }
+        } catch (Exception e) {
+            // Local buckets keep enforcing their own limits until Redis is reachable again
+            log.warn("Rate limit reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    private void sync(List<Bucket> batch, long window, long windowEndNanos) {
+        List<String> windowKeys = new ArrayList<>(batch.size());
+        List<Long> increments = new ArrayList<>(batch.size());
+        for (Bucket bucket : batch) {
+            windowKeys.add(RedisKeyUtil.getRateLimitKey(bucket.key, window));
+            increments.add(bucket.unsynced.getAndSet(0));
+        }
+
+        List<Long> totals = rateLimitRepository.addToWindowCounters(windowKeys, increments, windowSeconds * 2L);
+        for (int i = 0; i < batch.size(); i++) {
+            Bucket bucket = batch.get(i);
+            if (totals.get(i) > bucket.windowLimit) {
+                bucket.blockedUntilNanos = windowEndNanos;
+                log.info("Rate limit bucket {} closed until the end of window {} ({} sends)", bucket.key, window, totals.get(i));
+            }
+        }
+    }
+
+    // GCRA token bucket: a single CAS-updated "theoretical arrival time" stands for the token count
+    static final class Bucket {
+
+        private final String key;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final long windowLimit;
+        private final AtomicLong theoreticalArrival;
+        private final AtomicLong unsynced = new AtomicLong();
+        private volatile long blockedUntilNanos;
+        private volatile long lastUsedNanos;
+
+        Bucket(String key, double perSecond, int burst, long windowLimit, long now) {
+            this.key = key;
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            this.burstNanos = intervalNanos * Math.max(1, burst);
+            this.windowLimit = windowLimit;
+            this.theoreticalArrival = new AtomicLong(now);
+            this.blockedUntilNanos = now;
+            this.lastUsedNanos = now;
+        }
+
+        boolean tryAcquire(long now) {
+            if (now - blockedUntilNanos < 0) {
+                return false;
+            }
+            while (true) {
+                long arrival = theoreticalArrival.get();
+                long next = (arrival - now > 0 ? arrival : now) + intervalNanos;
+                if (next - now > burstNanos) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(arrival, next)) {
+                    unsynced.incrementAndGet();
+                    lastUsedNanos = now;
+                    return true;
+                }
+            }
+        }
+
+        // Takes a token even when none is left; the debt is paid off before the bucket admits again
+        void charge(long now) {
+            theoreticalArrival.getAndUpdate(arrival -> (arrival - now > 0 ? arrival : now) + intervalNanos);
+            unsynced.incrementAndGet();
+            lastUsedNanos = now;
+        }
+
+        // How long until the next send would be admitted: the rest of a closed window, or until a token is back
+        long waitNanos(long now) {
+            if (now - blockedUntilNanos < 0) {
+                return blockedUntilNanos - now;
+            }
+            long arrival = theoreticalArrival.get();
+            return Math.max(0, (arrival - now > 0 ? arrival : now) + intervalNanos - burstNanos - now);
+        }
+
+        void refund() {
+            theoreticalArrival.addAndGet(-intervalNanos);
+            unsynced.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ai.freightfox.chat.app.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+// Bounded outbound buffer for one socket, drained by at most one writer task at a time
+@Slf4j
+public class SessionOutboundQueue {
+
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST,
+        DISCONNECT
+    }
+
+    private final WebSocketSession session;
+    private final int capacity;
+    private final BlockingQueue<WebSocketMessage<?>> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final CloseStatus overflowCloseStatus;
+    private final Executor writerExecutor;
+    private final RoomOutboundMetrics roomMetrics;
+
+    private final AtomicBoolean writerScheduled = new AtomicBoolean();
+    private final Runnable drainTask = this::drain;
+
+    // While held, frames are parked instead of written, e.g. while missed history is replayed to a resumed socket
+    private final Object holdLock = new Object();
+    private volatile boolean held;
+    private List<WebSocketMessage<?>> heldFrames;
+
+    public SessionOutboundQueue(WebSocketSession session, int capacity, OverflowPolicy overflowPolicy,
+                                CloseStatus overflowCloseStatus, Executor writerExecutor, RoomOutboundMetrics roomMetrics) {
+        this.session = session;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.overflowCloseStatus = overflowCloseStatus;
+        this.writerExecutor = writerExecutor;
+        this.roomMetrics = roomMetrics;
+    }
+
+    public void enqueue(WebSocketMessage<?> message) {
+        if (held && holdFrame(message)) {
+            return;
+        }
+        offer(message);
+    }
+
+    private void offer(WebSocketMessage<?> message) {
+        if (!queue.offer(message)) {
+            switch (overflowPolicy) {
+                case DROP_NEWEST -> {
+                    roomMetrics.recordDrop();
+                    return;
+                }
+                case DROP_OLDEST -> {
+                    while (!queue.offer(message)) {
+                        if (queue.poll() != null) {
+                            roomMetrics.recordDrop();
+                        }
+                    }
+                }
+                case DISCONNECT -> {
+                    roomMetrics.recordDrop();
+                    disconnectSlowConsumer();
+                    return;
+                }
+            }
+        }
+        scheduleWriter();
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    // Must be called before the queue is shared, so no frame can slip past the hold
+    public void hold() {
+        synchronized (holdLock) {
+            heldFrames = new ArrayList<>();
+            held = true;
+        }
+    }
+
+    // Queues the parked frames the filter accepts, ahead of anything enqueued after the release
+    public void release(Predicate<WebSocketMessage<?>> filter) {
+        synchronized (holdLock) {
+            if (!held) {
+                return;
+            }
+            for (WebSocketMessage<?> frame : heldFrames) {
+                if (filter.test(frame)) {
+                    offer(frame);
+                }
+            }
+            // Cleared last: an enqueue racing with the release waits on the lock and lands behind the parked frames
+            heldFrames = null;
+            held = false;
+        }
+    }
+
+    public void clear() {
+        queue.clear();
+    }
+
+    private boolean holdFrame(WebSocketMessage<?> message) {
+        synchronized (holdLock) {
+            if (!held) {
+                return false;
+            }
+            // Dropping a parked frame would leave a gap after the replay, so a full hold always disconnects
+            if (heldFrames.size() >= capacity) {
+                roomMetrics.recordDrop();
+                heldFrames.clear();
+                disconnectSlowConsumer();
+                return true;
+            }
+            heldFrames.add(message);
+            return true;
+        }
+    }
+
+    private void scheduleWriter() {
+        if (writerScheduled.compareAndSet(false, true)) {
+            try {
+                writerExecutor.execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                writerScheduled.set(false);
+                log.warn("Writer rejected for session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            WebSocketMessage<?> message;
+            while ((message = queue.poll()) != null) {
+                if (!session.isOpen()) {
+                    queue.clear();
+                    return;
+                }
+                session.sendMessage(message);
+            }
+        } catch (Exception e) {
+            log.error("Failed to send to session {}: {}", session.getId(), e.getMessage());
+            queue.clear();
+            closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+        } finally {
+            writerScheduled.set(false);
+        }
+
+        // A message enqueued between the last poll and clearing the flag would otherwise wait for the next broadcast
+        if (!queue.isEmpty() && session.isOpen()) {
+            scheduleWriter();
+        }
+    }
+
+    private void disconnectSlowConsumer() {
+        if (session.isOpen()) {
+            log.warn("Outbound queue full for session {}, disconnecting with {}", session.getId(), overflowCloseStatus);
+            roomMetrics.recordDisconnect();
+            queue.clear();
+            closeQuietly(overflowCloseStatus);
+        }
+    }
+
+    private void closeQuietly(CloseStatus closeStatus) {
+        try {
+            session.close(closeStatus);
+        } catch (Exception e) {
+            log.debug("Failed to close session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.dto.response.MessagePageResponse;
+import ai.freightfox.chat.app.dto.response.ResumeStatusFrame;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.BadRequestException;
+import ai.freightfox.chat.app.model.MessageModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+// Gap-free reconnect: the socket is registered with live frames held back, history after the client's last seen id
+// is written straight to the socket, then the held frames are released minus the ones the replay already covered
+@Slf4j
+@Service
+public class SessionResumeService {
+
+    private static final String ID_PREFIX = "{\"id\":\"";
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private WebSocketSessionManager sessionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Executor websocketWriterExecutor;
+
+    @Value("${chat.websocket.resume.batch-size:200}")
+    private int replayBatchSize;
+
+    @Value("${chat.websocket.resume.max-replay:5000}")
+    private int maxReplay;
+
+    public void resume(String roomName, WebSocketSession session, String lastSeenId) {
+        // Registering first subscribes the room, so anything stored after the history read below is held, not lost
+        sessionManager.addSession(roomName, session, true);
+        websocketWriterExecutor.execute(() -> replay(roomName, session, lastSeenId));
+    }
+
+    private void replay(String roomName, WebSocketSession session, String lastSeenId) {
+        Set<String> replayedIds = new HashSet<>();
+        try {
+            String cursor = lastSeenId;
+            boolean complete = true;
+            while (session.isOpen()) {
+                MessagePageResponse page = messageService.getMessagesAfter(roomName, cursor, replayBatchSize);
+                // The outbound queue is held, so this thread is the socket's only writer until the release below
+                for (MessageModel messageModel : page.getMessages()) {
+                    session.sendMessage(new TextMessage(objectMapper.writeValueAsBytes(messageModel)));
+                    replayedIds.add(messageModel.getId());
+                }
+                if (!page.isHasMore()) {
+                    cursor = null;
+                    break;
+                }
+                cursor = page.getNextCursor();
+                if (replayedIds.size() >= maxReplay) {
+                    complete = false;
+                    break;
+                }
+            }
+
+            if (session.isOpen()) {
+                session.sendMessage(new TextMessage(objectMapper.writeValueAsBytes(
+                        new ResumeStatusFrame(replayedIds.size(), complete, cursor))));
+            }
+            log.info("Replayed {} missed messages to session {} in room '{}'", replayedIds.size(), session.getId(), roomName);
+        } catch (BadRequestException e) {
+            log.warn("Rejected resume of session {} from '{}': {}", session.getId(), lastSeenId, e.getMessage());
+            closeQuietly(session, CloseStatus.BAD_DATA.withReason("Invalid lastSeen"));
+        } catch (Exception e) {
+            log.error("Failed to replay missed messages to session {}: {}", session.getId(), e.getMessage());
+            closeQuietly(session, CloseStatus.SERVER_ERROR);
+        } finally {
+            sessionManager.releaseLiveFrames(session, frame -> !replayedIds.contains(messageId(frame)));
+        }
+    }
+
+    // Message frames start with the id (spliced in by the send script or written first by Jackson)
+    static String messageId(WebSocketMessage<?> frame) {
+        if (frame instanceof TextMessage textMessage) {
+            String payload = textMessage.getPayload();
+            if (payload.startsWith(ID_PREFIX)) {
+                int end = payload.indexOf('"', ID_PREFIX.length());
+                if (end > 0) {
+                    return payload.substring(ID_PREFIX.length(), end);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void closeQuietly(WebSocketSession session, CloseStatus closeStatus) {
+        try {
+            session.close(closeStatus);
+        } catch (Exception e) {
+            log.debug("Failed to close session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.model.TypingUpdate;
+import ai.freightfox.chat.app.repository.TypingIndicatorRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Ephemeral typing indicators. Signals are only collected here; every interval each room with new signals gets one
+// script call that publishes the room's typists on the room channel, and only when the set of typists changed.
+// Nothing is stored in the message history, and a typist who stops refreshing drops out after ttl-ms.
+@Slf4j
+@Service
+public class TypingIndicatorService {
+
+    @Autowired
+    private TypingIndicatorRepository typingIndicatorRepository;
+
+    @Value("${chat.typing.interval-ms:500}")
+    private long intervalMs;
+
+    @Value("${chat.typing.ttl-ms:6000}")
+    private long ttlMs;
+
+    @Value("${chat.typing.max-rooms-per-flush:1000}")
+    private int maxRoomsPerFlush;
+
+    // Room -> participant -> latest signal; an inner map is only touched inside compute, or after it was removed
+    private final ConcurrentHashMap<String, Map<String, Boolean>> pendingSignals = new ConcurrentHashMap<>();
+
+    // Room -> time at which this pod republishes it so typists that went quiet are cleared
+    private final ConcurrentHashMap<String, Long> expiryChecks = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "typing-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        flushScheduler.scheduleWithFixedDelay(this::flush, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Later signals of the same participant within an interval replace earlier ones
+    public void signal(String roomName, String participantName, boolean typing) {
+        if (roomName == null || participantName == null) {
+            return;
+        }
+        pendingSignals.compute(roomName, (room, signals) -> {
+            Map<String, Boolean> roomSignals = signals != null ? signals : new HashMap<>();
+            roomSignals.put(participantName, typing);
+            return roomSignals;
+        });
+    }
+
+    void flush() {
+        long now = System.currentTimeMillis();
+        Map<String, Map<String, Boolean>> signalsByRoom = new LinkedHashMap<>();
+        for (String roomName : pendingSignals.keySet()) {
+            if (signalsByRoom.size() >= maxRoomsPerFlush) {
+                break;
+            }
+            Map<String, Boolean> signals = pendingSignals.remove(roomName);
+            if (signals != null) {
+                signalsByRoom.put(roomName, signals);
+            }
+        }
+        // Rooms without new signals whose earliest typist has expired by now get an empty update to publish the removal
+        for (Map.Entry<String, Long> check : expiryChecks.entrySet()) {
+            if (signalsByRoom.size() >= maxRoomsPerFlush) {
+                break;
+            }
+            if (check.getValue() <= now) {
+                signalsByRoom.putIfAbsent(check.getKey(), new HashMap<>());
+            }
+        }
+
+        List<TypingUpdate> updates = new ArrayList<>(signalsByRoom.size());
+        signalsByRoom.forEach((roomName, signals) -> updates.add(new TypingUpdate(roomName, signals)));
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Long> nextExpiries = typingIndicatorRepository.publishTypingUpdates(updates, ttlMs);
+            for (int i = 0; i < updates.size(); i++) {
+                String roomName = updates.get(i).getRoomName();
+                long nextExpiry = nextExpiries.get(i);
+                if (nextExpiry < 0) {
+                    expiryChecks.remove(roomName);
+                } else {
+                    expiryChecks.put(roomName, now + nextExpiry);
+                }
+            }
+        } catch (Exception e) {
+            // Signals are dropped rather than retried: clients repeat them while typing and expire stale ones after ttlMs
+            log.warn("Publishing typing updates failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdownNow();
+    }
+}
@@ -1,35 +1,73 @@
 package ai.freightfox.chat.app.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import ai.freightfox.chat.app.dto.response.RoomOutboundStatsResponse;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import jakarta.annotation.PostConstruct;
+import java.io.IOException;
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
 
 @Slf4j
 @Service
 public class WebSocketSessionManager {
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private RoomSubscriptionManager roomSubscriptionManager;
+
+    @Autowired
+    private Executor websocketWriterExecutor;
+
+    @Autowired
+    private Executor fanOutExecutor;
 
     @Value("${server.port:8080}")
     private String serverPort;
 
+    @Value("${chat.websocket.outbound.queue-capacity:256}")
+    private int outboundQueueCapacity;
+
+    @Value("${chat.websocket.outbound.overflow-policy:DROP_OLDEST}")
+    private SessionOutboundQueue.OverflowPolicy overflowPolicy;
+
+    @Value("${chat.websocket.outbound.overflow-close-code:4500}")
+    private int overflowCloseCode;
+
+    // Rooms with at least this many local sessions are delivered in parallel shards
+    @Value("${chat.websocket.fanout.shard-threshold:2048}")
+    private int fanOutShardThreshold;
+
+    @Value("${chat.websocket.fanout.shard-size:512}")
+    private int fanOutShardSize;
+
     @Getter
     private String podInstanceId;
 
     // Local session storage (each pod stores only its own sessions)
     private final ConcurrentHashMap<String, CopyOnWriteArraySet<WebSocketSession>> localSessions = new ConcurrentHashMap<>();
 
+    // Outbound queue per session id, and outbound counters per room
+    private final ConcurrentHashMap<String, SessionOutboundQueue> outboundQueues = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, RoomOutboundMetrics> roomOutboundMetrics = new ConcurrentHashMap<>();
+
     @PostConstruct
     public void initPodInstanceId() {
         try {
@@ -43,8 +81,31 @@ public class WebSocketSessionManager {
     }
 
     public void addSession(String roomName, WebSocketSession session) {
-        // Store session locally on this pod
-        localSessions.computeIfAbsent(roomName, k -> new CopyOnWriteArraySet<>()).add(session);
+        addSession(roomName, session, false);
+    }
+
+    // With holdLiveFrames, broadcasts are parked until releaseLiveFrames so the caller can write missed history first
+    public void addSession(String roomName, WebSocketSession session, boolean holdLiveFrames) {
+        RoomOutboundMetrics metrics = roomOutboundMetrics.computeIfAbsent(roomName, room -> new RoomOutboundMetrics());
+        SessionOutboundQueue outboundQueue = new SessionOutboundQueue(session, outboundQueueCapacity, overflowPolicy,
+                new CloseStatus(overflowCloseCode, "Slow consumer"), websocketWriterExecutor, metrics);
+        if (holdLiveFrames) {
+            outboundQueue.hold();
+        }
+        outboundQueues.put(session.getId(), outboundQueue);
+
+        // Store session locally on this pod; compute keeps this atomic with removal of an emptied room
+        localSessions.compute(roomName, (room, sessions) -> {
+            CopyOnWriteArraySet<WebSocketSession> roomSessions = sessions != null ? sessions : new CopyOnWriteArraySet<>();
+            if (roomSessions.add(session)) {
+                roomSubscriptionManager.acquire(room);
+            }
+            // Puts the metrics back if the room emptied, and dropped them, since they were looked up above
+            roomOutboundMetrics.putIfAbsent(room, metrics);
+            return roomSessions;
+        });
+        // The Redis SUBSCRIBE is a network call, so it runs after the compute has let go of the map bin
+        roomSubscriptionManager.subscribe(roomName);
         
         log.info("Session {} added to room '{}' on pod {}. Local connections: {}", 
                 session.getId(), roomName, podInstanceId, localSessions.get(roomName).size());
@@ -52,21 +113,66 @@ public class WebSocketSessionManager {
 
     public void removeSession(String roomName, WebSocketSession session) {
         // Remove from local storage
-        CopyOnWriteArraySet<WebSocketSession> sessions = localSessions.get(roomName);
-        if (sessions != null) {
-            sessions.remove(session);
-            if (sessions.isEmpty()) {
-                localSessions.remove(roomName);
+        CopyOnWriteArraySet<WebSocketSession> sessions = localSessions.computeIfPresent(roomName, (room, roomSessions) -> {
+            if (roomSessions.remove(session)) {
+                roomSubscriptionManager.release(room);
             }
-        }
+            if (roomSessions.isEmpty()) {
+                roomOutboundMetrics.remove(room);
+                return null;
+            }
+            return roomSessions;
+        });
+        discardOutboundQueue(session);
         
         log.info("Session {} removed from room '{}' on pod {}. Local connections: {}", 
                 session.getId(), roomName, podInstanceId, 
                 sessions != null ? sessions.size() : 0);
     }
 
+    // Closes and unregisters every local socket of a room and drops the room's outbound state; returns how many closed
+    public int closeRoomSessions(String roomName, CloseStatus status) {
+        CopyOnWriteArraySet<WebSocketSession> sessions = localSessions.remove(roomName);
+        roomOutboundMetrics.remove(roomName);
+        if (sessions == null) {
+            return 0;
+        }
+
+        // Emptied under the set's lock, so a broadcast still holding the set cannot release a session a second time
+        List<WebSocketSession> closing = new ArrayList<>();
+        sessions.removeIf(closing::add);
+        for (WebSocketSession session : closing) {
+            roomSubscriptionManager.release(roomName);
+            discardOutboundQueue(session);
+            try {
+                session.close(status);
+            } catch (IOException e) {
+                log.debug("Failed to close session {} of room '{}': {}", session.getId(), roomName, e.getMessage());
+            }
+        }
+        return closing.size();
+    }
+
+    // Queues a frame for one socket behind anything already waiting for it; false when the socket is gone
+    public boolean sendToSession(WebSocketSession session, WebSocketMessage<?> frame) {
+        SessionOutboundQueue outboundQueue = outboundQueues.get(session.getId());
+        if (outboundQueue != null && session.isOpen()) {
+            outboundQueue.enqueue(frame);
+            return true;
+        }
+        return false;
+    }
+
+    // Starts live delivery for a held session; parked frames rejected by the filter are dropped
+    public void releaseLiveFrames(WebSocketSession session, Predicate<WebSocketMessage<?>> filter) {
+        SessionOutboundQueue outboundQueue = outboundQueues.get(session.getId());
+        if (outboundQueue != null) {
+            outboundQueue.release(filter);
+        }
+    }
+
     // This method broadcasts to LOCAL sessions only (called by Redis subscriber)
-    public void broadcastToLocalSessions(String roomName, Object message) {
+    public void broadcastToLocalSessions(String roomName, byte[] payload) {
         CopyOnWriteArraySet<WebSocketSession> sessions = localSessions.get(roomName);
         
         if (sessions == null || sessions.isEmpty()) {
@@ -75,29 +181,109 @@ public class WebSocketSessionManager {
         }
 
         try {
-            String messageJson = objectMapper.writeValueAsString(message);
-            
             log.info("Broadcasting to {} local WebSocket sessions in room '{}' on pod {}", 
                     sessions.size(), roomName, podInstanceId);
+
+            // TextMessage is immutable, so one frame per message is shared by every recipient
+            TextMessage frame = new TextMessage(payload);
             
-            // Send to all active local sessions
-            sessions.removeIf(session -> {
-                try {
-                    if (session.isOpen()) {
-                        session.sendMessage(new TextMessage(messageJson));
+            // Hand the frame to each session's outbound queue; writes happen on the writer executor
+            if (sessions.size() >= fanOutShardThreshold) {
+                broadcastSharded(roomName, sessions, frame);
+            } else {
+                sessions.removeIf(session -> {
+                    if (offerFrame(session, frame)) {
                         return false; // Keep session
-                    } else {
-                        log.debug("Removing closed session {} from room '{}'", session.getId(), roomName);
-                        return true; // Remove closed session
                     }
-                } catch (Exception e) {
-                    log.error("Failed to send to session {}: {}", session.getId(), e.getMessage());
-                    return true; // Remove failed session
-                }
-            });
+                    dropDeadSession(roomName, session);
+                    return true; // Remove closed session
+                });
+            }
             
         } catch (Exception e) {
             log.error("Failed to broadcast message to local sessions: {}", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Scatter the room across shards in parallel, then remove dead sessions in a single pass
+    private void broadcastSharded(String roomName, CopyOnWriteArraySet<WebSocketSession> sessions, TextMessage frame) {
+        WebSocketSession[] snapshot = sessions.toArray(new WebSocketSession[0]);
+        Set<WebSocketSession> deadSessions = ConcurrentHashMap.newKeySet();
+
+        int shardCount = (snapshot.length + fanOutShardSize - 1) / fanOutShardSize;
+        CompletableFuture<?>[] shards = new CompletableFuture<?>[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            int from = shard * fanOutShardSize;
+            int to = Math.min(from + fanOutShardSize, snapshot.length);
+            shards[shard] = CompletableFuture.runAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    if (!offerFrame(snapshot[i], frame)) {
+                        deadSessions.add(snapshot[i]);
+                    }
+                }
+            }, fanOutExecutor);
+        }
+        CompletableFuture.allOf(shards).join();
+
+        if (!deadSessions.isEmpty()) {
+            sessions.removeIf(session -> {
+                if (deadSessions.contains(session)) {
+                    dropDeadSession(roomName, session);
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    private boolean offerFrame(WebSocketSession session, TextMessage frame) {
+        return sendToSession(session, frame);
+    }
+
+    private void dropDeadSession(String roomName, WebSocketSession session) {
+        log.debug("Removing closed session {} from room '{}'", session.getId(), roomName);
+        discardOutboundQueue(session);
+        roomSubscriptionManager.release(roomName);
+    }
+
+    // Distinct participants with an open socket on this pod, per room
+    public Map<String, Set<String>> getLocalParticipantsByRoom() {
+        Map<String, Set<String>> participantsByRoom = new HashMap<>();
+        localSessions.forEach((roomName, sessions) -> {
+            Set<String> participants = new TreeSet<>();
+            for (WebSocketSession session : sessions) {
+                Object participant = session.getAttributes().get("participantName");
+                if (participant != null && session.isOpen()) {
+                    participants.add((String) participant);
+                }
+            }
+            if (!participants.isEmpty()) {
+                participantsByRoom.put(roomName, participants);
+            }
+        });
+        return participantsByRoom;
+    }
+
+    public RoomOutboundStatsResponse getRoomOutboundStats(String roomName) {
+        Set<WebSocketSession> sessions = localSessions.getOrDefault(roomName, new CopyOnWriteArraySet<>());
+        long queuedMessages = 0;
+        for (WebSocketSession session : sessions) {
+            SessionOutboundQueue outboundQueue = outboundQueues.get(session.getId());
+            if (outboundQueue != null) {
+                queuedMessages += outboundQueue.size();
+            }
+        }
+
+        RoomOutboundMetrics metrics = roomOutboundMetrics.get(roomName);
+        return new RoomOutboundStatsResponse(roomName, sessions.size(), queuedMessages,
+                metrics != null ? metrics.getDroppedMessages() : 0,
+                metrics != null ? metrics.getSlowConsumerDisconnects() : 0);
+    }
+
+    private void discardOutboundQueue(WebSocketSession session) {
+        SessionOutboundQueue outboundQueue = outboundQueues.remove(session.getId());
+        if (outboundQueue != null) {
+            outboundQueue.clear();
+        }
+    }
+}
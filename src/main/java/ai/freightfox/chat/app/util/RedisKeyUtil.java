@@ -6,6 +6,10 @@ import org.springframework.stereotype.Component;
 public class RedisKeyUtil {
     
     private static final String BASE_KEY = "chatroom:";
+    private static final String ROOM_INDEX_KEY = "chatrooms:index:";
+    private static final String PARTICIPANT_KEY = "participant:";
+    private static final String PARTICIPANT_ROOMS_SUFFIX = ":rooms";
+    private static final String READ_CURSORS_SUFFIX = ":read";
     
     public static String getRoomHashKey(String roomName) {
         return BASE_KEY + roomName;
@@ -19,7 +23,80 @@ public class RedisKeyUtil {
         return BASE_KEY + roomName + ":messages";
     }
     
+    // Number of messages spilled from the head of a message list into the on-disk archive
+    public static String getTrimmedCountKey(String messageRoomKey) {
+        return messageRoomKey + ":trimmed";
+    }
+
     public static String getChannelKey(String roomName) {
         return BASE_KEY + roomName + ":channel";
     }
-}
\ No newline at end of file
+
+    // Sorted set of pods with connected participants in the room, scored by heartbeat expiry
+    public static String getPresenceKey(String roomName) {
+        return BASE_KEY + roomName + ":presence";
+    }
+
+    // Participants connected to one pod, refreshed by that pod's heartbeat
+    public static String getPodPresenceKey(String roomName, String podInstanceId) {
+        return getPresenceKey(roomName) + ":" + podInstanceId;
+    }
+
+    // Cluster-wide send counter of one rate limit bucket for one window
+    public static String getRateLimitKey(String bucketKey, long window) {
+        return "ratelimit:" + bucketKey + ":" + window;
+    }
+
+    // Sorted set of room names scored by creation time in epoch millis
+    public static String getRoomCreatedIndexKey() {
+        return ROOM_INDEX_KEY + "created";
+    }
+
+    // Sorted set of room names scored by the time of the last message sent in epoch millis
+    public static String getRoomActivityIndexKey() {
+        return ROOM_INDEX_KEY + "activity";
+    }
+
+    // Pub/sub channel every pod listens on for room lifecycle events
+    public static String getRoomControlChannelKey() {
+        return "chatrooms:control";
+    }
+
+    // Sorted set of histories of deleted rooms still being trimmed, scored by deletion time
+    public static String getRoomReclaimSetKey() {
+        return "chatrooms:reclaim";
+    }
+
+    // Where the history of a deleted room is moved to until it has been trimmed away
+    public static String getRoomReclaimKey(String roomName, String deletionId) {
+        return getRoomReclaimSetKey() + ":" + roomName + ":" + deletionId;
+    }
+
+    // Reverse membership index: names of the rooms a participant has joined
+    public static String getParticipantRoomsKey(String participantName) {
+        return PARTICIPANT_KEY + participantName + PARTICIPANT_ROOMS_SUFFIX;
+    }
+
+    // Hash of room name -> id of the last message the participant has read there
+    public static String getReadCursorsKey(String participantName) {
+        return PARTICIPANT_KEY + participantName + READ_CURSORS_SUFFIX;
+    }
+
+    // Parts of the per-participant keys, for scripts that build them from participant names they read
+    public static String getParticipantKeyPrefix() {
+        return PARTICIPANT_KEY;
+    }
+
+    public static String getParticipantRoomsKeySuffix() {
+        return PARTICIPANT_ROOMS_SUFFIX;
+    }
+
+    public static String getReadCursorsKeySuffix() {
+        return READ_CURSORS_SUFFIX;
+    }
+
+    // Sorted set of who is typing in a room, scored by when their signal expires
+    public static String getTypingKey(String roomName) {
+        return BASE_KEY + roomName + ":typing";
+    }
+}
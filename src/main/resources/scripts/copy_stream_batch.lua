@@ -0,0 +1,21 @@
+-- Appends one batch of a list-to-stream migration to the temporary stream, if the caller still holds the lock.
+-- KEYS[1] temporary stream, KEYS[2] number of positions copied so far, KEYS[3] migration lock
+-- ARGV[1] lock token, ARGV[2] lock ttl in ms, ARGV[3] list position of the first payload, ARGV[4..n] payloads in order
+-- Returns the new number of copied positions, -1 when the lock is no longer held, -2 when the batch does not start
+-- where the copy stopped
+if redis.call('GET', KEYS[3]) ~= ARGV[1] then
+    return -1
+end
+
+local start = tonumber(ARGV[3])
+if tonumber(redis.call('GET', KEYS[2]) or '0') ~= start then
+    return -2
+end
+
+-- History ids keep the list position in their time part, which puts them below the id of every live send
+for i = 4, #ARGV do
+    redis.call('XADD', KEYS[1], string.format('%d-1', start + i - 4), 'm', ARGV[i])
+end
+redis.call('INCRBY', KEYS[2], #ARGV - 3)
+redis.call('PEXPIRE', KEYS[3], ARGV[2])
+return start + #ARGV - 3
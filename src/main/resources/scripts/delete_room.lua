@@ -0,0 +1,32 @@
+-- Deletes a room without blocking on the size of its history.
+-- KEYS[1] room hash, KEYS[2] participant set, KEYS[3] message history, KEYS[4] trimmed counter,
+-- KEYS[5] created index, KEYS[6] activity index, KEYS[7] set of histories to reclaim, KEYS[8] key the history moves to,
+-- KEYS[9] room control channel
+-- ARGV[1] room name, ARGV[2] control event, ARGV[3] current time in ms, ARGV[4] participant key prefix,
+-- ARGV[5] read cursor key suffix, ARGV[6] participant rooms key suffix (from RedisKeyUtil)
+-- Participants' read cursor hashes and room sets are derived from the members, so this script needs them on the same
+-- node as the room keys (no cluster mode).
+-- Returns 1, or 0 when the room does not exist
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return 0
+end
+-- The room name can be reused at once, so members' read positions and room set entries for it go now; otherwise
+-- the old read cursors would mark a recreated room as read
+for _, member in ipairs(redis.call('SMEMBERS', KEYS[2])) do
+    local ok, name = pcall(cjson.decode, member)
+    if ok and type(name) == 'string' then
+        redis.call('HDEL', ARGV[4] .. name .. ARGV[5], ARGV[1])
+        redis.call('SREM', ARGV[4] .. name .. ARGV[6], ARGV[1])
+    end
+end
+redis.call('UNLINK', KEYS[1], KEYS[2], KEYS[4])
+redis.call('ZREM', KEYS[5], ARGV[1])
+redis.call('ZREM', KEYS[6], ARGV[1])
+-- The history is renamed rather than freed here, so the room name can be reused at once while the old entries
+-- are trimmed away in chunks by reclaim_room_data.lua
+if redis.call('EXISTS', KEYS[3]) == 1 then
+    redis.call('RENAME', KEYS[3], KEYS[8])
+    redis.call('ZADD', KEYS[7], ARGV[3], KEYS[8])
+end
+redis.call('PUBLISH', KEYS[9], ARGV[2])
+return 1
@@ -0,0 +1,23 @@
+-- Completes a list-to-stream migration in one atomic step, so no send can land between the merge and the rename.
+-- KEYS[1] temporary stream with the copied history, KEYS[2] room message stream, KEYS[3] list being migrated,
+-- KEYS[4] copied counter, KEYS[5] trimmed counter of the list, KEYS[6] room hash, KEYS[7] migration lock
+-- ARGV[1] lock token
+-- Returns the number of live entries moved behind the history, or -1 when the lock is no longer held
+if redis.call('GET', KEYS[7]) ~= ARGV[1] then
+    return -1
+end
+
+local moved = 0
+if redis.call('EXISTS', KEYS[6]) == 0 then
+    -- The room was deleted while its history was being copied
+    redis.call('UNLINK', KEYS[1])
+elseif redis.call('EXISTS', KEYS[1]) == 1 then
+    -- Sends made during the copy went to the room stream with current-time ids, which sort after every history id
+    for _, entry in ipairs(redis.call('XRANGE', KEYS[2], '-', '+')) do
+        redis.call('XADD', KEYS[1], entry[1], unpack(entry[2]))
+        moved = moved + 1
+    end
+    redis.call('RENAME', KEYS[1], KEYS[2])
+end
+redis.call('UNLINK', KEYS[3], KEYS[4], KEYS[5])
+return moved
@@ -0,0 +1,67 @@
+-- Reads one page of the room directory, highest score first, with the counts of every returned room.
+-- KEYS[1] index to page through, KEYS[2] created index, KEYS[3] activity index
+-- ARGV[1] cursor score ('+inf' on the first page), ARGV[2] cursor room name ('' on the first page), ARGV[3] page size,
+-- ARGV[4] room name prefix ('' for none), ARGV[5] message store type (list or stream), ARGV[6] max index entries to scan
+-- Per-room keys are derived from the room names, so this script needs every room key on one node (no cluster mode).
+-- Returns {hasMore, nextCursorScore, nextCursorName, then roomName, createdAt, lastActivityAt, participants, messages
+-- for each room}; a missing score is returned as ''
+local cursorScore = ARGV[1]
+local cursorName = ARGV[2]
+local limit = tonumber(ARGV[3])
+local prefix = ARGV[4]
+local maxScan = tonumber(ARGV[6])
+local chunk = 100
+
+local rows = {}
+local found = 0
+local scanned = 0
+local offset = 0
+local hasMore = 0
+local lastScore = ''
+local lastName = ''
+
+while hasMore == 0 do
+    local entries = redis.call('ZREVRANGEBYSCORE', KEYS[1], cursorScore, '-inf', 'WITHSCORES', 'LIMIT', offset, chunk)
+    offset = offset + #entries / 2
+
+    for i = 1, #entries, 2 do
+        local name = entries[i]
+        local score = entries[i + 1]
+        -- Ties are returned in reverse name order, so entries up to and including the cursor were on earlier pages
+        if cursorName == '' or score ~= cursorScore or name < cursorName then
+            if found == limit or scanned == maxScan then
+                hasMore = 1
+                break
+            end
+            scanned = scanned + 1
+            lastScore = score
+            lastName = name
+
+            if string.sub(name, 1, #prefix) == prefix and redis.call('EXISTS', 'chatroom:' .. name) == 1 then
+                local messages
+                if ARGV[5] == 'stream' then
+                    messages = redis.call('XLEN', 'chatroom:' .. name .. ':messages')
+                else
+                    messages = redis.call('LLEN', 'chatroom:' .. name .. ':messages')
+                            + tonumber(redis.call('GET', 'chatroom:' .. name .. ':messages:trimmed') or '0')
+                end
+                rows[#rows + 1] = name
+                rows[#rows + 1] = redis.call('ZSCORE', KEYS[2], name) or ''
+                rows[#rows + 1] = redis.call('ZSCORE', KEYS[3], name) or ''
+                rows[#rows + 1] = redis.call('SCARD', 'chatroom:' .. name .. ':participants')
+                rows[#rows + 1] = messages
+                found = found + 1
+            end
+        end
+    end
+
+    if #entries < chunk * 2 then
+        break
+    end
+end
+
+local result = {hasMore, lastScore, lastName}
+for i = 1, #rows do
+    result[#result + 1] = rows[i]
+end
+return result
@@ -0,0 +1,45 @@
+-- Reads every room of a participant with its newest message.
+-- KEYS[1] the participant's room set, KEYS[2] activity index
+-- ARGV[1] participant member as stored in participant sets, ARGV[2] message store type (list or stream)
+-- Rooms deleted since, or recreated without the participant, are dropped from the room set on the way.
+-- Per-room keys are derived from the room names, so this script needs every room key on one node (no cluster mode).
+-- Returns {roomName, lastActivityAt, messageCount, lastMessageId, lastMessagePayload, ...}; '' when absent
+local rows = {}
+for _, room in ipairs(redis.call('SMEMBERS', KEYS[1])) do
+    local roomKey = 'chatroom:' .. room
+    if redis.call('EXISTS', roomKey) == 1 and redis.call('SISMEMBER', roomKey .. ':participants', ARGV[1]) == 1 then
+        local messagesKey = roomKey .. ':messages'
+        local count = 0
+        local lastId = ''
+        local lastPayload = ''
+        if ARGV[2] == 'stream' then
+            count = redis.call('XLEN', messagesKey)
+            local last = redis.call('XREVRANGE', messagesKey, '+', '-', 'COUNT', 1)
+            if #last > 0 then
+                lastId = last[1][1]
+                local fields = last[1][2]
+                for j = 1, #fields, 2 do
+                    if fields[j] == 'm' then
+                        lastPayload = fields[j + 1]
+                    end
+                end
+            end
+        else
+            local length = redis.call('LLEN', messagesKey)
+            count = length + tonumber(redis.call('GET', messagesKey .. ':trimmed') or '0')
+            if length > 0 then
+                -- List ids are absolute positions, so the newest entry is message count - 1
+                lastId = tostring(count - 1)
+                lastPayload = redis.call('LINDEX', messagesKey, -1)
+            end
+        end
+        rows[#rows + 1] = room
+        rows[#rows + 1] = redis.call('ZSCORE', KEYS[2], room) or ''
+        rows[#rows + 1] = count
+        rows[#rows + 1] = lastId
+        rows[#rows + 1] = lastPayload
+    else
+        redis.call('SREM', KEYS[1], room)
+    end
+end
+return rows
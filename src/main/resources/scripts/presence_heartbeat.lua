@@ -0,0 +1,10 @@
+-- Refreshes one pod's presence entry for one room.
+-- KEYS[1] pod presence key (participants connected to this pod), KEYS[2] room presence index (pod id -> expiry)
+-- ARGV[1] pod id, ARGV[2] participant names joined by newlines, ARGV[3] ttl in ms, ARGV[4] current time in ms
+local expiresAt = tonumber(ARGV[4]) + tonumber(ARGV[3])
+redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+redis.call('ZADD', KEYS[2], expiresAt, ARGV[1])
+-- Entries of pods that stopped heartbeating are dropped here; the index itself expires with the last live pod
+redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', '(' .. ARGV[4])
+redis.call('PEXPIRE', KEYS[2], ARGV[3])
+return {1}
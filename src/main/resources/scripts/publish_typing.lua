@@ -0,0 +1,37 @@
+-- Applies one pod's coalesced typing signals for a room and publishes who is typing there when that changed.
+-- KEYS[1] room typing set (participant -> expiry in ms), KEYS[2] room channel
+-- ARGV[1] room name, ARGV[2] ttl in ms, then pairs of participant name and '1' (typing) or '0' (stopped)
+-- Returns {published, ms until the earliest remaining typist expires or -1 when nobody is typing}
+local time = redis.call('TIME')
+local now = time[1] * 1000 + math.floor(time[2] / 1000)
+local ttl = tonumber(ARGV[2])
+
+local changed = redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now) > 0
+for i = 3, #ARGV, 2 do
+    if ARGV[i + 1] == '1' then
+        -- A typist refreshing their signal only moves the expiry, which nobody else needs to hear about
+        if redis.call('ZADD', KEYS[1], now + ttl, ARGV[i]) == 1 then
+            changed = true
+        end
+    elseif redis.call('ZREM', KEYS[1], ARGV[i]) == 1 then
+        changed = true
+    end
+end
+redis.call('PEXPIRE', KEYS[1], ttl)
+
+if changed then
+    -- Built by hand: cjson encodes an empty table as an object, and the frame must start with '{' to be forwarded as JSON
+    local typists = redis.call('ZRANGE', KEYS[1], 0, -1)
+    for i = 1, #typists do
+        typists[i] = cjson.encode(typists[i])
+    end
+    redis.call('PUBLISH', KEYS[2], '{"type":"typing","roomName":' .. cjson.encode(ARGV[1]) ..
+            ',"participants":[' .. table.concat(typists, ',') .. '],"ttlMs":' .. ttl .. '}')
+end
+
+local first = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+local nextExpiry = -1
+if first[2] then
+    nextExpiry = math.max(0, tonumber(first[2]) - now)
+end
+return {changed and 1 or 0, nextExpiry}
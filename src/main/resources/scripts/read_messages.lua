@@ -0,0 +1,25 @@
+-- Reads a range of the message list together with the trimmed counter so positions can be resolved atomically.
+-- KEYS[1] message list, KEYS[2] trimmed counter
+-- ARGV[1] start, ARGV[2] stop, ARGV[3] '1' when start and stop are absolute positions, otherwise list indexes
+-- (LRANGE semantics, negative counts from the end)
+-- Returns {trimmed, length, listStart, entries}; the absolute position of entries[i] is trimmed + listStart + i - 1
+local trimmed = tonumber(redis.call('GET', KEYS[2]) or '0')
+local length = redis.call('LLEN', KEYS[1])
+local start = tonumber(ARGV[1])
+local stop = tonumber(ARGV[2])
+
+if ARGV[3] == '1' then
+    start = start - trimmed
+    stop = stop - trimmed
+else
+    if start < 0 then start = length + start end
+    if stop < 0 then stop = length + stop end
+end
+
+if start < 0 then start = 0 end
+if stop >= length then stop = length - 1 end
+if stop < start then
+    return {trimmed, length, start, {}}
+end
+
+return {trimmed, length, start, redis.call('LRANGE', KEYS[1], start, stop)}
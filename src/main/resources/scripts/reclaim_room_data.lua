@@ -0,0 +1,25 @@
+-- Frees one chunk of the history of a deleted room (a list or a stream, depending on the message store).
+-- KEYS[1] history moved aside by delete_room.lua, KEYS[2] set of histories to reclaim
+-- ARGV[1] chunk size
+-- Returns {entries left}; the last chunk is unlinked and the history dropped from the set
+local chunk = tonumber(ARGV[1])
+local keyType = redis.call('TYPE', KEYS[1])['ok']
+local length = 0
+if keyType == 'list' then
+    length = redis.call('LLEN', KEYS[1])
+elseif keyType == 'stream' then
+    length = redis.call('XLEN', KEYS[1])
+end
+
+if length > chunk then
+    if keyType == 'list' then
+        redis.call('LTRIM', KEYS[1], chunk, -1)
+    else
+        redis.call('XTRIM', KEYS[1], 'MAXLEN', length - chunk)
+    end
+    return {length - chunk}
+end
+
+redis.call('UNLINK', KEYS[1])
+redis.call('ZREM', KEYS[2], KEYS[1])
+return {0}
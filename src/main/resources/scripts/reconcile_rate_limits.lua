@@ -0,0 +1,9 @@
+-- Adds this pod's locally admitted sends to the shared per-window counters and returns the cluster-wide totals.
+-- KEYS[i] window counter of one rate limit bucket
+-- ARGV[1] counter ttl in seconds, ARGV[i + 1] sends admitted on this pod since the last reconcile
+local totals = {}
+for i, key in ipairs(KEYS) do
+    totals[i] = redis.call('INCRBY', key, ARGV[i + 1])
+    redis.call('EXPIRE', key, ARGV[1])
+end
+return totals
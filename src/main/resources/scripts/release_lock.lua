@@ -0,0 +1,8 @@
+-- Deletes a lock only while it still holds the caller's token, so a holder whose lock expired cannot free a later one.
+-- KEYS[1] lock key
+-- ARGV[1] token the lock was taken with
+-- Returns 1 when released, 0 when the lock had expired or belongs to someone else
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
@@ -0,0 +1,27 @@
+-- Validates and stores a chat message in a single round trip.
+-- KEYS[1] room hash, KEYS[2] participant set, KEYS[3] message list, KEYS[4] room channel, KEYS[5] trimmed counter,
+-- KEYS[6] room activity index
+-- ARGV[1] participant set member, ARGV[2] encoded message (JSON, binary or compressed)
+-- Returns {code} on failure or {1, id, length} where id is the message's absolute position in the room history
+-- (entries already spilled to the archive plus its index in the list) and length is the list length
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return {-1}
+end
+
+if redis.call('SISMEMBER', KEYS[2], ARGV[1]) == 0 then
+    return {-2}
+end
+
+local length = redis.call('RPUSH', KEYS[3], ARGV[2])
+local id = tostring(tonumber(redis.call('GET', KEYS[5]) or '0') + length - 1)
+local now = redis.call('TIME')
+-- Index members are room names, i.e. the room hash key without its 'chatroom:' prefix
+redis.call('ZADD', KEYS[6], now[1] * 1000 + math.floor(now[2] / 1000), string.sub(KEYS[1], 10))
+if string.byte(ARGV[2], 1) == 123 then
+    -- Splice the id into the stored JSON so subscribers can forward the frame without decoding it
+    redis.call('PUBLISH', KEYS[4], '{"id":"' .. id .. '",' .. string.sub(ARGV[2], 2))
+else
+    -- Binary and compressed payloads are wrapped as [0xB2][id length][id][payload]; see BinaryMessageCodec
+    redis.call('PUBLISH', KEYS[4], string.char(178, #id) .. id .. ARGV[2])
+end
+return {1, id, length}
@@ -0,0 +1,24 @@
+-- Validates and appends a chat message to the room stream in a single round trip.
+-- KEYS[1] room hash, KEYS[2] participant set, KEYS[3] message stream, KEYS[4] room channel, KEYS[5] room activity index
+-- ARGV[1] participant set member, ARGV[2] encoded message (JSON, binary or compressed)
+-- Returns {code} on failure or {1, id} where id is the server assigned stream entry id
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return {-1}
+end
+
+if redis.call('SISMEMBER', KEYS[2], ARGV[1]) == 0 then
+    return {-2}
+end
+
+local id = redis.call('XADD', KEYS[3], '*', 'm', ARGV[2])
+local now = redis.call('TIME')
+-- Index members are room names, i.e. the room hash key without its 'chatroom:' prefix
+redis.call('ZADD', KEYS[5], now[1] * 1000 + math.floor(now[2] / 1000), string.sub(KEYS[1], 10))
+if string.byte(ARGV[2], 1) == 123 then
+    -- Splice the id into the stored JSON so subscribers can forward the frame without decoding it
+    redis.call('PUBLISH', KEYS[4], '{"id":"' .. id .. '",' .. string.sub(ARGV[2], 2))
+else
+    -- Binary and compressed payloads are wrapped as [0xB2][id length][id][payload]; see BinaryMessageCodec
+    redis.call('PUBLISH', KEYS[4], string.char(178, #id) .. id .. ARGV[2])
+end
+return {1, id}
@@ -0,0 +1,11 @@
+-- Drops spilled entries from the head of the message list once they are durable in the archive.
+-- KEYS[1] message list, KEYS[2] trimmed counter
+-- ARGV[1] trimmed counter value the spill was based on, ARGV[2] number of entries to drop
+-- Returns 1 when trimmed, 0 when another spill already moved the counter
+if tonumber(redis.call('GET', KEYS[2]) or '0') ~= tonumber(ARGV[1]) then
+    return 0
+end
+
+redis.call('LTRIM', KEYS[1], ARGV[2], -1)
+redis.call('INCRBY', KEYS[2], ARGV[2])
+return 1
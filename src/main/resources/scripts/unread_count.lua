@@ -0,0 +1,41 @@
+-- Unread messages of one participant in one room.
+-- KEYS[1] the participant's read cursor hash, KEYS[2] message history, KEYS[3] trimmed counter (list store)
+-- ARGV[1] room name, ARGV[2] message store type (list or stream), ARGV[3] read id this pod has not written yet ('' for
+-- none), ARGV[4] most unread messages counted on a stream
+-- Returns {unread, readId}; readId is '' when the participant has not read anything in the room
+local function parseId(id)
+    local ms, seq = string.match(id, '^(%d+)-(%d+)$')
+    if ms then
+        return tonumber(ms), tonumber(seq)
+    end
+    return tonumber(id), 0
+end
+
+local readId = redis.call('HGET', KEYS[1], ARGV[1]) or ''
+if ARGV[3] ~= '' then
+    if readId == '' then
+        readId = ARGV[3]
+    else
+        local storedMs, storedSeq = parseId(readId)
+        local pendingMs, pendingSeq = parseId(ARGV[3])
+        if not storedMs or pendingMs > storedMs or (pendingMs == storedMs and pendingSeq > storedSeq) then
+            readId = ARGV[3]
+        end
+    end
+end
+
+if ARGV[2] == 'stream' then
+    if readId == '' then
+        return {math.min(redis.call('XLEN', KEYS[2]), tonumber(ARGV[4])), readId}
+    end
+    -- Stream ids are not contiguous, so unread entries are counted by range, up to the cap
+    return {#redis.call('XRANGE', KEYS[2], '(' .. readId, '+', 'COUNT', ARGV[4]), readId}
+end
+
+-- List ids are absolute positions: everything after the read position is unread
+local count = redis.call('LLEN', KEYS[2]) + tonumber(redis.call('GET', KEYS[3]) or '0')
+local readPosition = tonumber(readId)
+if not readPosition then
+    return {count, readId}
+end
+return {math.max(0, count - readPosition - 1), readId}
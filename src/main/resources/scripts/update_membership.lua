@@ -0,0 +1,19 @@
+-- Joins or leaves participants of a room in one atomic step, keeping each participant's room set in line.
+-- KEYS[1] room hash, KEYS[2] participant set, KEYS[3..n] room set of each participant, in ARGV order
+-- ARGV[1] join or leave, ARGV[2] room name, ARGV[3..n] participant members
+-- Returns {-1} when the room does not exist, else {1, changed...} with 1 for every member added (join) or removed (leave)
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return {-1}
+end
+local join = ARGV[1] == 'join'
+local result = {1}
+for i = 3, #ARGV do
+    if join then
+        result[i - 1] = redis.call('SADD', KEYS[2], ARGV[i])
+        redis.call('SADD', KEYS[i], ARGV[2])
+    else
+        result[i - 1] = redis.call('SREM', KEYS[2], ARGV[i])
+        redis.call('SREM', KEYS[i], ARGV[2])
+    end
+end
+return result
@@ -0,0 +1,53 @@
+-- Moves a participant's read position in one room forward, never back, and never past the newest message.
+-- KEYS[1] the participant's read cursor hash, KEYS[2] room participant set, KEYS[3] message history,
+-- KEYS[4] trimmed counter (list store)
+-- ARGV[1] room name, ARGV[2] participant member as stored in participant sets, ARGV[3] id of the last message read
+-- Returns {1} when the cursor moved, {0} when it already was that far, the room has no messages or the participant
+-- is not in the room
+local function parseId(id)
+    local ms, seq = string.match(id, '^(%d+)-(%d+)$')
+    if ms then
+        return tonumber(ms), tonumber(seq)
+    end
+    return tonumber(id), 0
+end
+
+if redis.call('SISMEMBER', KEYS[2], ARGV[2]) == 0 then
+    return {0}
+end
+
+-- An id past the newest message (a typo, or an id from an earlier room of the same name) would hold the cursor
+-- ahead of every real read, so it is clamped to the newest id
+local newest
+if redis.call('TYPE', KEYS[3])['ok'] == 'stream' then
+    local last = redis.call('XREVRANGE', KEYS[3], '+', '-', 'COUNT', 1)
+    if #last == 0 then
+        return {0}
+    end
+    newest = last[1][1]
+else
+    -- List ids are absolute positions, so the newest entry is message count - 1
+    local count = redis.call('LLEN', KEYS[3]) + tonumber(redis.call('GET', KEYS[4]) or '0')
+    if count == 0 then
+        return {0}
+    end
+    newest = tostring(count - 1)
+end
+
+local readId = ARGV[3]
+local readMs, readSeq = parseId(readId)
+local newestMs, newestSeq = parseId(newest)
+if readMs > newestMs or (readMs == newestMs and readSeq > newestSeq) then
+    readId = newest
+    readMs, readSeq = newestMs, newestSeq
+end
+
+local current = redis.call('HGET', KEYS[1], ARGV[1])
+if current then
+    local currentMs, currentSeq = parseId(current)
+    if currentMs and (readMs < currentMs or (readMs == currentMs and readSeq <= currentSeq)) then
+        return {0}
+    end
+end
+redis.call('HSET', KEYS[1], ARGV[1], readId)
+return {1}
@@ -0,0 +1,126 @@
+package ai.freightfox.chat.app.archive;
+
+import ai.freightfox.chat.app.model.StoredMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentLogTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<byte[]> payloads(long from, int count) {
+        List<byte[]> payloads = new ArrayList<>();
+        for (long i = from; i < from + count; i++) {
+            payloads.add(("message-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        return payloads;
+    }
+
+    private static String text(StoredMessage message) {
+        return new String(message.getPayload(), StandardCharsets.UTF_8);
+    }
+
+    // Test reads across several rolled segments return the exact position range
+    @Test
+    void read_AcrossRolledSegments_ReturnsRequestedRange() throws Exception {
+        try (SegmentLog log = new SegmentLog(directory, 200, 4, false)) {
+            log.append(0, payloads(0, 50));
+
+            List<StoredMessage> messages = log.read(17, 33);
+
+            assertEquals(17, messages.size());
+            assertEquals("17", messages.get(0).getId());
+            assertEquals("message-17", text(messages.get(0)));
+            assertEquals("message-33", text(messages.get(16)));
+        }
+        try (var files = Files.list(directory)) {
+            assertTrue(files.filter(f -> f.toString().endsWith(".log")).count() > 1);
+        }
+    }
+
+    // Test retried spill does not archive the same positions twice
+    @Test
+    void append_WithAlreadyArchivedPositions_SkipsThem() throws Exception {
+        try (SegmentLog log = new SegmentLog(directory, 1 << 20, 4, false)) {
+            assertEquals(10, log.append(0, payloads(0, 10)));
+            assertEquals(5, log.append(5, payloads(5, 10)));
+
+            List<StoredMessage> messages = log.read(0, 100);
+
+            assertEquals(15, messages.size());
+            assertEquals("14", messages.get(14).getId());
+        }
+    }
+
+    // Test reopening truncates a torn record and continues from the last complete one
+    @Test
+    void reopen_WithTornTail_RecoversAndAppends() throws Exception {
+        try (SegmentLog log = new SegmentLog(directory, 1 << 20, 4, false)) {
+            log.append(0, payloads(0, 3));
+        }
+        Path segment = directory.resolve(String.format("%020d", 0) + ".log");
+        Files.write(segment, new byte[]{0, 0, 0}, StandardOpenOption.APPEND);
+
+        try (SegmentLog log = new SegmentLog(directory, 1 << 20, 4, false)) {
+            log.append(3, payloads(3, 2));
+
+            List<StoredMessage> messages = log.read(0, 10);
+
+            assertEquals(5, messages.size());
+            assertEquals("message-4", text(messages.get(4)));
+        }
+    }
+
+    // Test a read-only log sees records appended by the writer after it was opened
+    @Test
+    void read_WithReadOnlyLog_PicksUpNewAppends() throws Exception {
+        try (SegmentLog writer = new SegmentLog(directory, 200, 4, false);
+             SegmentLog reader = new SegmentLog(directory, 200, 4, true)) {
+            writer.append(0, payloads(0, 5));
+            assertEquals(5, reader.read(0, 100).size());
+
+            writer.append(5, payloads(5, 20));
+
+            List<StoredMessage> messages = reader.read(0, 100);
+            assertEquals(25, messages.size());
+            assertEquals("message-24", text(messages.get(24)));
+        }
+    }
+
+    // Test two writable logs on one directory take turns appending without overwriting or skipping each other's records
+    @Test
+    void append_WithTwoWritersTakingTurns_ContinuesFromOtherWritersTail() throws Exception {
+        try (SegmentLog first = new SegmentLog(directory, 200, 4, false);
+             SegmentLog second = new SegmentLog(directory, 200, 4, false)) {
+            first.append(0, payloads(0, 5));
+            assertEquals(0, second.append(0, payloads(0, 5)));
+            assertEquals(3, second.append(3, payloads(3, 5)));
+            first.append(8, payloads(8, 20));
+            second.append(28, payloads(28, 2));
+
+            List<StoredMessage> fromFirst = first.read(0, 100);
+            assertEquals(30, fromFirst.size());
+            for (int i = 0; i < 30; i++) {
+                assertEquals(Integer.toString(i), fromFirst.get(i).getId());
+                assertEquals("message-" + i, text(fromFirst.get(i)));
+            }
+            assertEquals("message-9", text(second.read(9, 9).get(0)));
+        }
+
+        try (SegmentLog reopened = new SegmentLog(directory, 200, 4, false)) {
+            List<StoredMessage> messages = reopened.read(0, 100);
+            assertEquals(30, messages.size());
+            assertEquals("message-29", text(messages.get(29)));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ai.freightfox.chat.app.benchmark;
+
+import ai.freightfox.chat.app.service.RoomSubscriptionManager;
+import ai.freightfox.chat.app.service.SessionOutboundQueue;
+import ai.freightfox.chat.app.service.WebSocketSessionManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+// Run with: mvn test -Dtest=BroadcastAllocationBenchmark -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BroadcastAllocationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 2_000;
+
+    private final byte[] payload = "{\"participant\":\"john\",\"message\":\"Hello everyone!\",\"timestamp\":\"2025-01-01T10:00:00\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    // Allocation per broadcast must not grow with the number of recipients
+    @Test
+    void broadcastAllocation_IsConstantInSessionCount() {
+        long smallRoomBytes = bytesPerBroadcast(10);
+        long largeRoomBytes = bytesPerBroadcast(10_000);
+
+        System.out.printf("Bytes allocated per broadcast: 10 sessions=%d, 10000 sessions=%d%n", smallRoomBytes, largeRoomBytes);
+
+        assertTrue(largeRoomBytes - smallRoomBytes < 1024,
+                "Broadcast allocation grew with session count: " + smallRoomBytes + " -> " + largeRoomBytes);
+    }
+
+    private long bytesPerBroadcast(int sessionCount) {
+        WebSocketSessionManager sessionManager = new WebSocketSessionManager();
+        ReflectionTestUtils.setField(sessionManager, "roomSubscriptionManager", mock(RoomSubscriptionManager.class));
+        // Direct writer executor keeps the measurement on this thread
+        ReflectionTestUtils.setField(sessionManager, "websocketWriterExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(sessionManager, "outboundQueueCapacity", 16);
+        ReflectionTestUtils.setField(sessionManager, "overflowPolicy", SessionOutboundQueue.OverflowPolicy.DROP_OLDEST);
+        ReflectionTestUtils.setField(sessionManager, "overflowCloseCode", 4500);
+        ReflectionTestUtils.setField(sessionManager, "fanOutExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(sessionManager, "fanOutShardThreshold", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(sessionManager, "fanOutShardSize", 512);
+        String roomName = "bench-" + sessionCount;
+        for (int i = 0; i < sessionCount; i++) {
+            sessionManager.addSession(roomName, new NoopWebSocketSession(roomName + "-" + i));
+        }
+
+        int warmupRounds = Math.max(10, WARMUP_ROUNDS / sessionCount);
+        for (int i = 0; i < warmupRounds; i++) {
+            sessionManager.broadcastToLocalSessions(roomName, payload);
+        }
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            sessionManager.broadcastToLocalSessions(roomName, payload);
+        }
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+        return (after - before) / MEASURED_ROUNDS;
+    }
+}
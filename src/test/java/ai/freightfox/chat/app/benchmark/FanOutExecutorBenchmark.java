@@ -0,0 +1,105 @@
+package ai.freightfox.chat.app.benchmark;
+
+import ai.freightfox.chat.app.service.RoomSubscriptionManager;
+import ai.freightfox.chat.app.service.SessionOutboundQueue;
+import ai.freightfox.chat.app.service.WebSocketSessionManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+// Compares platform and virtual thread writers at 10k sessions whose writes block like a real socket.
+// Run with: mvn test -Dtest=FanOutExecutorBenchmark -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FanOutExecutorBenchmark {
+
+    private static final int SESSIONS = 10_000;
+    private static final int MESSAGES = 20;
+    private static final long WRITE_BLOCK_MICROS = 200;
+    private static final int PLATFORM_WRITER_THREADS = 16;
+
+    @Test
+    void compareWriterExecutors() throws Exception {
+        Result platform = run("platform", Executors.newFixedThreadPool(PLATFORM_WRITER_THREADS, new CustomizableThreadFactory("bench-writer-")));
+        Result virtual = run("virtual", Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bench-writer-", 0).factory()));
+
+        System.out.println(platform);
+        System.out.println(virtual);
+
+        assertTrue(virtual.deliveriesPerSecond() > 0 && platform.deliveriesPerSecond() > 0);
+    }
+
+    private Result run(String mode, ExecutorService writerExecutor) throws Exception {
+        try (writerExecutor) {
+            CountDownLatch delivered = new CountDownLatch(SESSIONS * MESSAGES);
+            long[] publishedAt = new long[MESSAGES];
+            long[] latencies = new long[SESSIONS * MESSAGES];
+            AtomicInteger recorded = new AtomicInteger();
+
+            WebSocketSessionManager sessionManager = new WebSocketSessionManager();
+            ReflectionTestUtils.setField(sessionManager, "roomSubscriptionManager", mock(RoomSubscriptionManager.class));
+            ReflectionTestUtils.setField(sessionManager, "websocketWriterExecutor", writerExecutor);
+            ReflectionTestUtils.setField(sessionManager, "outboundQueueCapacity", MESSAGES);
+            ReflectionTestUtils.setField(sessionManager, "overflowPolicy", SessionOutboundQueue.OverflowPolicy.DROP_NEWEST);
+            ReflectionTestUtils.setField(sessionManager, "overflowCloseCode", 4500);
+            ReflectionTestUtils.setField(sessionManager, "fanOutExecutor", (Executor) Runnable::run);
+            ReflectionTestUtils.setField(sessionManager, "fanOutShardThreshold", Integer.MAX_VALUE);
+            ReflectionTestUtils.setField(sessionManager, "fanOutShardSize", 512);
+
+            for (int i = 0; i < SESSIONS; i++) {
+                sessionManager.addSession("bench", new NoopWebSocketSession("s-" + i) {
+                    @Override
+                    public void sendMessage(WebSocketMessage<?> message) {
+                        blockLikeSocketWrite();
+                        String payload = (String) message.getPayload();
+                        int sequence = Integer.parseInt(payload.substring(7, payload.length() - 1));
+                        latencies[recorded.getAndIncrement()] = System.nanoTime() - publishedAt[sequence];
+                        delivered.countDown();
+                    }
+                });
+            }
+
+            long start = System.nanoTime();
+            for (int sequence = 0; sequence < MESSAGES; sequence++) {
+                publishedAt[sequence] = System.nanoTime();
+                sessionManager.broadcastToLocalSessions("bench", ("{\"seq\":" + sequence + "}").getBytes(StandardCharsets.UTF_8));
+            }
+            assertTrue(delivered.await(5, TimeUnit.MINUTES), mode + " run did not deliver every message");
+            long elapsed = System.nanoTime() - start;
+
+            long[] sorted = Arrays.copyOf(latencies, recorded.get());
+            Arrays.sort(sorted);
+            long p99 = sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * 0.99) - 1)];
+            return new Result(mode, sorted.length * 1_000_000_000.0 / elapsed, TimeUnit.NANOSECONDS.toMillis(p99));
+        }
+    }
+
+    private static void blockLikeSocketWrite() {
+        try {
+            TimeUnit.MICROSECONDS.sleep(WRITE_BLOCK_MICROS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Result(String mode, double deliveriesPerSecond, long p99LatencyMillis) {
+        @Override
+        public String toString() {
+            return String.format("%-8s sessions=%d messages=%d throughput=%.0f deliveries/s p99=%d ms",
+                    mode, SESSIONS, MESSAGES, deliveriesPerSecond, p99LatencyMillis);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ai.freightfox.chat.app.benchmark;
+
+import ai.freightfox.chat.app.codec.BinaryMessageCodec;
+import ai.freightfox.chat.app.codec.JsonMessageCodec;
+import ai.freightfox.chat.app.codec.MessageCodec;
+import ai.freightfox.chat.app.model.MessageModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Run with: mvn test -Dtest=MessageCodecBenchmark -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MessageCodecBenchmark {
+
+    private static final int WARMUP_ROUNDS = 200_000;
+    private static final int MEASURED_ROUNDS = 1_000_000;
+
+    private final MessageModel message = new MessageModel("john", "Hello everyone!");
+
+    // The binary codec must store a typical message in fewer bytes than JSON
+    @Test
+    void binaryCodec_IsSmallerThanJson() throws IOException {
+        MessageCodec json = new JsonMessageCodec(new ObjectMapper().findAndRegisterModules());
+        MessageCodec binary = new BinaryMessageCodec();
+
+        int jsonBytes = json.encode(message).length;
+        int binaryBytes = binary.encode(message).length;
+        long[] jsonNanos = measure(json);
+        long[] binaryNanos = measure(binary);
+
+        System.out.printf("json:   %d bytes, encode=%d ns, decode=%d ns%n", jsonBytes, jsonNanos[0], jsonNanos[1]);
+        System.out.printf("binary: %d bytes, encode=%d ns, decode=%d ns%n", binaryBytes, binaryNanos[0], binaryNanos[1]);
+
+        assertTrue(binaryBytes < jsonBytes, "Binary encoding is not smaller: " + binaryBytes + " vs " + jsonBytes);
+    }
+
+    // Average encode and decode time per message
+    private long[] measure(MessageCodec codec) throws IOException {
+        byte[] payload = codec.encode(message);
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += codec.encode(message).length;
+            sink += codec.decode(payload).getMessage().length();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            sink += codec.encode(message).length;
+        }
+        long encodeNanos = (System.nanoTime() - start) / MEASURED_ROUNDS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            sink += codec.decode(payload).getMessage().length();
+        }
+        long decodeNanos = (System.nanoTime() - start) / MEASURED_ROUNDS;
+
+        assertTrue(sink > 0);
+        return new long[]{encodeNanos, decodeNanos};
+    }
+}
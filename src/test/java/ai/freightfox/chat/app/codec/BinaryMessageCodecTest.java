@@ -0,0 +1,61 @@
+package ai.freightfox.chat.app.codec;
+
+import ai.freightfox.chat.app.model.MessageModel;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryMessageCodecTest {
+
+    private final BinaryMessageCodec codec = new BinaryMessageCodec();
+
+    // Test encode and decode round-trip every field including nanosecond timestamps
+    @Test
+    void encodeDecode_WithAllFields_RoundTrips() throws Exception {
+        MessageModel message = new MessageModel("j\u00f6hn", "Hello everyone! \u2713");
+        message.setTimestamp(LocalDateTime.of(2024, 2, 29, 13, 45, 7, 123_456_789));
+
+        MessageModel decoded = codec.decode(codec.encode(message));
+
+        assertEquals(message.getParticipant(), decoded.getParticipant());
+        assertEquals(message.getMessage(), decoded.getMessage());
+        assertEquals(message.getTimestamp(), decoded.getTimestamp());
+    }
+
+    // Test null fields and pre-epoch timestamps survive the round-trip
+    @Test
+    void encodeDecode_WithNullsAndPreEpochTimestamp_RoundTrips() throws Exception {
+        MessageModel message = new MessageModel();
+        message.setMessage("");
+        message.setTimestamp(LocalDateTime.of(1960, 1, 1, 0, 0));
+
+        MessageModel decoded = codec.decode(codec.encode(message));
+
+        assertNull(decoded.getParticipant());
+        assertEquals("", decoded.getMessage());
+        assertEquals(message.getTimestamp(), decoded.getTimestamp());
+    }
+
+    // Test decoded participant names are shared instances
+    @Test
+    void decode_WithRepeatedParticipant_InternsName() throws Exception {
+        byte[] payload = codec.encode(new MessageModel("john", "a"));
+
+        assertSame(codec.decode(payload).getParticipant(), codec.decode(payload).getParticipant());
+    }
+
+    // Test truncated payloads are rejected instead of producing partial messages
+    @Test
+    void decode_WithTruncatedPayload_ThrowsIOException() throws Exception {
+        byte[] payload = codec.encode(new MessageModel("john", "Hello"));
+        byte[] truncated = Arrays.copyOf(payload, payload.length - 4);
+
+        assertThrows(IOException.class, () -> codec.decode(truncated));
+        assertFalse(codec.canDecode("{}".getBytes(StandardCharsets.UTF_8)));
+    }
+}
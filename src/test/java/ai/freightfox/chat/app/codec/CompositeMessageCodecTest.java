@@ -0,0 +1,66 @@
+package ai.freightfox.chat.app.codec;
+
+import ai.freightfox.chat.app.model.MessageModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompositeMessageCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final JsonMessageCodec jsonCodec = new JsonMessageCodec(objectMapper);
+    private final CompositeMessageCodec codec = new CompositeMessageCodec(jsonCodec,
+            List.of(new BinaryMessageCodec(), jsonCodec), objectMapper, 256);
+
+    // Test payloads below the threshold are stored as plain JSON
+    @Test
+    void encode_BelowThreshold_StoresUncompressed() throws Exception {
+        byte[] payload = codec.encode(new MessageModel("john", "Hello everyone!"));
+
+        assertEquals('{', payload[0]);
+    }
+
+    // Test large payloads are compressed and decode transparently
+    @Test
+    void encodeDecode_AboveThreshold_CompressesAndRoundTrips() throws Exception {
+        MessageModel message = new MessageModel("john", "shipment delayed at the port ".repeat(100));
+
+        byte[] payload = codec.encode(message);
+        MessageModel decoded = codec.decode(payload);
+
+        assertEquals(CompositeMessageCodec.COMPRESSED_MAGIC, payload[0]);
+        assertTrue(payload.length < jsonCodec.encode(message).length / 4);
+        assertEquals(message.getMessage(), decoded.getMessage());
+        assertEquals(message.getTimestamp(), decoded.getTimestamp());
+    }
+
+    // Test a published compressed frame is turned into a JSON client frame carrying the id
+    @Test
+    void toClientFrame_WithCompressedPayload_ReturnsJson() throws Exception {
+        MessageModel message = new MessageModel("john", "x".repeat(1000));
+        byte[] payload = codec.encode(message);
+        byte[] frame = new byte[3 + payload.length];
+        frame[0] = BinaryMessageCodec.PUBLISHED_MAGIC;
+        frame[1] = 1;
+        frame[2] = '7';
+        System.arraycopy(payload, 0, frame, 3, payload.length);
+
+        MessageModel forwarded = objectMapper.readValue(codec.toClientFrame(frame), MessageModel.class);
+
+        assertEquals("7", forwarded.getId());
+        assertEquals(message.getMessage(), forwarded.getMessage());
+    }
+
+    // Test a truncated compressed payload fails instead of returning partial text
+    @Test
+    void decode_WithTruncatedCompressedPayload_Throws() throws Exception {
+        byte[] payload = codec.encode(new MessageModel("john", "y".repeat(2000)));
+
+        assertThrows(IOException.class, () -> codec.decode(Arrays.copyOf(payload, payload.length - 4)));
+    }
+}
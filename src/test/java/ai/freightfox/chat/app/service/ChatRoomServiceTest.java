@@ -1,5 +1,7 @@
 package ai.freightfox.chat.app.service;
 
+import ai.freightfox.chat.app.dto.response.BatchMembershipResponse;
+import ai.freightfox.chat.app.dto.response.RoomListResponse;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.BadRequestException;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ChatRoomNotFoundException;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ResourceAlreadyExistException;
@@ -11,7 +13,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -25,6 +30,9 @@ class ChatRoomServiceTest {
     @Mock
     private ChatRoomRepository chatRoomRepository;
 
+    @Mock
+    private RoomDeletionService roomDeletionService;
+
     @InjectMocks
     private ChatRoomService chatRoomService;
 
@@ -99,11 +107,9 @@ class ChatRoomServiceTest {
         String roomName = "test-room";
         String participantName = "john";
 
-        when(chatRoomRepository.isRoomExist(any())).thenReturn(true);
-
         assertDoesNotThrow(() -> chatRoomService.joinChatRoom(roomName, participantName));
 
-        verify(chatRoomRepository, times(1)).isRoomExist(any());
+        verify(chatRoomRepository, never()).isRoomExist(any());
         verify(chatRoomRepository, times(1))
             .joinChatRoom(eq(roomName), eq(participantName), any(), any());
     }
@@ -114,14 +120,13 @@ class ChatRoomServiceTest {
         String roomName = "non-existing";
         String participantName = "john";
 
-        when(chatRoomRepository.isRoomExist(any())).thenReturn(false);
+        doThrow(new ChatRoomNotFoundException("Chat room 'non-existing' does not exist"))
+            .when(chatRoomRepository).joinChatRoom(eq(roomName), eq(participantName), any(), any());
 
         ChatRoomNotFoundException exception = assertThrows(ChatRoomNotFoundException.class,
             () -> chatRoomService.joinChatRoom(roomName, participantName));
 
         assertEquals("Chat room 'non-existing' does not exist", exception.getMessage());
-        verify(chatRoomRepository, times(1)).isRoomExist(any());
-        verify(chatRoomRepository, never()).joinChatRoom(any(), any(), any(), any());
     }
 
     // Test join fails with empty participant name
@@ -130,13 +135,10 @@ class ChatRoomServiceTest {
         String roomName = "test-room";
         String participantName = "";
 
-        when(chatRoomRepository.isRoomExist(any())).thenReturn(true);
-
         BadRequestException exception = assertThrows(BadRequestException.class,
             () -> chatRoomService.joinChatRoom(roomName, participantName));
 
         assertEquals("Participant name cannot be empty", exception.getMessage());
-        verify(chatRoomRepository, times(1)).isRoomExist(any());
         verify(chatRoomRepository, never()).joinChatRoom(any(), any(), any(), any());
     }
 
@@ -146,8 +148,6 @@ class ChatRoomServiceTest {
         String roomName = "test-room";
         String participantName = null;
 
-        when(chatRoomRepository.isRoomExist(any())).thenReturn(true);
-
         BadRequestException exception = assertThrows(BadRequestException.class,
             () -> chatRoomService.joinChatRoom(roomName, participantName));
 
@@ -161,14 +161,13 @@ class ChatRoomServiceTest {
         String roomName = "test-room";
         String participantName = "john";
 
-        when(chatRoomRepository.isRoomExist(any())).thenReturn(true);
         when(chatRoomRepository.removeParticipant(eq(participantName), eq(roomName), any(), any()))
             .thenReturn(true);
 
         boolean result = chatRoomService.removeParticipant(roomName, participantName);
 
         assertTrue(result);
-        verify(chatRoomRepository, times(1)).isRoomExist(any());
+        verify(chatRoomRepository, never()).isRoomExist(any());
         verify(chatRoomRepository, times(1))
             .removeParticipant(eq(participantName), eq(roomName), any(), any());
     }
@@ -179,13 +178,43 @@ class ChatRoomServiceTest {
         String roomName = "non-existing";
         String participantName = "john";
 
-        when(chatRoomRepository.isRoomExist(any())).thenReturn(false);
+        when(chatRoomRepository.removeParticipant(eq(participantName), eq(roomName), any(), any()))
+            .thenThrow(new ChatRoomNotFoundException("Chat room 'non-existing' does not exist"));
 
         ChatRoomNotFoundException exception = assertThrows(ChatRoomNotFoundException.class,
             () -> chatRoomService.removeParticipant(roomName, participantName));
 
         assertEquals("Chat room 'non-existing' does not exist", exception.getMessage());
-        verify(chatRoomRepository, never()).removeParticipant(any(), any(), any(), any());
+    }
+
+    // Test a bulk join sends every valid name in one call and reports each participant
+    @Test
+    void joinChatRoomBatch_WithMixedNames_ReportsEachParticipant() {
+        ReflectionTestUtils.setField(chatRoomService, "maxMembershipBatchSize", 1000);
+        when(chatRoomRepository.addParticipants(eq("lane"), any(), any(), eq(List.of("john", "jane"))))
+            .thenReturn(List.of(true, false));
+
+        BatchMembershipResponse response = chatRoomService.joinChatRoom("lane", Arrays.asList(" john ", "", "jane"));
+
+        assertEquals(1, response.getChanged());
+        assertEquals(1, response.getUnchanged());
+        assertEquals(1, response.getRejected());
+        assertEquals("Success", response.getResults().get(0).getStatus());
+        assertEquals("john", response.getResults().get(0).getParticipant());
+        assertEquals("Failed", response.getResults().get(1).getStatus());
+        assertEquals("Unchanged", response.getResults().get(2).getStatus());
+    }
+
+    // Test a bulk leave larger than the configured maximum is rejected before reaching Redis
+    @Test
+    void removeParticipantsBatch_AboveMaxSize_ThrowsBadRequestException() {
+        ReflectionTestUtils.setField(chatRoomService, "maxMembershipBatchSize", 2);
+
+        assertThrows(BadRequestException.class,
+            () -> chatRoomService.removeParticipants("lane", List.of("a", "b", "c")));
+        assertThrows(BadRequestException.class, () -> chatRoomService.removeParticipants("lane", List.of()));
+
+        verify(chatRoomRepository, never()).removeParticipants(any(), any(), any(), any());
     }
 
     // Test getting participants from existing room
@@ -329,17 +358,17 @@ class ChatRoomServiceTest {
         verify(chatRoomRepository, never()).saveChatRoom(any(), any(), any());
     }
 
-    // Test successful room removal with all keys existing
+    // Test room removal deletes through the deletion service in one call
     @Test
     void removeRoom_WithExistingRoom_RemovesSuccessfully() {
         String roomName = "test-room";
 
-        when(chatRoomRepository.isRoomExist(any())).thenReturn(true);
+        when(roomDeletionService.deleteRoom(roomName)).thenReturn(true);
 
         assertDoesNotThrow(() -> chatRoomService.removeRoom(roomName));
 
-        verify(chatRoomRepository, times(3)).isRoomExist(any());
-        verify(chatRoomRepository, times(1)).removeRemoveRoomData(any(), any(), any());
+        verify(roomDeletionService, times(1)).deleteRoom(roomName);
+        verify(chatRoomRepository, never()).isRoomExist(any());
     }
 
     // Test room removal when room does not exist
@@ -347,29 +376,42 @@ class ChatRoomServiceTest {
     void removeRoom_WithNonExistingRoom_ThrowsChatRoomNotFoundException() {
         String roomName = "non-existing";
 
-        when(chatRoomRepository.isRoomExist(any())).thenReturn(false);
+        when(roomDeletionService.deleteRoom(roomName)).thenReturn(false);
 
         ChatRoomNotFoundException exception = assertThrows(ChatRoomNotFoundException.class,
             () -> chatRoomService.removeRoom(roomName));
 
         assertEquals("Room 'non-existing' does not exist", exception.getMessage());
-        verify(chatRoomRepository, times(3)).isRoomExist(any()); // Called 3 times for each key type
-        verify(chatRoomRepository, never()).removeRemoveRoomData(any(), any(), any());
     }
 
-    // Test room removal with partial key existence
+    // Test listing by activity reads the activity index from the start on the first page
     @Test
-    void removeRoom_WithPartialKeyExistence_RemovesWithWarning() {
-        String roomName = "test-room";
+    void listRooms_FirstPageByActivity_ReadsActivityIndex() {
+        RoomListResponse page = new RoomListResponse(List.of(), null, false);
+        when(chatRoomRepository.listRooms("chatrooms:index:activity", "+inf", "", 20, "lane", 1000)).thenReturn(page);
+        ReflectionTestUtils.setField(chatRoomService, "directoryMaxScan", 1000);
 
-        when(chatRoomRepository.isRoomExist(any()))
-            .thenReturn(true)   // room exists
-            .thenReturn(false)  // participants key missing
-            .thenReturn(true);  // messages exist
+        assertSame(page, chatRoomService.listRooms("activity", null, 20, " lane "));
+    }
 
-        assertDoesNotThrow(() -> chatRoomService.removeRoom(roomName));
+    // Test the cursor of the previous page is split into its score and room name
+    @Test
+    void listRooms_WithCursor_ContinuesAfterCursor() {
+        ReflectionTestUtils.setField(chatRoomService, "directoryMaxScan", 1000);
+
+        chatRoomService.listRooms("created", "1700000000000:mumbai-pune", 10, null);
+
+        verify(chatRoomRepository).listRooms("chatrooms:index:created", "1700000000000", "mumbai-pune", 10, "", 1000);
+    }
+
+    // Test invalid sort, prefix and cursor values are rejected before reaching Redis
+    @Test
+    void listRooms_WithInvalidArguments_ThrowsBadRequestException() {
+        assertThrows(BadRequestException.class, () -> chatRoomService.listRooms("name", null, 20, null));
+        assertThrows(BadRequestException.class, () -> chatRoomService.listRooms("created", null, 20, "lane*"));
+        assertThrows(BadRequestException.class, () -> chatRoomService.listRooms("created", "abc:room", 20, null));
+        assertThrows(BadRequestException.class, () -> chatRoomService.listRooms("created", "1700000000000", 20, null));
 
-        verify(chatRoomRepository, times(3)).isRoomExist(any());
-        verify(chatRoomRepository, times(1)).removeRemoveRoomData(any(), any(), any());
+        verify(chatRoomRepository, never()).listRooms(any(), any(), any(), anyInt(), any(), anyInt());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.dto.response.BatchMessageResult;
+import ai.freightfox.chat.app.dto.response.BatchSendResponse;
+import ai.freightfox.chat.app.model.MessageModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InboundMessageServiceTest {
+
+    @Mock
+    private MessageService messageService;
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private SendRateLimiter sendRateLimiter;
+
+    @Mock
+    private TypingIndicatorService typingIndicatorService;
+
+    @Mock
+    private WebSocketSession session;
+
+    @InjectMocks
+    private InboundMessageService inboundMessageService;
+
+    private final List<Runnable> scheduledDrains = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(inboundMessageService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        // Drains run when the test says so, letting sends pile up as they would behind a slow round trip
+        ReflectionTestUtils.setField(inboundMessageService, "inboundMessageExecutor", (Executor) scheduledDrains::add);
+        ReflectionTestUtils.setField(inboundMessageService, "maxPending", 2);
+        ReflectionTestUtils.setField(inboundMessageService, "maxBatch", 64);
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("roomName", "general");
+        attributes.put("participantName", "john");
+        lenient().when(session.getId()).thenReturn("s1");
+        lenient().when(session.getAttributes()).thenReturn(attributes);
+        lenient().when(sendRateLimiter.tryAcquire("general", "john")).thenReturn(true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> sentAcks() {
+        ArgumentCaptor<WebSocketMessage<?>> frames = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(sessionManager, atLeastOnce()).sendToSession(eq(session), frames.capture());
+        return frames.getAllValues().stream().map(frame -> ((TextMessage) frame).getPayload()).toList();
+    }
+
+    // Test a single send is stored as the session's participant and acked with its id and correlation id
+    @Test
+    void handle_WithSingleSend_SavesAndAcks() {
+        doAnswer(invocation -> {
+            invocation.<MessageModel>getArgument(1).setId("42");
+            return null;
+        }).when(messageService).saveMessage(eq("general"), any(MessageModel.class), eq(false));
+
+        inboundMessageService.handle(session, new TextMessage("{\"correlationId\":\"c1\",\"message\":\"hi\"}"));
+        scheduledDrains.forEach(Runnable::run);
+
+        ArgumentCaptor<MessageModel> saved = ArgumentCaptor.forClass(MessageModel.class);
+        verify(messageService).saveMessage(eq("general"), saved.capture(), eq(false));
+        assertEquals("john", saved.getValue().getParticipant());
+        assertEquals("{\"type\":\"ack\",\"correlationId\":\"c1\",\"status\":\"Success\",\"messageId\":\"42\"}", sentAcks().get(0));
+    }
+
+    // Test sends queued behind a round trip go out as one ordered batch, and sends past max-pending are refused
+    @Test
+    void handle_WithBacklog_WritesOneBatchAndRefusesOverflow() {
+        when(messageService.saveMessages(eq("general"), anyList(), eq(false))).thenReturn(new BatchSendResponse(2, 0, List.of(
+                BatchMessageResult.success(0, "1"), BatchMessageResult.success(1, "2"))));
+
+        inboundMessageService.handle(session, new TextMessage("{\"correlationId\":\"a\",\"message\":\"one\"}"));
+        inboundMessageService.handle(session, new TextMessage("{\"correlationId\":\"b\",\"message\":\"two\"}"));
+        inboundMessageService.handle(session, new TextMessage("{\"correlationId\":\"c\",\"message\":\"three\"}"));
+        assertEquals(1, scheduledDrains.size());
+        scheduledDrains.get(0).run();
+
+        verify(messageService, never()).saveMessage(anyString(), any(MessageModel.class), anyBoolean());
+        List<String> acks = sentAcks();
+        assertTrue(acks.get(0).contains("\"correlationId\":\"c\"") && acks.get(0).contains("Too many unacknowledged messages"));
+        assertTrue(acks.get(1).contains("\"correlationId\":\"a\",\"status\":\"Success\",\"messageId\":\"1\""));
+        assertTrue(acks.get(2).contains("\"correlationId\":\"b\",\"status\":\"Success\",\"messageId\":\"2\""));
+    }
+
+    // Test a frame that is not a send command gets a failed ack and is not stored
+    @Test
+    void handle_WithMalformedFrame_AcksFailure() {
+        inboundMessageService.handle(session, new TextMessage("not json"));
+
+        verifyNoInteractions(messageService);
+        assertTrue(sentAcks().get(0).contains("Malformed message frame"));
+    }
+
+    // Test a send over the rate limit is refused with an ack and never queued
+    @Test
+    void handle_OverRateLimit_AcksFailure() {
+        when(sendRateLimiter.tryAcquire("general", "john")).thenReturn(false);
+
+        inboundMessageService.handle(session, new TextMessage("{\"correlationId\":\"c1\",\"message\":\"hi\"}"));
+
+        assertTrue(scheduledDrains.isEmpty());
+        assertTrue(sentAcks().get(0).contains("Rate limit exceeded"));
+    }
+
+    // Test typing frames go to the typing indicators without being stored, acked or rate limited
+    @Test
+    void handle_WithTypingFrame_SignalsTyping() {
+        inboundMessageService.handle(session, new TextMessage("{\"type\":\"typing\"}"));
+        inboundMessageService.handle(session, new TextMessage("{\"type\":\"typing\",\"typing\":false}"));
+
+        verify(typingIndicatorService).signal("general", "john", true);
+        verify(typingIndicatorService).signal("general", "john", false);
+        assertTrue(scheduledDrains.isEmpty());
+        verifyNoInteractions(messageService, sendRateLimiter);
+        verify(sessionManager, never()).sendToSession(any(), any());
+    }
+}
@@ -1,9 +1,17 @@
 package ai.freightfox.chat.app.service;
 
+import ai.freightfox.chat.app.codec.BinaryMessageCodec;
+import ai.freightfox.chat.app.codec.CompositeMessageCodec;
+import ai.freightfox.chat.app.codec.JsonMessageCodec;
+import ai.freightfox.chat.app.dto.response.BatchSendResponse;
+import ai.freightfox.chat.app.dto.response.MessagePageResponse;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.BadRequestException;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ChatRoomNotFoundException;
 import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ParticipantNotFoundException;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RateLimitExceededException;
 import ai.freightfox.chat.app.model.MessageModel;
+import ai.freightfox.chat.app.model.MessageSendResult;
+import ai.freightfox.chat.app.model.StoredMessage;
 import ai.freightfox.chat.app.repository.MessageRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -13,10 +21,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -35,35 +48,55 @@ class MessageServiceTest {
     private ObjectMapper objectMapper;
 
     @Mock
-    private MessagePublisherService messagePublisher;
+    private MessageWriteCoalescer messageWriteCoalescer;
+
+    @Mock
+    private SendRateLimiter sendRateLimiter;
 
     @InjectMocks
     private MessageService messageService;
 
     private MessageModel sampleMessage;
 
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private int storedIds;
+
+    private StoredMessage stored(String json) {
+        return new StoredMessage(Integer.toString(storedIds++), bytes(json));
+    }
+
     @BeforeEach
     void setUp() {
         sampleMessage = new MessageModel("john", "Hello everyone!");
+        ReflectionTestUtils.setField(messageService, "maxBatchSize", 10);
+        ReflectionTestUtils.setField(messageService, "exportChunkSize", 2);
+        JsonMessageCodec jsonMessageCodec = new JsonMessageCodec(objectMapper);
+        ReflectionTestUtils.setField(messageService, "messageCodec",
+            new CompositeMessageCodec(jsonMessageCodec, List.of(new BinaryMessageCodec(), jsonMessageCodec), objectMapper));
+        lenient().when(sendRateLimiter.tryAcquireParticipant(anyString(), anyString())).thenReturn(true);
     }
 
     // Test successful message saving with valid parameters
     @Test
     void saveMessage_WithValidParameters_SavesSuccessfully() throws JsonProcessingException {
         String roomName = "general";
-        String expectedJson = "{\"participant\":\"john\",\"message\":\"Hello everyone!\"}";
+        byte[] expectedPayload = bytes("{\"participant\":\"john\",\"message\":\"Hello everyone!\"}");
 
-        when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
-        when(chatRoomService.isParticipantInRoom(roomName, "john")).thenReturn(true);
-        when(objectMapper.writeValueAsString(any(MessageModel.class))).thenReturn(expectedJson);
+        when(objectMapper.writeValueAsBytes(any(MessageModel.class))).thenReturn(expectedPayload);
+        when(messageRepository.sendChat(eq("chatroom:general"), eq("chatroom:general:participants"),
+                eq("chatroom:general:messages"), eq("chatroom:general:channel"), eq("john"), eq(expectedPayload)))
+            .thenReturn(new MessageSendResult(MessageRepository.SEND_OK, "0"));
 
         assertDoesNotThrow(() -> messageService.saveMessage(roomName, sampleMessage));
 
-        verify(chatRoomService, times(1)).isRoomExists(roomName);
-        verify(chatRoomService, times(1)).isParticipantInRoom(roomName, "john");
-        verify(objectMapper, times(1)).writeValueAsString(any(MessageModel.class));
-        verify(messageRepository, times(1)).saveChat(any(), eq(expectedJson));
-        verify(messagePublisher, times(1)).publishMessage(eq(roomName), any(MessageModel.class));
+        verify(objectMapper, times(1)).writeValueAsBytes(any(MessageModel.class));
+        verify(messageRepository, times(1)).sendChat(any(), any(), any(), any(), eq("john"), eq(expectedPayload));
+        assertEquals("0", sampleMessage.getId());
+        verify(chatRoomService, never()).isRoomExists(any());
+        verify(chatRoomService, never()).isParticipantInRoom(any(), any());
     }
 
     // Test message saving sets timestamp when null
@@ -73,30 +106,56 @@ class MessageServiceTest {
         MessageModel messageWithoutTimestamp = new MessageModel("john", "Hello!");
         messageWithoutTimestamp.setTimestamp(null);
 
-        when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
-        when(chatRoomService.isParticipantInRoom(roomName, "john")).thenReturn(true);
-        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(objectMapper.writeValueAsBytes(any())).thenReturn(bytes("{}"));
+        when(messageRepository.sendChat(any(), any(), any(), any(), any(), any())).thenReturn(new MessageSendResult(MessageRepository.SEND_OK, "0"));
 
         messageService.saveMessage(roomName, messageWithoutTimestamp);
 
         assertNotNull(messageWithoutTimestamp.getTimestamp());
-        verify(messageRepository, times(1)).saveChat(any(), any());
+        verify(messageRepository, times(1)).sendChat(any(), any(), any(), any(), any(), any());
     }
 
     // Test message saving fails when room does not exist
     @Test
-    void saveMessage_WithNonExistingRoom_ThrowsChatRoomNotFoundException() {
+    void saveMessage_WithNonExistingRoom_ThrowsChatRoomNotFoundException() throws JsonProcessingException {
         String roomName = "non-existing";
 
-        when(chatRoomService.isRoomExists(roomName)).thenReturn(false);
+        when(objectMapper.writeValueAsBytes(any())).thenReturn(bytes("{}"));
+        when(messageRepository.sendChat(any(), any(), any(), any(), any(), any()))
+            .thenReturn(new MessageSendResult(MessageRepository.SEND_ROOM_NOT_FOUND, null));
 
         ChatRoomNotFoundException exception = assertThrows(ChatRoomNotFoundException.class,
             () -> messageService.saveMessage(roomName, sampleMessage));
 
         assertEquals("Chat room 'non-existing' does not exist", exception.getMessage());
-        verify(chatRoomService, times(1)).isRoomExists(roomName);
-        verify(messageRepository, never()).saveChat(any(), any());
-        verify(messagePublisher, never()).publishMessage(any(), any());
+        verify(messageRepository, times(1)).sendChat(any(), any(), any(), any(), any(), any());
+        verify(sendRateLimiter, never()).chargeRoom(any());
+    }
+
+    // Test a send over the rate limit is rejected before it reaches Redis, with the limiter's retry delay
+    @Test
+    void saveMessage_OverRateLimit_ThrowsRateLimitExceededException() {
+        when(sendRateLimiter.tryAcquireParticipant("general", "john")).thenReturn(false);
+        when(sendRateLimiter.getRetryAfterSeconds("general", "john")).thenReturn(7L);
+
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+            () -> messageService.saveMessage("general", sampleMessage));
+
+        assertEquals(7L, exception.getRetryAfterSeconds());
+        verify(messageRepository, never()).sendChat(any(), any(), any(), any(), any(), any());
+    }
+
+    // Test only an admitted send is charged to the room bucket
+    @Test
+    void saveMessage_WhenAdmitted_ChargesRoom() throws JsonProcessingException {
+        when(objectMapper.writeValueAsBytes(any())).thenReturn(bytes("{}"));
+        when(messageRepository.sendChat(any(), any(), any(), any(), any(), any())).thenReturn(new MessageSendResult(MessageRepository.SEND_OK, "0"));
+
+        messageService.saveMessage("general", sampleMessage);
+
+        verify(sendRateLimiter, times(1)).tryAcquireParticipant("general", "john");
+        verify(sendRateLimiter, times(1)).chargeRoom("general");
+        verify(sendRateLimiter, never()).tryAcquire(any(), any());
     }
 
     // Test message saving fails with null message
@@ -104,13 +163,11 @@ class MessageServiceTest {
     void saveMessage_WithNullMessage_ThrowsBadRequestException() {
         String roomName = "general";
 
-        when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
-
         BadRequestException exception = assertThrows(BadRequestException.class,
             () -> messageService.saveMessage(roomName, null));
 
         assertEquals("Message cannot be null", exception.getMessage());
-        verify(messageRepository, never()).saveChat(any(), any());
+        verify(messageRepository, never()).sendChat(any(), any(), any(), any(), any(), any());
     }
 
     // Test message saving fails with empty participant name
@@ -119,13 +176,11 @@ class MessageServiceTest {
         String roomName = "general";
         MessageModel messageWithEmptyParticipant = new MessageModel("", "Hello!");
 
-        when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
-
         BadRequestException exception = assertThrows(BadRequestException.class,
             () -> messageService.saveMessage(roomName, messageWithEmptyParticipant));
 
         assertEquals("Participant name cannot be empty", exception.getMessage());
-        verify(messageRepository, never()).saveChat(any(), any());
+        verify(messageRepository, never()).sendChat(any(), any(), any(), any(), any(), any());
     }
 
     // Test message saving fails with empty message content
@@ -134,28 +189,26 @@ class MessageServiceTest {
         String roomName = "general";
         MessageModel messageWithEmptyContent = new MessageModel("john", "");
 
-        when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
-
         BadRequestException exception = assertThrows(BadRequestException.class,
             () -> messageService.saveMessage(roomName, messageWithEmptyContent));
 
         assertEquals("Message content cannot be empty", exception.getMessage());
-        verify(messageRepository, never()).saveChat(any(), any());
+        verify(messageRepository, never()).sendChat(any(), any(), any(), any(), any(), any());
     }
 
     // Test message saving fails when participant not in room
     @Test
-    void saveMessage_WithParticipantNotInRoom_ThrowsParticipantNotFoundException() {
+    void saveMessage_WithParticipantNotInRoom_ThrowsParticipantNotFoundException() throws JsonProcessingException {
         String roomName = "general";
 
-        when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
-        when(chatRoomService.isParticipantInRoom(roomName, "john")).thenReturn(false);
+        when(objectMapper.writeValueAsBytes(any())).thenReturn(bytes("{}"));
+        when(messageRepository.sendChat(any(), any(), any(), any(), any(), any()))
+            .thenReturn(new MessageSendResult(MessageRepository.SEND_PARTICIPANT_NOT_IN_ROOM, null));
 
         ParticipantNotFoundException exception = assertThrows(ParticipantNotFoundException.class,
             () -> messageService.saveMessage(roomName, sampleMessage));
 
         assertEquals("Participant 'john' is not a member of room 'general'", exception.getMessage());
-        verify(messageRepository, never()).saveChat(any(), any());
     }
 
     // Test message saving handles JSON processing exception
@@ -163,16 +216,13 @@ class MessageServiceTest {
     void saveMessage_WithJsonProcessingError_ThrowsRuntimeException() throws JsonProcessingException {
         String roomName = "general";
 
-        when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
-        when(chatRoomService.isParticipantInRoom(roomName, "john")).thenReturn(true);
-        when(objectMapper.writeValueAsString(any())).thenThrow(new JsonProcessingException("JSON error") {});
+        when(objectMapper.writeValueAsBytes(any())).thenThrow(new JsonProcessingException("JSON error") {});
 
         RuntimeException exception = assertThrows(RuntimeException.class,
             () -> messageService.saveMessage(roomName, sampleMessage));
 
         assertTrue(exception.getMessage().contains("Failed to save message"));
-        verify(messageRepository, never()).saveChat(any(), any());
-        verify(messagePublisher, never()).publishMessage(any(), any());
+        verify(messageRepository, never()).sendChat(any(), any(), any(), any(), any(), any());
     }
 
     // Test saving message with string parameters
@@ -182,14 +232,13 @@ class MessageServiceTest {
         String participant = "jane";
         String messageText = "Hello world!";
 
-        when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
-        when(chatRoomService.isParticipantInRoom(roomName, participant)).thenReturn(true);
-        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(objectMapper.writeValueAsBytes(any())).thenReturn(bytes("{}"));
+        when(messageRepository.sendChat(any(), any(), any(), any(), eq(participant), any()))
+            .thenReturn(new MessageSendResult(MessageRepository.SEND_OK, "0"));
 
         assertDoesNotThrow(() -> messageService.saveMessage(roomName, participant, messageText));
 
-        verify(messageRepository, times(1)).saveChat(any(), any());
-        verify(messagePublisher, times(1)).publishMessage(eq(roomName), any(MessageModel.class));
+        verify(messageRepository, times(1)).sendChat(any(), any(), any(), any(), eq(participant), any());
     }
 
     // Test getting last N messages from existing room
@@ -197,14 +246,14 @@ class MessageServiceTest {
     void getLastNMessages_WithValidParameters_ReturnsMessages() throws Exception {
         String roomName = "general";
         int limit = 5;
-        List<Object> mockJsonList = Arrays.asList(
-            "{\"participant\":\"john\",\"message\":\"Hello\"}",
-            "{\"participant\":\"jane\",\"message\":\"Hi there\"}"
+        List<StoredMessage> mockJsonList = Arrays.asList(
+            stored("{\"participant\":\"john\",\"message\":\"Hello\"}"),
+            stored("{\"participant\":\"jane\",\"message\":\"Hi there\"}")
         );
 
         when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
         when(messageRepository.getLastNMessages(any(), eq(limit))).thenReturn(mockJsonList);
-        when(objectMapper.readValue(anyString(), eq(MessageModel.class)))
+        when(objectMapper.readValue(any(byte[].class), eq(MessageModel.class)))
             .thenReturn(new MessageModel("john", "Hello"))
             .thenReturn(new MessageModel("jane", "Hi there"));
 
@@ -213,6 +262,8 @@ class MessageServiceTest {
         assertEquals(2, result.size());
         assertEquals("john", result.get(0).getParticipant());
         assertEquals("Hello", result.get(0).getMessage());
+        assertEquals("0", result.get(0).getId());
+        assertEquals("1", result.get(1).getId());
         verify(chatRoomService, times(1)).isRoomExists(roomName);
         verify(messageRepository, times(1)).getLastNMessages(any(), eq(limit));
     }
@@ -251,14 +302,14 @@ class MessageServiceTest {
     @Test
     void getAllMessages_WithExistingRoom_ReturnsAllMessages() throws Exception {
         String roomName = "general";
-        List<Object> mockJsonList = Arrays.asList(
-            "{\"participant\":\"john\",\"message\":\"Hello\"}",
-            "{\"participant\":\"jane\",\"message\":\"Hi\"}"
+        List<StoredMessage> mockJsonList = Arrays.asList(
+            stored("{\"participant\":\"john\",\"message\":\"Hello\"}"),
+            stored("{\"participant\":\"jane\",\"message\":\"Hi\"}")
         );
 
         when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
         when(messageRepository.getAllMessages(any())).thenReturn(mockJsonList);
-        when(objectMapper.readValue(anyString(), eq(MessageModel.class)))
+        when(objectMapper.readValue(any(byte[].class), eq(MessageModel.class)))
             .thenReturn(new MessageModel("john", "Hello"))
             .thenReturn(new MessageModel("jane", "Hi"));
 
@@ -274,11 +325,11 @@ class MessageServiceTest {
     void getMessages_WithLimit_ReturnsLimitedMessages() throws Exception {
         String roomName = "general";
         Integer limit = 3;
-        List<Object> mockJsonList = Arrays.asList("{\"participant\":\"john\",\"message\":\"Hello\"}");
+        List<StoredMessage> mockJsonList = Arrays.asList(stored("{\"participant\":\"john\",\"message\":\"Hello\"}"));
 
         when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
         when(messageRepository.getLastNMessages(any(), eq(limit))).thenReturn(mockJsonList);
-        when(objectMapper.readValue(anyString(), eq(MessageModel.class)))
+        when(objectMapper.readValue(any(byte[].class), eq(MessageModel.class)))
             .thenReturn(new MessageModel("john", "Hello"));
 
         List<MessageModel> result = messageService.getMessages(roomName, limit);
@@ -292,11 +343,11 @@ class MessageServiceTest {
     @Test
     void getMessages_WithoutLimit_ReturnsAllMessages() throws Exception {
         String roomName = "general";
-        List<Object> mockJsonList = Arrays.asList("{\"participant\":\"john\",\"message\":\"Hello\"}");
+        List<StoredMessage> mockJsonList = Arrays.asList(stored("{\"participant\":\"john\",\"message\":\"Hello\"}"));
 
         when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
         when(messageRepository.getAllMessages(any())).thenReturn(mockJsonList);
-        when(objectMapper.readValue(anyString(), eq(MessageModel.class)))
+        when(objectMapper.readValue(any(byte[].class), eq(MessageModel.class)))
             .thenReturn(new MessageModel("john", "Hello"));
 
         List<MessageModel> result = messageService.getMessages(roomName, null);
@@ -312,12 +363,12 @@ class MessageServiceTest {
         String roomName = "general";
         Integer limit = 2;
         Integer offset = 1;
-        List<Object> mockJsonList = Arrays.asList("{\"participant\":\"john\",\"message\":\"Hello\"}");
+        List<StoredMessage> mockJsonList = Arrays.asList(stored("{\"participant\":\"john\",\"message\":\"Hello\"}"));
 
         when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
         when(messageRepository.getMessagesWithPagination(any(), eq(limit), eq(offset)))
             .thenReturn(mockJsonList);
-        when(objectMapper.readValue(anyString(), eq(MessageModel.class)))
+        when(objectMapper.readValue(any(byte[].class), eq(MessageModel.class)))
             .thenReturn(new MessageModel("john", "Hello"));
 
         List<MessageModel> result = messageService.getMessages(roomName, limit, offset);
@@ -332,11 +383,11 @@ class MessageServiceTest {
         String roomName = "general";
         int limit = 2;
         int offset = 1;
-        List<Object> mockJsonList = Arrays.asList("{\"participant\":\"john\",\"message\":\"Hello\"}");
+        List<StoredMessage> mockJsonList = Arrays.asList(stored("{\"participant\":\"john\",\"message\":\"Hello\"}"));
 
         when(messageRepository.getMessagesWithPagination(any(), eq(limit), eq(offset)))
             .thenReturn(mockJsonList);
-        when(objectMapper.readValue(anyString(), eq(MessageModel.class)))
+        when(objectMapper.readValue(any(byte[].class), eq(MessageModel.class)))
             .thenReturn(new MessageModel("john", "Hello"));
 
         List<MessageModel> result = messageService.getMessagesWithPagination(roomName, limit, offset);
@@ -345,6 +396,179 @@ class MessageServiceTest {
         verify(messageRepository, times(1)).getMessagesWithPagination(any(), eq(limit), eq(offset));
     }
 
+    // Test sends go through the write coalescer when it is enabled
+    @Test
+    void saveMessage_WithCoalescerEnabled_SendsThroughCoalescer() throws Exception {
+        MessageModel sampleMessage = new MessageModel("john", "Hello");
+        when(objectMapper.writeValueAsBytes(any())).thenReturn(bytes("{}"));
+        when(messageWriteCoalescer.isEnabled()).thenReturn(true);
+        when(messageWriteCoalescer.send(any())).thenReturn(new MessageSendResult(MessageRepository.SEND_OK, "5"));
+
+        messageService.saveMessage("general", sampleMessage);
+
+        assertEquals("5", sampleMessage.getId());
+        verify(messageWriteCoalescer, times(1)).send(argThat(command ->
+            command.getChatRoomKey().equals("chatroom:general:messages") && command.getParticipant().equals("john")));
+        verify(messageRepository, never()).sendChat(any(), any(), any(), any(), any(), any());
+    }
+
+    // Test batch send checks membership once and reports a result per message
+    @Test
+    void saveMessages_WithMixedBatch_ReturnsPerItemResults() throws Exception {
+        List<MessageModel> batch = Arrays.asList(
+            new MessageModel("john", "one"),
+            new MessageModel("mallory", "two"),
+            new MessageModel("john", " "),
+            new MessageModel("john", "three")
+        );
+        when(chatRoomService.isRoomExists("general")).thenReturn(true);
+        when(chatRoomService.getParticipantMembership(eq("general"), anyCollection()))
+            .thenReturn(Map.of("john", true, "mallory", false));
+        when(objectMapper.writeValueAsBytes(any())).thenReturn(bytes("{}"));
+        when(messageRepository.sendChatBatch(anyList())).thenReturn(Arrays.asList(
+            new MessageSendResult(MessageRepository.SEND_OK, "10"),
+            new MessageSendResult(MessageRepository.SEND_OK, "11")));
+
+        BatchSendResponse response = messageService.saveMessages("general", batch);
+
+        assertEquals(2, response.getAccepted());
+        assertEquals(2, response.getRejected());
+        assertEquals("10", response.getResults().get(0).getMessageId());
+        assertEquals("Participant 'mallory' is not a member of room 'general'", response.getResults().get(1).getError());
+        assertEquals("Message content cannot be empty", response.getResults().get(2).getError());
+        assertEquals("11", response.getResults().get(3).getMessageId());
+        verify(chatRoomService, times(1)).getParticipantMembership(eq("general"), anyCollection());
+        verify(messageRepository, times(1)).sendChatBatch(argThat(commands -> commands.size() == 2));
+    }
+
+    // Test batch send charges the room only for the messages the script admitted
+    @Test
+    void saveMessages_WithMessageRefusedByScript_ChargesRoomForAdmittedOnly() throws Exception {
+        List<MessageModel> batch = Arrays.asList(
+            new MessageModel("john", "one"),
+            new MessageModel("john", "two")
+        );
+        when(chatRoomService.isRoomExists("general")).thenReturn(true);
+        when(chatRoomService.getParticipantMembership(eq("general"), anyCollection())).thenReturn(Map.of("john", true));
+        when(objectMapper.writeValueAsBytes(any())).thenReturn(bytes("{}"));
+        when(messageRepository.sendChatBatch(anyList())).thenReturn(Arrays.asList(
+            new MessageSendResult(MessageRepository.SEND_OK, "10"),
+            new MessageSendResult(MessageRepository.SEND_PARTICIPANT_NOT_IN_ROOM, null)));
+
+        BatchSendResponse response = messageService.saveMessages("general", batch);
+
+        assertEquals(1, response.getAccepted());
+        verify(sendRateLimiter, times(2)).tryAcquireParticipant("general", "john");
+        verify(sendRateLimiter, times(1)).chargeRoom("general");
+        verify(sendRateLimiter, never()).tryAcquire(any(), any());
+    }
+
+    // Test batch send rejects batches over the configured size
+    @Test
+    void saveMessages_WithOversizedBatch_ThrowsBadRequestException() {
+        List<MessageModel> batch = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            batch.add(new MessageModel("john", "m" + i));
+        }
+
+        assertThrows(BadRequestException.class, () -> messageService.saveMessages("general", batch));
+        verify(messageRepository, never()).sendChatBatch(anyList());
+    }
+
+    // Test export walks the history in chunks continuing from the last id and writes one JSON line per message
+    @Test
+    void exportMessages_WithSeveralChunks_WritesNdjson() throws Exception {
+        when(messageRepository.getMessageCount("chatroom:general:messages")).thenReturn(3L);
+        when(messageRepository.getMessagesWithPagination("chatroom:general:messages", 2, 0)).thenReturn(Arrays.asList(
+            new StoredMessage("0", bytes("{\"participant\":\"john\",\"message\":\"a\"}")),
+            new StoredMessage("1", bytes("{\"participant\":\"john\",\"message\":\"b\"}"))));
+        when(messageRepository.getMessagesAfter("chatroom:general:messages", "1", 1)).thenReturn(List.of(
+            new StoredMessage("2", bytes("{\"participant\":\"john\",\"message\":\"c\"}"))));
+        when(objectMapper.readValue(any(byte[].class), eq(MessageModel.class)))
+            .thenAnswer(invocation -> new MessageModel("john", "x"));
+        when(objectMapper.writeValueAsBytes(any(MessageModel.class)))
+            .thenAnswer(invocation -> bytes(((MessageModel) invocation.getArgument(0)).getId()));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        messageService.exportMessages("general", outputStream);
+
+        assertEquals("0\n1\n2\n", outputStream.toString(StandardCharsets.UTF_8));
+        verify(messageRepository, never()).getAllMessages(any());
+    }
+
+    // Test binary entries are read alongside JSON ones regardless of the configured codec
+    @Test
+    void getAllMessages_WithBinaryEntry_DecodesIt() throws Exception {
+        MessageModel binaryMessage = new MessageModel("jane", "binary hello");
+        byte[] binaryPayload = new BinaryMessageCodec().encode(binaryMessage);
+        when(chatRoomService.isRoomExists("general")).thenReturn(true);
+        when(messageRepository.getAllMessages(any())).thenReturn(Arrays.asList(
+            new StoredMessage("0", bytes("{\"participant\":\"john\",\"message\":\"Hello\"}")),
+            new StoredMessage("1", binaryPayload)));
+        when(objectMapper.readValue(any(byte[].class), eq(MessageModel.class))).thenReturn(new MessageModel("john", "Hello"));
+
+        List<MessageModel> result = messageService.getAllMessages("general");
+
+        assertEquals(2, result.size());
+        assertEquals("jane", result.get(1).getParticipant());
+        assertEquals("binary hello", result.get(1).getMessage());
+        assertEquals(binaryMessage.getTimestamp(), result.get(1).getTimestamp());
+        assertEquals("1", result.get(1).getId());
+    }
+
+    // Test before cursor trims the probe entry and returns the oldest id as the next cursor
+    @Test
+    void getMessagesBefore_WithOlderHistory_ReturnsPageAndNextCursor() throws Exception {
+        String roomName = "general";
+        List<StoredMessage> mockJsonList = Arrays.asList(
+            new StoredMessage("7", bytes("{\"participant\":\"john\",\"message\":\"a\"}")),
+            new StoredMessage("8", bytes("{\"participant\":\"john\",\"message\":\"b\"}")),
+            new StoredMessage("9", bytes("{\"participant\":\"john\",\"message\":\"c\"}"))
+        );
+
+        when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
+        when(messageRepository.getMessagesBefore(any(), eq("10"), eq(3))).thenReturn(mockJsonList);
+        when(objectMapper.readValue(any(byte[].class), eq(MessageModel.class)))
+            .thenAnswer(invocation -> new MessageModel("john", "x"));
+
+        MessagePageResponse page = messageService.getMessagesBefore(roomName, "10", 2);
+
+        assertEquals(2, page.getMessages().size());
+        assertEquals("8", page.getMessages().get(0).getId());
+        assertEquals("9", page.getMessages().get(1).getId());
+        assertTrue(page.isHasMore());
+        assertEquals("8", page.getNextCursor());
+    }
+
+    // Test after cursor on the newest page reports no further messages
+    @Test
+    void getMessagesAfter_AtEndOfHistory_ReturnsNoNextCursor() throws Exception {
+        String roomName = "general";
+        List<StoredMessage> mockJsonList = Arrays.asList(
+            new StoredMessage("4", bytes("{\"participant\":\"john\",\"message\":\"a\"}"))
+        );
+
+        when(chatRoomService.isRoomExists(roomName)).thenReturn(true);
+        when(messageRepository.getMessagesAfter(any(), eq("3"), eq(3))).thenReturn(mockJsonList);
+        when(objectMapper.readValue(any(byte[].class), eq(MessageModel.class)))
+            .thenReturn(new MessageModel("john", "a"));
+
+        MessagePageResponse page = messageService.getMessagesAfter(roomName, "3", 2);
+
+        assertEquals(1, page.getMessages().size());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    // Test empty cursor is rejected before touching the store
+    @Test
+    void getMessagesBefore_WithEmptyCursor_ThrowsBadRequestException() {
+        when(chatRoomService.isRoomExists("general")).thenReturn(true);
+
+        assertThrows(BadRequestException.class, () -> messageService.getMessagesBefore("general", " ", 10));
+        verify(messageRepository, never()).getMessagesBefore(any(), any(), anyInt());
+    }
+
     // Test getting total message count from existing room
     @Test
     void getTotalMessageCount_WithExistingRoom_ReturnsCount() {
@@ -378,17 +602,17 @@ class MessageServiceTest {
     // Test JSON conversion handles malformed messages gracefully
     @Test
     void convertJsonListToMessages_WithMalformedJson_SkipsInvalidMessages() throws Exception {
-        List<Object> mockJsonList = Arrays.asList(
-            "{\"participant\":\"john\",\"message\":\"Hello\"}",
-            "invalid-json",
-            "{\"participant\":\"jane\",\"message\":\"Hi\"}"
+        List<StoredMessage> mockJsonList = Arrays.asList(
+            stored("{\"participant\":\"john\",\"message\":\"Hello\"}"),
+            stored("{invalid-json"),
+            stored("{\"participant\":\"jane\",\"message\":\"Hi\"}")
         );
 
-        when(objectMapper.readValue(eq("{\"participant\":\"john\",\"message\":\"Hello\"}"), eq(MessageModel.class)))
+        when(objectMapper.readValue(aryEq(bytes("{\"participant\":\"john\",\"message\":\"Hello\"}")), eq(MessageModel.class)))
             .thenReturn(new MessageModel("john", "Hello"));
-        when(objectMapper.readValue(eq("invalid-json"), eq(MessageModel.class)))
+        when(objectMapper.readValue(aryEq(bytes("{invalid-json")), eq(MessageModel.class)))
             .thenThrow(new RuntimeException("Invalid JSON"));
-        when(objectMapper.readValue(eq("{\"participant\":\"jane\",\"message\":\"Hi\"}"), eq(MessageModel.class)))
+        when(objectMapper.readValue(aryEq(bytes("{\"participant\":\"jane\",\"message\":\"Hi\"}")), eq(MessageModel.class)))
             .thenReturn(new MessageModel("jane", "Hi"));
 
         when(chatRoomService.isRoomExists("test")).thenReturn(true);
@@ -422,4 +646,21 @@ class MessageServiceTest {
 
         assertTrue(result.isEmpty());
     }
-}
\ No newline at end of file
+
+    // Test entries stored as JSON encoded strings before raw payload storage are still readable
+    @Test
+    void convertJsonListToMessages_WithLegacyStringEntry_UnwrapsAndParses() throws Exception {
+        byte[] legacyEntry = bytes("\"{\\\"participant\\\":\\\"john\\\",\\\"message\\\":\\\"Hello\\\"}\"");
+        String unwrappedJson = "{\"participant\":\"john\",\"message\":\"Hello\"}";
+
+        when(chatRoomService.isRoomExists("test")).thenReturn(true);
+        when(messageRepository.getAllMessages(any())).thenReturn(List.of(new StoredMessage("0", legacyEntry)));
+        when(objectMapper.readValue(aryEq(legacyEntry), eq(String.class))).thenReturn(unwrappedJson);
+        when(objectMapper.readValue(eq(unwrappedJson), eq(MessageModel.class))).thenReturn(new MessageModel("john", "Hello"));
+
+        List<MessageModel> result = messageService.getAllMessages("test");
+
+        assertEquals(1, result.size());
+        assertEquals("john", result.get(0).getParticipant());
+    }
+}
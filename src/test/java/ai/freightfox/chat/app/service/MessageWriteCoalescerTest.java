@@ -0,0 +1,115 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RedisOperationException;
+import ai.freightfox.chat.app.model.MessageSendCommand;
+import ai.freightfox.chat.app.model.MessageSendResult;
+import ai.freightfox.chat.app.repository.MessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageWriteCoalescerTest {
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @InjectMocks
+    private MessageWriteCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "maxBatch", 16);
+        ReflectionTestUtils.setField(coalescer, "maxWaitMicros", 20_000L);
+        ReflectionTestUtils.setField(coalescer, "flushers", 1);
+        coalescer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        coalescer.stop();
+    }
+
+    private static MessageSendCommand command(String participant) {
+        return new MessageSendCommand("chatroom:general", "chatroom:general:participants", "chatroom:general:messages",
+            "chatroom:general:channel", participant, new byte[]{'{', '}'});
+    }
+
+    @SuppressWarnings("unchecked")
+    private void answerWithParticipantAsId() {
+        when(messageRepository.sendChatBatch(anyList())).thenAnswer(invocation -> {
+            List<MessageSendCommand> commands = invocation.getArgument(0);
+            List<MessageSendResult> results = new ArrayList<>();
+            for (MessageSendCommand command : commands) {
+                results.add(new MessageSendResult(MessageRepository.SEND_OK, command.getParticipant()));
+            }
+            return results;
+        });
+    }
+
+    // Test concurrent senders share pipelined batches and each gets its own result
+    @Test
+    void send_WithConcurrentSenders_CoalescesIntoBatches() throws Exception {
+        answerWithParticipantAsId();
+        int senders = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(senders);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<MessageSendResult>> futures = new ArrayList<>();
+        for (int i = 0; i < senders; i++) {
+            String participant = "user-" + i;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return coalescer.send(command(participant));
+            }, executor));
+        }
+        start.countDown();
+
+        for (int i = 0; i < senders; i++) {
+            assertEquals("user-" + i, futures.get(i).get().getMessageId());
+        }
+        executor.shutdown();
+
+        assertEquals(senders, coalescer.getStats().getMessages());
+        assertTrue(coalescer.getStats().getBatches() < senders);
+        verify(messageRepository, atMost(senders - 1)).sendChatBatch(anyList());
+    }
+
+    // Test a failed entry fails only its own caller
+    @Test
+    void send_WithScriptErrorForEntry_ThrowsRedisOperationException() {
+        when(messageRepository.sendChatBatch(anyList()))
+            .thenReturn(List.of(new MessageSendResult(MessageRepository.SEND_ERROR, null)));
+
+        assertThrows(RedisOperationException.class, () -> coalescer.send(command("john")));
+    }
+
+    // Test a batch level failure is propagated to the caller
+    @Test
+    void send_WhenBatchFails_ThrowsRedisOperationException() {
+        when(messageRepository.sendChatBatch(anyList())).thenThrow(new RedisOperationException("Failed to send message batch"));
+
+        RedisOperationException exception = assertThrows(RedisOperationException.class, () -> coalescer.send(command("john")));
+        assertEquals("Failed to send message batch", exception.getMessage());
+    }
+}
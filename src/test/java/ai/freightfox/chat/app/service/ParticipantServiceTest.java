@@ -0,0 +1,79 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.codec.CompositeMessageCodec;
+import ai.freightfox.chat.app.dto.response.ParticipantRoomsResponse;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.BadRequestException;
+import ai.freightfox.chat.app.model.MessageModel;
+import ai.freightfox.chat.app.model.ParticipantRoomEntry;
+import ai.freightfox.chat.app.model.StoredMessage;
+import ai.freightfox.chat.app.repository.ChatRoomRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ParticipantServiceTest {
+
+    @Mock
+    private ChatRoomRepository chatRoomRepository;
+
+    @Mock
+    private CompositeMessageCodec messageCodec;
+
+    @InjectMocks
+    private ParticipantService participantService;
+
+    // Test rooms are ordered by last activity with the decoded last message as preview
+    @Test
+    void getParticipantRooms_WithSeveralRooms_OrdersByActivity() throws Exception {
+        byte[] payload = "{\"message\":\"Truck loaded\"}".getBytes(StandardCharsets.UTF_8);
+        MessageModel decoded = new MessageModel("jane", "Truck loaded");
+        when(messageCodec.decode(payload)).thenReturn(decoded);
+        when(chatRoomRepository.getParticipantRooms("john")).thenReturn(List.of(
+                new ParticipantRoomEntry("empty-room", null, 0, null),
+                new ParticipantRoomEntry("older", Instant.ofEpochMilli(1_000), 3, new StoredMessage("2", payload)),
+                new ParticipantRoomEntry("newer", Instant.ofEpochMilli(2_000), 0, null)));
+
+        ParticipantRoomsResponse response = participantService.getParticipantRooms(" john ");
+
+        assertEquals("john", response.getParticipant());
+        assertEquals(List.of("newer", "older", "empty-room"),
+                response.getRooms().stream().map(room -> room.getRoomName()).toList());
+        assertSame(decoded, response.getRooms().get(1).getLastMessage());
+        assertEquals("2", decoded.getId());
+        assertNull(response.getRooms().get(0).getLastMessage());
+    }
+
+    // Test a last message that cannot be decoded leaves the room listed without a preview
+    @Test
+    void getParticipantRooms_WithMalformedLastMessage_KeepsRoom() throws Exception {
+        byte[] payload = "garbage".getBytes(StandardCharsets.UTF_8);
+        when(messageCodec.decode(payload)).thenThrow(new IOException("Unknown format"));
+        when(chatRoomRepository.getParticipantRooms("john")).thenReturn(List.of(
+                new ParticipantRoomEntry("lane", Instant.ofEpochMilli(1_000), 1, new StoredMessage("0", payload))));
+
+        ParticipantRoomsResponse response = participantService.getParticipantRooms("john");
+
+        assertEquals(1, response.getRooms().size());
+        assertNull(response.getRooms().get(0).getLastMessage());
+    }
+
+    // Test a blank participant name is rejected before reaching Redis
+    @Test
+    void getParticipantRooms_WithBlankName_ThrowsBadRequestException() {
+        assertThrows(BadRequestException.class, () -> participantService.getParticipantRooms(" "));
+
+        verify(chatRoomRepository, never()).getParticipantRooms(any());
+    }
+}
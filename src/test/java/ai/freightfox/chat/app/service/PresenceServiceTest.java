@@ -0,0 +1,80 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.dto.response.PresenceResponse;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.ChatRoomNotFoundException;
+import ai.freightfox.chat.app.repository.PresenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PresenceServiceTest {
+
+    @Mock
+    private PresenceRepository presenceRepository;
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private ChatRoomService chatRoomService;
+
+    @InjectMocks
+    private PresenceService presenceService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(presenceService, "ttlMs", 15_000L);
+        lenient().when(sessionManager.getPodInstanceId()).thenReturn("pod-a");
+    }
+
+    // Test pod entries are merged into one sorted, de-duplicated online list
+    @Test
+    void getPresence_WithSeveralPods_MergesParticipants() {
+        when(chatRoomService.isRoomExists("general")).thenReturn(true);
+        when(presenceRepository.getPodPresence(eq("general"), anyLong())).thenReturn(List.of("jane\njohn", "john\nzoe"));
+
+        PresenceResponse response = presenceService.getPresence("general");
+
+        assertEquals(3, response.getOnlineCount());
+        assertEquals(List.of("jane", "john", "zoe"), response.getParticipants());
+        assertEquals(2, response.getPods());
+    }
+
+    // Test presence of a missing room is a not found error
+    @Test
+    void getPresence_WithNonExistingRoom_ThrowsChatRoomNotFoundException() {
+        when(chatRoomService.isRoomExists("missing")).thenReturn(false);
+
+        assertThrows(ChatRoomNotFoundException.class, () -> presenceService.getPresence("missing"));
+        verifyNoInteractions(presenceRepository);
+    }
+
+    // Test a heartbeat publishes current rooms and clears rooms this pod no longer holds sockets for
+    @Test
+    void heartbeat_AfterLeavingRoom_RemovesItsEntry() {
+        when(sessionManager.getLocalParticipantsByRoom())
+                .thenReturn(Map.of("general", new TreeSet<>(Set.of("john", "jane")), "ops", Set.of("zoe")))
+                .thenReturn(Map.of("general", Set.of("john")));
+
+        presenceService.heartbeat();
+        presenceService.heartbeat();
+
+        verify(presenceRepository).publishHeartbeats(eq("pod-a"), eq(Map.of("general", "jane\njohn", "ops", "zoe")), eq(15_000L), anyLong());
+        verify(presenceRepository).publishHeartbeats(eq("pod-a"), eq(Map.of("general", "john")), eq(15_000L), anyLong());
+        verify(presenceRepository).removeHeartbeats("pod-a", Set.of("ops"));
+    }
+}
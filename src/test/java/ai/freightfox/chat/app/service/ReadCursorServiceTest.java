@@ -0,0 +1,115 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.dto.response.RoomUnreadCount;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.BadRequestException;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RedisOperationException;
+import ai.freightfox.chat.app.model.ReadCursorUpdate;
+import ai.freightfox.chat.app.repository.ChatRoomRepository;
+import ai.freightfox.chat.app.repository.ReadCursorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadCursorServiceTest {
+
+    @Mock
+    private ReadCursorRepository readCursorRepository;
+
+    @Mock
+    private ChatRoomRepository chatRoomRepository;
+
+    @InjectMocks
+    private ReadCursorService readCursorService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(readCursorService, "maxBatch", 1000);
+        ReflectionTestUtils.setField(readCursorService, "maxRooms", 200);
+        ReflectionTestUtils.setField(readCursorService, "maxStreamUnread", 1000);
+    }
+
+    // Test many reads of one room by one participant are written once with the newest id
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_AfterSeveralReads_WritesNewestIdOnce() {
+        readCursorService.markRead("lane", "john", "5");
+        readCursorService.markRead("lane", "john", "12");
+        readCursorService.markRead("lane", "john", "9");
+        readCursorService.markRead("lane", "jane", "3");
+
+        readCursorService.flush();
+
+        ArgumentCaptor<List<ReadCursorUpdate>> updates = ArgumentCaptor.forClass(List.class);
+        verify(readCursorRepository, times(1)).updateReadCursors(updates.capture());
+        assertEquals(2, updates.getValue().size());
+        assertTrue(updates.getValue().contains(new ReadCursorUpdate("lane", "john", "12")));
+        assertTrue(updates.getValue().contains(new ReadCursorUpdate("lane", "jane", "3")));
+
+        // Nothing is left to write
+        readCursorService.flush();
+        verify(readCursorRepository, times(1)).updateReadCursors(any());
+    }
+
+    // Test a failed flush keeps the reads for the next one
+    @Test
+    void flush_WhenRedisFails_RetriesNextFlush() {
+        readCursorService.markRead("lane", "john", "1700000000000-1");
+        doThrow(new RedisOperationException("Failed to update read cursors")).doNothing()
+                .when(readCursorRepository).updateReadCursors(any());
+
+        readCursorService.flush();
+        readCursorService.flush();
+
+        verify(readCursorRepository, times(2)).updateReadCursors(List.of(new ReadCursorUpdate("lane", "john", "1700000000000-1")));
+    }
+
+    // Test unflushed reads are passed along so unread counts reflect them immediately
+    @Test
+    void getUnreadCounts_WithPendingRead_PassesPendingId() {
+        List<RoomUnreadCount> counts = List.of(new RoomUnreadCount("lane", 0, "7", false), new RoomUnreadCount("ops", 4, null, false));
+        when(readCursorRepository.getUnreadCounts("john", List.of("lane", "ops"), Map.of("lane", "7"), 1000)).thenReturn(counts);
+        readCursorService.markRead("lane", "john", "7");
+
+        assertSame(counts, readCursorService.getUnreadCounts(" john ", List.of("lane", "ops", "lane")).getRooms());
+    }
+
+    // Test the participant's joined rooms are used when no rooms are given
+    @Test
+    void getUnreadCounts_WithoutRooms_UsesParticipantRooms() {
+        when(chatRoomRepository.getParticipantRoomNames("john")).thenReturn(List.of("lane"));
+
+        readCursorService.getUnreadCounts("john", null);
+
+        verify(readCursorRepository, times(1)).getUnreadCounts("john", List.of("lane"), Map.of(), 1000);
+    }
+
+    // Test malformed ids and blank names are rejected
+    @Test
+    void markRead_WithInvalidArguments_ThrowsBadRequestException() {
+        assertThrows(BadRequestException.class, () -> readCursorService.markRead("lane", "john", "abc"));
+        assertThrows(BadRequestException.class, () -> readCursorService.markRead("lane", "john", "-1"));
+        assertThrows(BadRequestException.class, () -> readCursorService.markRead("lane", " ", "1"));
+    }
+
+    // Test stream ids compare by time first, then by sequence
+    @Test
+    void isAfter_ComparesListAndStreamIds() {
+        assertTrue(ReadCursorService.isAfter("10", "9"));
+        assertTrue(ReadCursorService.isAfter("1700000000001-0", "1700000000000-5"));
+        assertTrue(ReadCursorService.isAfter("1700000000000-6", "1700000000000-5"));
+        assertFalse(ReadCursorService.isAfter("1700000000000-5", "1700000000000-5"));
+    }
+}
@@ -0,0 +1,106 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.archive.MessageArchive;
+import ai.freightfox.chat.app.repository.ChatRoomRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoomDeletionServiceTest {
+
+    @Mock
+    private ChatRoomRepository chatRoomRepository;
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private MessageArchive messageArchive;
+
+    @InjectMocks
+    private RoomDeletionService roomDeletionService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(roomDeletionService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(roomDeletionService, "chunkSize", 1000);
+        ReflectionTestUtils.setField(roomDeletionService, "maxRoomsPerStep", 16);
+        ReflectionTestUtils.setField(roomDeletionService, "closeCode", 4404);
+    }
+
+    // Test a deletion moves the history to its own reclaim key, publishes the event and drops the archive
+    @Test
+    void deleteRoom_WithExistingRoom_DeletesAndPublishesEvent() {
+        ArgumentCaptor<String> reclaimKey = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> controlEvent = ArgumentCaptor.forClass(String.class);
+        when(chatRoomRepository.deleteRoom(eq("general"), reclaimKey.capture(), controlEvent.capture())).thenReturn(true);
+
+        assertTrue(roomDeletionService.deleteRoom("general"));
+
+        assertTrue(reclaimKey.getValue().startsWith("chatrooms:reclaim:general:"));
+        assertEquals("{\"type\":\"room-deleted\",\"roomName\":\"general\"}", controlEvent.getValue());
+        verify(messageArchive, times(1)).delete("chatroom:general:messages");
+    }
+
+    // Test a missing room leaves the archive alone
+    @Test
+    void deleteRoom_WithMissingRoom_ReturnsFalse() {
+        when(chatRoomRepository.deleteRoom(eq("general"), any(), any())).thenReturn(false);
+
+        assertFalse(roomDeletionService.deleteRoom("general"));
+
+        verify(messageArchive, never()).delete(any());
+    }
+
+    // Test the room deleted event closes the room's local sockets and the archive handle
+    @Test
+    void onMessage_WithRoomDeletedEvent_ClosesLocalSessions() {
+        byte[] body = "{\"type\":\"room-deleted\",\"roomName\":\"general\"}".getBytes(StandardCharsets.UTF_8);
+
+        roomDeletionService.onMessage(new DefaultMessage("chatrooms:control".getBytes(StandardCharsets.UTF_8), body), null);
+
+        verify(sessionManager, times(1)).closeRoomSessions("general", new CloseStatus(4404, "Room deleted"));
+        verify(messageArchive, times(1)).evict("chatroom:general:messages");
+    }
+
+    // Test a malformed event is ignored
+    @Test
+    void onMessage_WithMalformedEvent_IsIgnored() {
+        byte[] body = "not json".getBytes(StandardCharsets.UTF_8);
+
+        assertDoesNotThrow(() -> roomDeletionService.onMessage(
+                new DefaultMessage("chatrooms:control".getBytes(StandardCharsets.UTF_8), body), null));
+
+        verify(sessionManager, never()).closeRoomSessions(any(), any());
+    }
+
+    // Test a reclaim step trims every pending history and survives Redis failures
+    @Test
+    void reclaim_WithPendingHistories_TrimsOneChunkEach() {
+        List<String> pending = List.of("chatrooms:reclaim:general:a", "chatrooms:reclaim:ops:b");
+        when(chatRoomRepository.getPendingReclaims(16)).thenReturn(pending);
+
+        roomDeletionService.reclaim();
+
+        verify(chatRoomRepository, times(1)).reclaimChunks(pending, 1000);
+
+        when(chatRoomRepository.getPendingReclaims(16)).thenThrow(new RuntimeException("connection reset"));
+        assertDoesNotThrow(() -> roomDeletionService.reclaim());
+    }
+}
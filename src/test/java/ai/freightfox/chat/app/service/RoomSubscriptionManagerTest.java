@@ -0,0 +1,117 @@
+package ai.freightfox.chat.app.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoomSubscriptionManagerTest {
+
+    @Mock
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Mock
+    private MessageSubscriberService messageSubscriber;
+
+    @InjectMocks
+    private RoomSubscriptionManager roomSubscriptionManager;
+
+    private final ChannelTopic generalTopic = new ChannelTopic("chatroom:general:channel");
+
+    @BeforeEach
+    void setUp() {
+        // Long enough that the scheduled unsubscribe never fires on its own; tests run it directly
+        ReflectionTestUtils.setField(roomSubscriptionManager, "unsubscribeDelayMs", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomSubscriptionManager.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RoomSubscriptionManager.RoomSubscription subscription(String roomName) {
+        return ((Map<String, RoomSubscriptionManager.RoomSubscription>)
+                ReflectionTestUtils.getField(roomSubscriptionManager, "subscriptions")).get(roomName);
+    }
+
+    // Test counting a session never touches Redis; the subscribe that follows does, once per room
+    @Test
+    void acquireAndSubscribe_WithTwoSessions_SubscribesOnce() {
+        roomSubscriptionManager.acquire("general");
+        verifyNoInteractions(redisMessageListenerContainer);
+
+        roomSubscriptionManager.subscribe("general");
+        roomSubscriptionManager.acquire("general");
+        roomSubscriptionManager.subscribe("general");
+
+        verify(redisMessageListenerContainer, times(1)).addMessageListener(messageSubscriber, generalTopic);
+        assertTrue(roomSubscriptionManager.isSubscribed("general"));
+    }
+
+    // Test a reconnect before the delayed unsubscribe runs keeps the subscription
+    @Test
+    void unsubscribeIfIdle_AfterReconnect_KeepsSubscription() {
+        roomSubscriptionManager.acquire("general");
+        roomSubscriptionManager.subscribe("general");
+        RoomSubscriptionManager.RoomSubscription subscription = subscription("general");
+        roomSubscriptionManager.release("general");
+        roomSubscriptionManager.acquire("general");
+        roomSubscriptionManager.subscribe("general");
+
+        roomSubscriptionManager.unsubscribeIfIdle("general", subscription);
+
+        verify(redisMessageListenerContainer, never()).removeMessageListener(any(), any(ChannelTopic.class));
+        verify(redisMessageListenerContainer, times(1)).addMessageListener(messageSubscriber, generalTopic);
+        assertTrue(roomSubscriptionManager.isSubscribed("general"));
+    }
+
+    // Test an idle room is unsubscribed and forgotten, and a later session subscribes it again
+    @Test
+    void unsubscribeIfIdle_WhenIdle_UnsubscribesAndAllowsResubscribe() {
+        roomSubscriptionManager.acquire("general");
+        roomSubscriptionManager.subscribe("general");
+        RoomSubscriptionManager.RoomSubscription subscription = subscription("general");
+        roomSubscriptionManager.release("general");
+
+        roomSubscriptionManager.unsubscribeIfIdle("general", subscription);
+
+        verify(redisMessageListenerContainer, times(1)).removeMessageListener(messageSubscriber, generalTopic);
+        assertFalse(roomSubscriptionManager.isSubscribed("general"));
+        assertNull(subscription("general"));
+
+        roomSubscriptionManager.acquire("general");
+        roomSubscriptionManager.subscribe("general");
+
+        verify(redisMessageListenerContainer, times(2)).addMessageListener(messageSubscriber, generalTopic);
+        assertTrue(roomSubscriptionManager.isSubscribed("general"));
+    }
+
+    // Test a failed SUBSCRIBE leaves the room unsubscribed so the next session retries it
+    @Test
+    void subscribe_WhenRedisFails_RetriesWithNextSession() {
+        doThrow(new IllegalStateException("connection lost")).doNothing()
+                .when(redisMessageListenerContainer).addMessageListener(messageSubscriber, generalTopic);
+        roomSubscriptionManager.acquire("general");
+
+        assertThrows(IllegalStateException.class, () -> roomSubscriptionManager.subscribe("general"));
+        assertFalse(roomSubscriptionManager.isSubscribed("general"));
+
+        roomSubscriptionManager.acquire("general");
+        roomSubscriptionManager.subscribe("general");
+        assertTrue(roomSubscriptionManager.isSubscribed("general"));
+    }
+}
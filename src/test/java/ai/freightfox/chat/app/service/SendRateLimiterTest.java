@@ -0,0 +1,96 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.repository.RateLimitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SendRateLimiterTest {
+
+    @Mock
+    private RateLimitRepository rateLimitRepository;
+
+    @InjectMocks
+    private SendRateLimiter sendRateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        // start() is not called, so the test drives reconcile itself
+        ReflectionTestUtils.setField(sendRateLimiter, "enabled", true);
+        ReflectionTestUtils.setField(sendRateLimiter, "participantPerSecond", 0.001);
+        ReflectionTestUtils.setField(sendRateLimiter, "participantBurst", 3);
+        ReflectionTestUtils.setField(sendRateLimiter, "roomPerSecond", 1000.0);
+        ReflectionTestUtils.setField(sendRateLimiter, "roomBurst", 1000);
+        ReflectionTestUtils.setField(sendRateLimiter, "windowSeconds", 10);
+        ReflectionTestUtils.setField(sendRateLimiter, "idleEvictSeconds", 120L);
+    }
+
+    // Test a participant gets its burst, is then refused, and does not drain other participants' buckets
+    @Test
+    void tryAcquire_BeyondBurst_RejectsOnlyThatParticipant() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(sendRateLimiter.tryAcquire("general", "john"));
+        }
+
+        assertFalse(sendRateLimiter.tryAcquire("general", "john"));
+        assertTrue(sendRateLimiter.tryAcquire("general", "jane"));
+        verifyNoInteractions(rateLimitRepository);
+    }
+
+    // Test reconcile pushes local counts and closes a bucket whose cluster total is over the window limit
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcile_WithClusterTotalOverLimit_ClosesBucket() {
+        assertTrue(sendRateLimiter.tryAcquire("general", "john"));
+        // Window limit for john is ceil(0.001 * 10) + 3 = 4; other pods already used it up
+        when(rateLimitRepository.addToWindowCounters(anyList(), anyList(), eq(20L))).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(0);
+            return keys.stream().map(key -> key.startsWith("ratelimit:participant:") ? 5L : 1L).toList();
+        });
+
+        sendRateLimiter.reconcile();
+
+        ArgumentCaptor<List<Long>> increments = ArgumentCaptor.forClass(List.class);
+        verify(rateLimitRepository).addToWindowCounters(anyList(), increments.capture(), eq(20L));
+        assertEquals(List.of(1L, 1L), increments.getValue());
+        assertFalse(sendRateLimiter.tryAcquire("general", "john"));
+        assertTrue(sendRateLimiter.tryAcquire("general", "jane"));
+    }
+
+    // Test sends under made-up participant names never drain the room bucket that real members share
+    @Test
+    void tryAcquireParticipant_WithoutAdmittedSends_LeavesRoomBucketAlone() {
+        ReflectionTestUtils.setField(sendRateLimiter, "roomPerSecond", 0.001);
+        ReflectionTestUtils.setField(sendRateLimiter, "roomBurst", 2);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(sendRateLimiter.tryAcquireParticipant("general", "stranger" + i));
+        }
+
+        assertTrue(sendRateLimiter.tryAcquire("general", "john"));
+    }
+
+    // Test admitted sends fill the room bucket, after which sends are refused with the time until a token is back
+    @Test
+    void chargeRoom_BeyondBurst_RefusesWithRetryAfter() {
+        ReflectionTestUtils.setField(sendRateLimiter, "roomPerSecond", 0.001);
+        ReflectionTestUtils.setField(sendRateLimiter, "roomBurst", 2);
+        sendRateLimiter.chargeRoom("general");
+        sendRateLimiter.chargeRoom("general");
+
+        assertFalse(sendRateLimiter.tryAcquireParticipant("general", "john"));
+        // One token comes back every 1000 seconds
+        assertEquals(1000, sendRateLimiter.getRetryAfterSeconds("general", "john"));
+    }
+}
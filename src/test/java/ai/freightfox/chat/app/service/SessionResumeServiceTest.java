@@ -0,0 +1,94 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.dto.response.MessagePageResponse;
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.BadRequestException;
+import ai.freightfox.chat.app.model.MessageModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionResumeServiceTest {
+
+    @Mock
+    private MessageService messageService;
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private WebSocketSession session;
+
+    @InjectMocks
+    private SessionResumeService sessionResumeService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sessionResumeService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        // Direct executor so the replay runs in the test thread
+        ReflectionTestUtils.setField(sessionResumeService, "websocketWriterExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(sessionResumeService, "replayBatchSize", 2);
+        ReflectionTestUtils.setField(sessionResumeService, "maxReplay", 100);
+        lenient().when(session.getId()).thenReturn("s1");
+        lenient().when(session.isOpen()).thenReturn(true);
+    }
+
+    private static MessageModel message(String id) {
+        MessageModel messageModel = new MessageModel("john", "message " + id);
+        messageModel.setId(id);
+        return messageModel;
+    }
+
+    // Test missed messages are replayed page by page, then the status frame, then live frames without duplicates
+    @Test
+    @SuppressWarnings("unchecked")
+    void resume_WithMissedMessages_ReplaysThenReleasesLiveFrames() throws Exception {
+        when(messageService.getMessagesAfter("general", "3", 2))
+                .thenReturn(new MessagePageResponse(List.of(message("4"), message("5")), "5", true));
+        when(messageService.getMessagesAfter("general", "5", 2))
+                .thenReturn(new MessagePageResponse(List.of(message("6")), null, false));
+
+        sessionResumeService.resume("general", session, "3");
+
+        verify(sessionManager).addSession("general", session, true);
+        ArgumentCaptor<TextMessage> frames = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, times(4)).sendMessage(frames.capture());
+        assertTrue(frames.getAllValues().get(0).getPayload().startsWith("{\"id\":\"4\""));
+        assertTrue(frames.getAllValues().get(2).getPayload().startsWith("{\"id\":\"6\""));
+        assertTrue(frames.getAllValues().get(3).getPayload().contains("\"complete\":true"));
+
+        ArgumentCaptor<Predicate<WebSocketMessage<?>>> filter = ArgumentCaptor.forClass(Predicate.class);
+        verify(sessionManager).releaseLiveFrames(eq(session), filter.capture());
+        assertFalse(filter.getValue().test(new TextMessage("{\"id\":\"6\",\"message\":\"x\"}")));
+        assertTrue(filter.getValue().test(new TextMessage("{\"id\":\"7\",\"message\":\"y\"}")));
+    }
+
+    // Test an invalid last seen id closes the socket and still releases it to live delivery
+    @Test
+    void resume_WithInvalidLastSeen_ClosesSession() throws Exception {
+        when(messageService.getMessagesAfter("general", "bogus", 2)).thenThrow(new BadRequestException("Invalid cursor"));
+
+        sessionResumeService.resume("general", session, "bogus");
+
+        verify(session).close(argThat(status -> status.getCode() == CloseStatus.BAD_DATA.getCode()));
+        verify(sessionManager).releaseLiveFrames(eq(session), any());
+    }
+}
@@ -0,0 +1,97 @@
+package ai.freightfox.chat.app.service;
+
+import ai.freightfox.chat.app.globalExceptionHandler.exceptionHandlers.RedisOperationException;
+import ai.freightfox.chat.app.model.TypingUpdate;
+import ai.freightfox.chat.app.repository.TypingIndicatorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TypingIndicatorServiceTest {
+
+    @Mock
+    private TypingIndicatorRepository typingIndicatorRepository;
+
+    @InjectMocks
+    private TypingIndicatorService typingIndicatorService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(typingIndicatorService, "ttlMs", 6000L);
+        ReflectionTestUtils.setField(typingIndicatorService, "maxRoomsPerFlush", 1000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TypingUpdate> flushedUpdates(int times) {
+        ArgumentCaptor<List<TypingUpdate>> updates = ArgumentCaptor.forClass(List.class);
+        verify(typingIndicatorRepository, times(times)).publishTypingUpdates(updates.capture(), eq(6000L));
+        return updates.getValue();
+    }
+
+    // Test many signals in one interval become one update per room with the latest signal per participant
+    @Test
+    void flush_WithManySignals_SendsOneUpdatePerRoom() {
+        when(typingIndicatorRepository.publishTypingUpdates(anyList(), eq(6000L))).thenReturn(List.of(6000L, -1L));
+        for (int i = 0; i < 500; i++) {
+            typingIndicatorService.signal("lane", "user" + i, true);
+        }
+        typingIndicatorService.signal("lane", "user0", false);
+        typingIndicatorService.signal("ops", "john", false);
+
+        typingIndicatorService.flush();
+
+        List<TypingUpdate> updates = flushedUpdates(1);
+        assertEquals(2, updates.size());
+        TypingUpdate lane = updates.stream().filter(update -> update.getRoomName().equals("lane")).findFirst().orElseThrow();
+        assertEquals(500, lane.getSignals().size());
+        assertFalse(lane.getSignals().get("user0"));
+        assertTrue(lane.getSignals().get("user499"));
+    }
+
+    // Test an interval without signals or due expiries makes no Redis call
+    @Test
+    void flush_WithNothingPending_DoesNothing() {
+        typingIndicatorService.flush();
+
+        verifyNoInteractions(typingIndicatorRepository);
+    }
+
+    // Test a room is republished with no signals once its earliest typist has expired
+    @Test
+    void flush_AfterTypistExpires_RepublishesRoom() {
+        when(typingIndicatorRepository.publishTypingUpdates(anyList(), eq(6000L))).thenReturn(List.of(0L), List.of(-1L));
+        typingIndicatorService.signal("lane", "john", true);
+
+        typingIndicatorService.flush();
+        typingIndicatorService.flush();
+        typingIndicatorService.flush();
+
+        assertEquals(List.of(new TypingUpdate("lane", Map.of())), flushedUpdates(2));
+    }
+
+    // Test a failed publish drops the signals instead of piling them up
+    @Test
+    void flush_WhenRedisFails_DropsSignals() {
+        when(typingIndicatorRepository.publishTypingUpdates(anyList(), eq(6000L)))
+                .thenThrow(new RedisOperationException("Failed to publish typing updates"));
+        typingIndicatorService.signal("lane", "john", true);
+
+        typingIndicatorService.flush();
+        typingIndicatorService.flush();
+
+        flushedUpdates(1);
+    }
+}
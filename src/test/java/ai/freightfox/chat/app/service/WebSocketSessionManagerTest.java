@@ -0,0 +1,234 @@
+package ai.freightfox.chat.app.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebSocketSessionManagerTest {
+
+    @Mock
+    private WebSocketSession firstSession;
+
+    @Mock
+    private WebSocketSession secondSession;
+
+    @Mock
+    private RoomSubscriptionManager roomSubscriptionManager;
+
+    @InjectMocks
+    private WebSocketSessionManager sessionManager;
+
+    @BeforeEach
+    void setUp() {
+        // Direct executor so queued frames are written synchronously in the test thread
+        ReflectionTestUtils.setField(sessionManager, "websocketWriterExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(sessionManager, "outboundQueueCapacity", 2);
+        ReflectionTestUtils.setField(sessionManager, "overflowPolicy", SessionOutboundQueue.OverflowPolicy.DROP_OLDEST);
+        ReflectionTestUtils.setField(sessionManager, "overflowCloseCode", CloseStatus.SESSION_NOT_RELIABLE.getCode());
+        ReflectionTestUtils.setField(sessionManager, "fanOutExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(sessionManager, "fanOutShardThreshold", 100);
+        ReflectionTestUtils.setField(sessionManager, "fanOutShardSize", 50);
+        lenient().when(firstSession.getId()).thenReturn("s1");
+        lenient().when(secondSession.getId()).thenReturn("s2");
+    }
+
+    // Test every recipient receives the same pre-built frame instance
+    @Test
+    void broadcastToLocalSessions_WithMultipleSessions_SharesOneFrame() throws Exception {
+        byte[] payload = "{\"participant\":\"john\",\"message\":\"Hello\"}".getBytes(StandardCharsets.UTF_8);
+
+        when(firstSession.isOpen()).thenReturn(true);
+        when(secondSession.isOpen()).thenReturn(true);
+
+        sessionManager.addSession("general", firstSession);
+        sessionManager.addSession("general", secondSession);
+        sessionManager.broadcastToLocalSessions("general", payload);
+
+        ArgumentCaptor<TextMessage> firstFrame = ArgumentCaptor.forClass(TextMessage.class);
+        ArgumentCaptor<TextMessage> secondFrame = ArgumentCaptor.forClass(TextMessage.class);
+        verify(firstSession, times(1)).sendMessage(firstFrame.capture());
+        verify(secondSession, times(1)).sendMessage(secondFrame.capture());
+
+        assertSame(firstFrame.getValue(), secondFrame.getValue());
+        assertArrayEquals(payload, firstFrame.getValue().asBytes());
+    }
+
+    // Test closed sessions are dropped and not written to
+    @Test
+    void broadcastToLocalSessions_WithClosedSession_SkipsClosedSession() throws Exception {
+        byte[] payload = "{}".getBytes(StandardCharsets.UTF_8);
+
+        when(firstSession.isOpen()).thenReturn(false);
+        when(secondSession.isOpen()).thenReturn(true);
+
+        sessionManager.addSession("general", firstSession);
+        sessionManager.addSession("general", secondSession);
+        sessionManager.broadcastToLocalSessions("general", payload);
+
+        verify(firstSession, never()).sendMessage(any());
+        verify(secondSession, times(1)).sendMessage(any());
+    }
+
+    // Test the room channel is acquired per added session and released per removed session
+    @Test
+    void addAndRemoveSession_DriveRoomSubscriptionReferenceCount() {
+        sessionManager.addSession("general", firstSession);
+        sessionManager.addSession("general", secondSession);
+        sessionManager.addSession("general", firstSession);
+
+        verify(roomSubscriptionManager, times(2)).acquire("general");
+
+        sessionManager.removeSession("general", firstSession);
+        sessionManager.removeSession("general", firstSession);
+
+        verify(roomSubscriptionManager, times(1)).release("general");
+    }
+
+    // Test sessions dropped during broadcast release their subscription reference
+    @Test
+    void broadcastToLocalSessions_WithClosedSession_ReleasesSubscription() {
+        when(firstSession.isOpen()).thenReturn(false);
+
+        sessionManager.addSession("general", firstSession);
+        sessionManager.broadcastToLocalSessions("general", "{}".getBytes(StandardCharsets.UTF_8));
+
+        verify(roomSubscriptionManager, times(1)).release("general");
+    }
+
+    // Test a full queue under the disconnect policy closes the slow session and counts the drop
+    @Test
+    void broadcastToLocalSessions_WithFullQueueAndDisconnectPolicy_ClosesSlowSession() throws Exception {
+        ReflectionTestUtils.setField(sessionManager, "websocketWriterExecutor", (Executor) task -> { });
+        ReflectionTestUtils.setField(sessionManager, "overflowPolicy", SessionOutboundQueue.OverflowPolicy.DISCONNECT);
+        byte[] payload = "{}".getBytes(StandardCharsets.UTF_8);
+
+        when(firstSession.isOpen()).thenReturn(true);
+
+        sessionManager.addSession("general", firstSession);
+        for (int i = 0; i < 3; i++) {
+            sessionManager.broadcastToLocalSessions("general", payload);
+        }
+
+        verify(firstSession, times(1)).close(new CloseStatus(CloseStatus.SESSION_NOT_RELIABLE.getCode(), "Slow consumer"));
+        assertEquals(1, sessionManager.getRoomOutboundStats("general").getDroppedMessages());
+        assertEquals(1, sessionManager.getRoomOutboundStats("general").getSlowConsumerDisconnects());
+    }
+
+    // Test a full queue under the drop oldest policy keeps the newest frames
+    @Test
+    void broadcastToLocalSessions_WithFullQueueAndDropOldestPolicy_CountsDrops() {
+        ReflectionTestUtils.setField(sessionManager, "websocketWriterExecutor", (Executor) task -> { });
+        byte[] payload = "{}".getBytes(StandardCharsets.UTF_8);
+
+        when(firstSession.isOpen()).thenReturn(true);
+
+        sessionManager.addSession("general", firstSession);
+        for (int i = 0; i < 5; i++) {
+            sessionManager.broadcastToLocalSessions("general", payload);
+        }
+
+        assertEquals(2, sessionManager.getRoomOutboundStats("general").getQueuedMessages());
+        assertEquals(3, sessionManager.getRoomOutboundStats("general").getDroppedMessages());
+    }
+
+    // Test the outbound counters of a room are dropped with its last session
+    @Test
+    void removeSession_WithLastSession_DropsRoomOutboundMetrics() {
+        ReflectionTestUtils.setField(sessionManager, "websocketWriterExecutor", (Executor) task -> { });
+        byte[] payload = "{}".getBytes(StandardCharsets.UTF_8);
+
+        when(firstSession.isOpen()).thenReturn(true);
+        when(secondSession.isOpen()).thenReturn(true);
+
+        sessionManager.addSession("general", firstSession);
+        sessionManager.addSession("general", secondSession);
+        for (int i = 0; i < 3; i++) {
+            sessionManager.broadcastToLocalSessions("general", payload);
+        }
+        sessionManager.removeSession("general", firstSession);
+
+        assertEquals(2, sessionManager.getRoomOutboundStats("general").getDroppedMessages());
+
+        sessionManager.removeSession("general", secondSession);
+
+        assertEquals(0, sessionManager.getRoomOutboundStats("general").getDroppedMessages());
+    }
+
+    // Test rooms above the shard threshold deliver to every session and remove dead ones afterwards
+    @Test
+    void broadcastToLocalSessions_AboveShardThreshold_DeliversAllShards() throws Exception {
+        ReflectionTestUtils.setField(sessionManager, "fanOutShardThreshold", 2);
+        ReflectionTestUtils.setField(sessionManager, "fanOutShardSize", 1);
+        byte[] payload = "{}".getBytes(StandardCharsets.UTF_8);
+
+        when(firstSession.isOpen()).thenReturn(true);
+        when(secondSession.isOpen()).thenReturn(false);
+
+        sessionManager.addSession("general", firstSession);
+        sessionManager.addSession("general", secondSession);
+        sessionManager.broadcastToLocalSessions("general", payload);
+
+        verify(firstSession, times(1)).sendMessage(any());
+        verify(secondSession, never()).sendMessage(any());
+        verify(roomSubscriptionManager, times(1)).release("general");
+        assertEquals(1, sessionManager.getRoomOutboundStats("general").getLocalSessions());
+    }
+
+    // Test frames broadcast to a held session are written only after release, minus the filtered ones
+    @Test
+    void broadcastToLocalSessions_WhileHeld_DeliversAfterRelease() throws Exception {
+        byte[] replayed = "{\"id\":\"4\",\"message\":\"a\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] live = "{\"id\":\"5\",\"message\":\"b\"}".getBytes(StandardCharsets.UTF_8);
+
+        when(firstSession.isOpen()).thenReturn(true);
+
+        sessionManager.addSession("general", firstSession, true);
+        sessionManager.broadcastToLocalSessions("general", replayed);
+        sessionManager.broadcastToLocalSessions("general", live);
+        verify(firstSession, never()).sendMessage(any());
+
+        sessionManager.releaseLiveFrames(firstSession, frame -> !"4".equals(SessionResumeService.messageId(frame)));
+
+        ArgumentCaptor<TextMessage> frame = ArgumentCaptor.forClass(TextMessage.class);
+        verify(firstSession, times(1)).sendMessage(frame.capture());
+        assertArrayEquals(live, frame.getValue().asBytes());
+    }
+
+    // Test deleting a room closes its local sessions once and forgets them
+    @Test
+    void closeRoomSessions_WithLocalSessions_ClosesAndReleasesEach() throws Exception {
+        CloseStatus roomDeleted = new CloseStatus(4404, "Room deleted");
+
+        sessionManager.addSession("general", firstSession);
+        sessionManager.addSession("general", secondSession);
+
+        assertEquals(2, sessionManager.closeRoomSessions("general", roomDeleted));
+
+        verify(firstSession, times(1)).close(roomDeleted);
+        verify(secondSession, times(1)).close(roomDeleted);
+        verify(roomSubscriptionManager, times(2)).release("general");
+
+        // The close callback of a socket removes it again; that must not release the room a second time
+        sessionManager.removeSession("general", firstSession);
+        sessionManager.broadcastToLocalSessions("general", "{}".getBytes(StandardCharsets.UTF_8));
+        verify(roomSubscriptionManager, times(2)).release("general");
+        assertEquals(0, sessionManager.getRoomOutboundStats("general").getLocalSessions());
+        assertEquals(0, sessionManager.closeRoomSessions("general", roomDeleted));
+    }
+}